@@ -3,13 +3,13 @@ package app;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
-import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.time.Millisecond;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
 
 import java.io.File;
+import java.util.Date;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -23,24 +23,41 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
 import model.ResultadoBusca;
-import service.AlgoritmoBuscaFactory;
-import service.BuscaArquivoService;
-import strategy.BuscaTexto;
+import service.AtualizadorIndice;
 import strategy.BuscasService;
+import strategy.EstatisticasBuscas;
+import strategy.MetricasBusca;
+import strategy.ModoComparacao;
+import strategy.ProgressoBusca;
 
 public class BuscaArquivosApp extends JFrame {
+    private static final int MAX_SUGESTOES = 50;
+    private static final int MAX_PONTOS_GRAFICO = 50;
+
     private JComboBox<String> cmbDiretorio;
     private JTextField txtPalavra;
     private JTextArea txtResultado;
     private JComboBox<String> cmbMetodo;
-    private Set<String> nomesDisponiveis;
+    private JComboBox<ModoComparacao> cmbModo;
+    private JSpinner spnLimite;
+    private AtualizadorIndice atualizador;
 
     private JList<String> sugestoesList;
     private JScrollPane scrollSugestoes;
     private JPopupMenu popupSugestoes;
-    //grafico
-    private DefaultCategoryDataset dataset;
+    //grafico: tempo das últimas buscas, total e por fase
+    private TimeSeries serieTotal;
+    private TimeSeries serieListagem;
+    private TimeSeries serieLeitura;
+    private TimeSeries serieComparacao;
     private ChartPanel chartPanel;
+    private MetricasBusca ultimasMetricas;
+    private SwingWorker<Integer, ResultadoBusca> buscaAtual;
+    //progresso
+    private JProgressBar barraProgresso;
+    private JLabel lblProgresso;
+    private JButton btnCancelar;
+    private Timer timerProgresso;
 
     public BuscaArquivosApp() {
         super("Busca em Arquivos de Texto 🔍");
@@ -50,7 +67,7 @@ public class BuscaArquivosApp extends JFrame {
         setLocationRelativeTo(null);
 
         // Painel superior
-        JPanel painelTopo = new JPanel(new GridLayout(3, 2, 5, 5));
+        JPanel painelTopo = new JPanel(new GridLayout(5, 2, 5, 5));
 
         painelTopo.add(new JLabel("Dataset:"));
         cmbDiretorio = new JComboBox<>(new String[]{"Pequeno", "Grande"});
@@ -61,21 +78,37 @@ public class BuscaArquivosApp extends JFrame {
         painelTopo.add(txtPalavra);
 
         painelTopo.add(new JLabel("Método de busca:"));
-        cmbMetodo = new JComboBox<>(new String[]{"Sequencial", "Boyer-Moore", "Paralelo", "Paralelo otimizado"});
+        cmbMetodo = new JComboBox<>(new String[]{"Sequencial", "Boyer-Moore", "Paralelo", "Paralelo otimizado", "Indexado", "Snapshot", "Mapeado", "Fork/Join", "Virtual threads", "Aproximado", "Ranqueado", "Regex"});
         painelTopo.add(cmbMetodo);
 
+        painelTopo.add(new JLabel("Comparação:"));
+        cmbModo = new JComboBox<>(ModoComparacao.values());
+        painelTopo.add(cmbModo);
+
+        painelTopo.add(new JLabel("Máx. resultados (0 = todos):"));
+        spnLimite = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 100));
+        painelTopo.add(spnLimite);
+
         add(painelTopo, BorderLayout.NORTH);
 
         txtResultado = new JTextArea();
         txtResultado.setEditable(false);
         add(new JScrollPane(txtResultado), BorderLayout.CENTER);
         
-        dataset = new DefaultCategoryDataset();
-        JFreeChart chart = ChartFactory.createBarChart(
-                "Tempo da Busca / Resultados",
-                "Palavra",
-                "Valor",
-                dataset
+        serieTotal = new TimeSeries("Total");
+        serieListagem = new TimeSeries("Listagem");
+        serieLeitura = new TimeSeries("Leitura (soma das threads)");
+        serieComparacao = new TimeSeries("Comparação (soma das threads)");
+        TimeSeriesCollection series = new TimeSeriesCollection();
+        for (TimeSeries serie : List.of(serieTotal, serieListagem, serieLeitura, serieComparacao)) {
+            serie.setMaximumItemCount(MAX_PONTOS_GRAFICO);
+            series.addSeries(serie);
+        }
+        JFreeChart chart = ChartFactory.createTimeSeriesChart(
+                "Últimas buscas",
+                "Horário",
+                "Tempo (ms)",
+                series
         );
         chartPanel = new ChartPanel(chart);
         chartPanel.setPreferredSize(new java.awt.Dimension(600, 200));
@@ -83,13 +116,32 @@ public class BuscaArquivosApp extends JFrame {
         add(chartPanel, BorderLayout.EAST); 
 
         JButton btnBuscar = new JButton("Buscar");
-        add(btnBuscar, BorderLayout.SOUTH);
+        btnCancelar = new JButton("Cancelar");
+        btnCancelar.setEnabled(false);
+        barraProgresso = new JProgressBar();
+        barraProgresso.setStringPainted(true);
+        lblProgresso = new JLabel(" ");
+
+        JPanel painelBotoes = new JPanel(new GridLayout(1, 2, 5, 5));
+        painelBotoes.add(btnBuscar);
+        painelBotoes.add(btnCancelar);
+
+        JPanel painelRodape = new JPanel(new BorderLayout(5, 5));
+        painelRodape.add(painelBotoes, BorderLayout.WEST);
+        painelRodape.add(barraProgresso, BorderLayout.CENTER);
+        painelRodape.add(lblProgresso, BorderLayout.EAST);
+        add(painelRodape, BorderLayout.SOUTH);
 
         inicializarAutocomplete();
 
         carregarNomes();
 
+        // Cada busca concluída vira um ponto no gráfico
+        EstatisticasBuscas.instancia().adicionarOuvinte(m -> SwingUtilities.invokeLater(() -> registrarMetricas(m)));
+
+        cmbDiretorio.addActionListener(e -> carregarNomes());
         btnBuscar.addActionListener(e -> iniciarBusca());
+        btnCancelar.addActionListener(e -> cancelarBusca());
     }
 
     private File getCaminhoDataset() {
@@ -109,15 +161,17 @@ public class BuscaArquivosApp extends JFrame {
     private void carregarNomes() {        
         File pasta = getCaminhoDataset();
 
+        if (atualizador != null) {
+            atualizador.parar();
+            atualizador = null;
+        }
         if (!pasta.exists() || !pasta.isDirectory()) {
-            nomesDisponiveis = new TreeSet<>();
             return;
         }
-        BuscaArquivoService serviceTemp = new BuscaArquivoService(new BuscaTexto() {
-            @Override
-            public boolean contem(String texto, String padrao) { return true; }
-        });
-        nomesDisponiveis = serviceTemp.carregarNomesDoDiretorio(pasta);
+        // Sobe com o snapshot já gravado (sem ler o dataset); os nomes continuam atualizados
+        // conforme os arquivos do dataset mudam
+        atualizador = new AtualizadorIndice(pasta);
+        atualizador.iniciar();
     }
 
     private void inicializarAutocomplete() {
@@ -178,10 +232,7 @@ public class BuscaArquivosApp extends JFrame {
             return;
         }
     
-        List<String> filtrados = nomesDisponiveis.stream()
-                .filter(n -> n.toLowerCase().startsWith(texto.toLowerCase()))
-                .sorted()
-                .collect(Collectors.toList());
+        List<String> filtrados = atualizador != null ? atualizador.sugerir(texto, MAX_SUGESTOES) : List.of();
     
         if (filtrados.isEmpty()) {
             popupSugestoes.setVisible(false);
@@ -198,10 +249,17 @@ public class BuscaArquivosApp extends JFrame {
         SwingUtilities.invokeLater(() -> txtPalavra.requestFocusInWindow());
     }    
 
+    private void cancelarBusca() {
+        if (buscaAtual != null && !buscaAtual.isDone()) {
+            buscaAtual.cancel(true);
+            txtResultado.append("\nBusca cancelada ⛔\n");
+        }
+    }
+
     private void iniciarBusca() {
-        System.gc();
         String palavra = txtPalavra.getText().trim();
         String metodo = (String) cmbMetodo.getSelectedItem();
+        ModoComparacao modo = (ModoComparacao) cmbModo.getSelectedItem();
         
         if (palavra.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Informe a palavra a ser buscada!");
@@ -215,34 +273,119 @@ public class BuscaArquivosApp extends JFrame {
         }
 
         var service = new BuscasService();
+        int limite = (Integer) spnLimite.getValue();
+
+        // Uma busca nova substitui a anterior
+        if (buscaAtual != null && !buscaAtual.isDone()) {
+            buscaAtual.cancel(true);
+        }
 
         txtResultado.setText("Buscando \"" + palavra + "\" com " + metodo + "...\n\n");
+        ultimasMetricas = null;
+
+        ProgressoBusca progresso = new ProgressoBusca();
+        iniciarProgresso(progresso);
 
         long inicio = System.currentTimeMillis();
-        List<ResultadoBusca> resultados = service.buscar(pasta, palavra, metodo);
-        long fim = System.currentTimeMillis();
+        buscaAtual = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() {
+                // Os resultados chegam aos poucos; publish agrupa vários por atualização da tela
+                return service.buscarEmFluxo(pasta, palavra, metodo, modo, limite, r -> {
+                    publish(r);
+                    return !isCancelled();
+                }, progresso);
+            }
 
-        long tempoBusca = fim - inicio; 
-        int quantidadeResultados = resultados.size();
+            @Override
+            protected void process(List<ResultadoBusca> lote) {
+                if (isCancelled()) return;
+                StringBuilder texto = new StringBuilder();
+                for (ResultadoBusca r : lote) {
+                    texto.append(r).append('\n');
+                }
+                txtResultado.append(texto.toString());
+            }
 
-        if (resultados.isEmpty()) {
-            txtResultado.append("Nenhum resultado encontrado.\n");
-        } else {
-            resultados.forEach(r -> txtResultado.append(r + "\n"));
-        }
+            @Override
+            protected void done() {
+                // Uma busca cancelada pode terminar depois que a próxima já começou
+                if (buscaAtual == this) pararProgresso(progresso);
+                if (isCancelled()) return;
+
+                long tempoBusca = System.currentTimeMillis() - inicio;
+                int quantidadeResultados;
+                try {
+                    quantidadeResultados = get();
+                } catch (Exception e) {
+                    txtResultado.append("\nErro na busca: " + e.getMessage() + "\n");
+                    return;
+                }
 
-        txtResultado.append("\nBusca finalizada ✅\n");
-        txtResultado.append("Tempo da busca: " + tempoBusca + " ms\n");
-        txtResultado.append("Resultados encontrados: " + quantidadeResultados + "\n");
+                if (quantidadeResultados == 0) {
+                    txtResultado.append("Nenhum resultado encontrado.\n");
+                }
+
+                txtResultado.append("\nBusca finalizada ✅\n");
+                txtResultado.append("Tempo da busca: " + tempoBusca + " ms\n");
+                txtResultado.append("Resultados encontrados: " + quantidadeResultados + "\n");
+                if (limite > 0 && quantidadeResultados >= limite) {
+                    txtResultado.append("(limitado aos primeiros " + limite + ")\n");
+                }
+                if (service.getCache() != null) {
+                    txtResultado.append("Cache de consultas: " + service.getCache() + "\n");
+                }
+                // O ouvinte das estatísticas já rodou: a busca conclui as métricas antes de devolver
+                if (ultimasMetricas != null && palavra.equals(ultimasMetricas.getTermo())) {
+                    txtResultado.append("Métricas: " + ultimasMetricas + "\n");
+                }
+            }
+        };
+        buscaAtual.execute();
+    }
+
+    private void registrarMetricas(MetricasBusca m) {
+        ultimasMetricas = m;
+        Millisecond quando = new Millisecond(new Date(m.getInicio()));
+        serieTotal.addOrUpdate(quando, m.getTempoTotalMs());
+        serieListagem.addOrUpdate(quando, m.getListagemMs());
+        serieLeitura.addOrUpdate(quando, m.getLeituraMs());
+        serieComparacao.addOrUpdate(quando, m.getComparacaoMs());
+    }
+
+    // Atualiza a barra pelos contadores da busca em andamento, sem depender de eventos da busca
+    private void iniciarProgresso(ProgressoBusca progresso) {
+        if (timerProgresso != null) timerProgresso.stop();
+        btnCancelar.setEnabled(true);
+        barraProgresso.setValue(0);
+        barraProgresso.setIndeterminate(true);
+        timerProgresso = new Timer(250, e -> mostrarProgresso(progresso));
+        timerProgresso.start();
+    }
+
+    private void pararProgresso(ProgressoBusca progresso) {
+        timerProgresso.stop();
+        btnCancelar.setEnabled(false);
+        mostrarProgresso(progresso);
+        barraProgresso.setIndeterminate(false);
+    }
 
-        if (dataset != null) {
-            dataset.clear();
-            dataset.addValue(tempoBusca, "Tempo (ms)", palavra);
-            dataset.addValue(quantidadeResultados, "Resultados", palavra);
+    private void mostrarProgresso(ProgressoBusca progresso) {
+        int total = progresso.getTotalArquivos();
+        if (total > 0) {
+            barraProgresso.setIndeterminate(false);
+            barraProgresso.setMaximum(total);
+            barraProgresso.setValue(progresso.getArquivosConcluidos());
         }
+        lblProgresso.setText(String.format("%d/%d arquivos · %.1f MB · %.0f arquivos/s · %.1f MB/s",
+                progresso.getArquivosConcluidos(), total,
+                progresso.getBytesLidos() / (1024.0 * 1024.0),
+                progresso.getArquivosPorSegundo(),
+                progresso.getBytesPorSegundo() / (1024.0 * 1024.0)));
     }
 
     public static void main(String[] args) {
+        EstatisticasBuscas.publicarJmx();
         SwingUtilities.invokeLater(() -> new BuscaArquivosApp().setVisible(true));
     }
 }
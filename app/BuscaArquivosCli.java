@@ -0,0 +1,271 @@
+package app;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+import service.FiltroArquivos;
+import strategy.BuscasService;
+import strategy.CoordenadorFragmentos;
+import strategy.EstatisticasBuscas;
+import strategy.ModoComparacao;
+import strategy.ProgressoBusca;
+
+// Entrada de linha de comando sobre o BuscasService, sem Swing: não carrega AWT nem JFreeChart,
+// então sobe rápido e roda em servidor sem display. Os resultados saem em fluxo no stdout.
+// Sem termos nem --consultas, lê uma consulta por linha do stdin até o fim: o mesmo processo
+// atende o lote inteiro, com índices, padrões compilados e cache carregados uma vez só.
+//
+// Uso: java --add-modules jdk.incubator.vector -cp out app.BuscaArquivosCli --dir txt/dataset_g
+//        [--metodo "paralelo otimizado"] [--modo exato|ignorar_maiusculas|ignorar_maiusculas_e_acentos]
+//        [--threads 8] [--formato texto|json] [--limite 100] [--consultas arquivo.txt]
+//        [--incluir "*.txt"]... [--excluir "rascunhos"]... [--profundidade n]
+//        [--fragmentos n [--prazo ms]] [termo ...]
+//
+// A árvore inteira do diretório é percorrida; --incluir e --excluir (repetíveis) trocam o filtro
+// padrão "*.txt" por globs próprios e --profundidade limita os níveis (1 = só a raiz).
+// --fragmentos divide o diretório entre n processos trabalhadores (ver CoordenadorFragmentos), cada
+// um com --threads threads; um fragmento sem resposta em --prazo ms também é buscado localmente.
+//
+// Texto: "arquivo:linha:conteudo" (com mais de uma consulta, prefixado por "termo<TAB>"); o resumo
+// de cada consulta vai para o stderr. JSON: um objeto por linha com consulta, arquivo, linha e
+// conteudo (e distancia na busca aproximada), seguido de {"consulta":...,"fim":true,...}.
+// Código de saída: 0 ok, 1 alguma consulta falhou, 2 uso inválido.
+public final class BuscaArquivosCli {
+
+    private final BuscasService service = new BuscasService();
+    private final File diretorio;
+    private final String metodo;
+    private final ModoComparacao modo;
+    private final int limite;
+    private final boolean json;
+    private final PrintStream saida;
+    private boolean prefixarConsulta;
+    // null: busca neste processo
+    private CoordenadorFragmentos coordenador;
+
+    private BuscaArquivosCli(File diretorio, String metodo, ModoComparacao modo, int limite, boolean json, PrintStream saida) {
+        this.diretorio = diretorio;
+        this.metodo = metodo;
+        this.modo = modo;
+        this.limite = limite;
+        this.json = json;
+        this.saida = saida;
+    }
+
+    public static void main(String[] args) {
+        System.exit(executar(args));
+    }
+
+    static int executar(String[] args) {
+        List<String> termos = new ArrayList<>();
+        String dir = null;
+        String metodo = "paralelo otimizado";
+        String modo = "exato";
+        String formato = "texto";
+        String consultas = null;
+        int threads = 0;
+        int limite = 0;
+        List<String> incluir = new ArrayList<>();
+        List<String> excluir = new ArrayList<>();
+        int profundidade = FiltroArquivos.SEM_LIMITE;
+        int fragmentos = 0;
+        long prazo = 2000;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    termos.add(args[i]);
+                    continue;
+                }
+                if (args[i].equals("--")) {
+                    // Tudo depois de "--" é termo, mesmo que comece com "--"
+                    for (i++; i < args.length; i++) termos.add(args[i]);
+                    break;
+                }
+                if (args[i].equals("--ajuda")) {
+                    uso(System.out);
+                    return 0;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                String valor = args[++i];
+                switch (args[i - 1]) {
+                    case "--dir" -> dir = valor;
+                    case "--metodo" -> metodo = valor;
+                    case "--modo" -> modo = valor;
+                    case "--formato" -> formato = valor;
+                    case "--consultas" -> consultas = valor;
+                    case "--threads" -> threads = Integer.parseInt(valor);
+                    case "--limite" -> limite = Integer.parseInt(valor);
+                    case "--incluir" -> incluir.add(valor);
+                    case "--excluir" -> excluir.add(valor);
+                    case "--profundidade" -> profundidade = Integer.parseInt(valor);
+                    case "--fragmentos" -> fragmentos = Integer.parseInt(valor);
+                    case "--prazo" -> prazo = Long.parseLong(valor);
+                    default -> throw new IllegalArgumentException("Opção inválida: " + args[i - 1]);
+                }
+            }
+            if (dir == null) throw new IllegalArgumentException("Informe o diretório com --dir");
+            if (!new File(dir).isDirectory()) throw new IllegalArgumentException("Diretório inválido: " + dir);
+            if (!formato.equals("texto") && !formato.equals("json")) throw new IllegalArgumentException("Formato inválido: " + formato);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            uso(System.err);
+            return 2;
+        }
+
+        PrintStream saida = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, StandardCharsets.UTF_8);
+        BuscaArquivosCli cli;
+        try {
+            cli = new BuscaArquivosCli(new File(dir), metodo, lerModo(modo), limite, formato.equals("json"), saida);
+            cli.service.setParalelismo(threads);
+            if (!incluir.isEmpty() || !excluir.isEmpty() || profundidade != FiltroArquivos.SEM_LIMITE) {
+                cli.service.setFiltro(new FiltroArquivos(incluir.isEmpty() ? FiltroArquivos.PADRAO.getIncluir() : incluir,
+                        excluir, profundidade));
+            }
+            if (fragmentos > 0) {
+                cli.coordenador = new CoordenadorFragmentos(cli.diretorio, fragmentos, cli.service.getFiltro(), threads,
+                        true, prazo, List.of());
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return 2;
+        }
+
+        boolean falhou = false;
+        try {
+            if (cli.coordenador != null) {
+                int noAr = cli.coordenador.iniciar();
+                if (noAr < fragmentos) System.err.println(noAr + " de " + fragmentos + " trabalhadores no ar; o resto é buscado localmente");
+            }
+            if (consultas != null) {
+                List<String> doArquivo = Files.readAllLines(new File(consultas).toPath(), StandardCharsets.UTF_8);
+                doArquivo.removeIf(String::isBlank);
+                termos.addAll(doArquivo);
+            }
+            if (!termos.isEmpty()) {
+                cli.prefixarConsulta = termos.size() > 1;
+                for (String termo : termos) falhou |= !cli.consultar(termo);
+            } else {
+                // Lote pelo stdin: cada linha é respondida (e a saída descarregada) antes de ler a próxima.
+                // Processo de vida longa: as métricas ficam visíveis via JMX enquanto ele roda
+                EstatisticasBuscas.publicarJmx();
+                cli.prefixarConsulta = true;
+                BufferedReader entrada = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String linha;
+                while ((linha = entrada.readLine()) != null) {
+                    if (!linha.isBlank()) falhou |= !cli.consultar(linha);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro de leitura: " + e.getMessage());
+            falhou = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            falhou = true;
+        } finally {
+            saida.flush();
+            if (cli.coordenador != null) cli.coordenador.close();
+            cli.service.close();
+        }
+        return falhou || saida.checkError() ? 1 : 0;
+    }
+
+    // Aceita o nome da constante em qualquer caixa, com espaço ou hífen no lugar do '_'
+    static ModoComparacao lerModo(String modo) {
+        String nome = modo.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        try {
+            return ModoComparacao.valueOf(nome);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Modo inválido: " + modo);
+        }
+    }
+
+    private boolean consultar(String termo) {
+        long inicio = System.nanoTime();
+        int total;
+        try {
+            if (coordenador != null) {
+                // Os fragmentos respondem inteiros; o limite vale na saída
+                total = 0;
+                for (ResultadoBusca r : coordenador.buscar(termo, metodo, modo)) {
+                    if (limite > 0 && total == limite) break;
+                    escrever(termo, r);
+                    total++;
+                }
+            } else {
+                // O receptor é chamado uma thread de cada vez (a entrega do fluxo é sincronizada)
+                // checkError() descarrega o buffer: só é consultado de tempos em tempos (ex.: "| head" fechou o pipe)
+                int[] escritos = {0};
+                total = service.buscarEmFluxo(diretorio, termo, metodo, modo, limite, r -> {
+                    escrever(termo, r);
+                    return ++escritos[0] % 4096 != 0 || !saida.checkError();
+                }, new ProgressoBusca());
+            }
+        } catch (IllegalArgumentException e) {
+            // Método inválido, regex inválida...: registra e segue para a próxima consulta
+            System.err.println("Erro na consulta \"" + termo + "\": " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        double ms = (System.nanoTime() - inicio) / 1e6;
+        if (json) {
+            saida.printf(Locale.ROOT, "{\"consulta\":%s,\"fim\":true,\"resultados\":%d,\"ms\":%.1f}%n", textoJson(termo), total, ms);
+        } else {
+            System.err.printf(Locale.ROOT, "%s: %d resultado(s) em %.1f ms%n", termo, total, ms);
+        }
+        saida.flush();
+        return true;
+    }
+
+    private void escrever(String termo, ResultadoBusca r) {
+        if (json) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("{\"consulta\":").append(textoJson(termo))
+                    .append(",\"arquivo\":").append(textoJson(r.getCaminhoArquivo()))
+                    .append(",\"linha\":").append(r.getLinha())
+                    .append(",\"conteudo\":").append(textoJson(r.getConteudo()));
+            if (r instanceof ResultadoAproximado aproximado) sb.append(",\"distancia\":").append(aproximado.getDistancia());
+            saida.println(sb.append('}'));
+        } else {
+            if (prefixarConsulta) saida.print(termo + '\t');
+            saida.println(r.getCaminhoArquivo() + ':' + r.getLinha() + ':' + r.getConteudo());
+        }
+    }
+
+    static String textoJson(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void uso(PrintStream out) {
+        out.println("Uso: BuscaArquivosCli --dir <diretório> [--metodo <método>] [--modo exato|ignorar_maiusculas|ignorar_maiusculas_e_acentos]");
+        out.println("       [--threads n] [--formato texto|json] [--limite n] [--consultas arquivo]");
+        out.println("       [--incluir glob]... [--excluir glob]... [--profundidade n] [--fragmentos n [--prazo ms]] [termo ...]");
+        out.println("Sem termos nem --consultas, lê uma consulta por linha do stdin.");
+        out.println("Métodos: sequencial, boyer-moore, paralelo, paralelo otimizado, indexado, snapshot, mapeado,");
+        out.println("         fork/join, virtual threads, aproximado, ranqueado, ranqueado bm25, regex");
+        out.println("Os métodos ranqueados devolvem os " + BuscasService.K_PADRAO + " acertos mais relevantes, do melhor para o pior.");
+    }
+}
@@ -0,0 +1,84 @@
+package app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import service.FiltroArquivos;
+import strategy.BuscasService;
+import strategy.TrabalhadorFragmento;
+
+// Processo trabalhador da busca fragmentada, subido pelo strategy.CoordenadorFragmentos: busca só os
+// arquivos do seu fragmento do diretório e atende o coordenador por um socket no loopback.
+// Avisa "PORTA <n>" no stdout quando está pronto e termina quando o stdin fecha (o coordenador saiu
+// ou pediu para encerrar), então não sobra processo órfão.
+//
+// Uso: java --add-modules jdk.incubator.vector -cp out app.BuscaArquivosFragmento --dir txt/dataset_g
+//        --fragmento 0 --fragmentos 4 [--threads n] [--sem-cache] [--incluir glob]... [--excluir glob]...
+//        [--profundidade n]
+public final class BuscaArquivosFragmento {
+
+    public static void main(String[] args) {
+        String dir = null;
+        int fragmento = 0;
+        int fragmentos = 1;
+        int threads = 0;
+        boolean semCache = false;
+        List<String> incluir = new ArrayList<>();
+        List<String> excluir = new ArrayList<>();
+        int profundidade = FiltroArquivos.SEM_LIMITE;
+        TrabalhadorFragmento trabalhador;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--sem-cache")) {
+                    semCache = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                String valor = args[++i];
+                switch (args[i - 1]) {
+                    case "--dir" -> dir = valor;
+                    case "--fragmento" -> fragmento = Integer.parseInt(valor);
+                    case "--fragmentos" -> fragmentos = Integer.parseInt(valor);
+                    case "--threads" -> threads = Integer.parseInt(valor);
+                    case "--incluir" -> incluir.add(valor);
+                    case "--excluir" -> excluir.add(valor);
+                    case "--profundidade" -> profundidade = Integer.parseInt(valor);
+                    default -> throw new IllegalArgumentException("Opção inválida: " + args[i - 1]);
+                }
+            }
+            if (dir == null) throw new IllegalArgumentException("Informe o diretório com --dir");
+
+            BuscasService service = semCache ? new BuscasService(null) : new BuscasService();
+            service.setParalelismo(threads);
+            FiltroArquivos filtro = new FiltroArquivos(incluir.isEmpty() ? FiltroArquivos.PADRAO.getIncluir() : incluir,
+                    excluir, profundidade);
+            service.setFiltro(filtro.fragmento(fragmento, fragmentos));
+            trabalhador = new TrabalhadorFragmento(service, new File(dir));
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Erro: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Thread atendimento = new Thread(trabalhador::servir, "fragmento-" + fragmento);
+        atendimento.setDaemon(true);
+        atendimento.start();
+        System.out.println("PORTA " + trabalhador.getPorta());
+        System.out.flush();
+
+        // Vida presa ao stdin: o coordenador fecha (ou morre) e o processo acaba
+        try {
+            InputStream entrada = System.in;
+            byte[] descarte = new byte[256];
+            while (entrada.read(descarte) >= 0) {
+                // Nada é mandado pelo stdin; só espera o fim
+            }
+        } catch (IOException e) {
+            // stdin quebrado: mesmo caso do fim
+        }
+        System.exit(0);
+    }
+}
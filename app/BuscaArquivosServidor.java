@@ -0,0 +1,294 @@
+package app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+import service.AtualizadorIndice;
+import service.FiltroArquivos;
+import strategy.AgendadorBuscas;
+import strategy.BuscasService;
+import strategy.EstatisticasBuscas;
+import strategy.ModoComparacao;
+
+// Servidor HTTP local (só no loopback) que mantém uma instância aquecida do BuscasService para
+// vários clientes: índices, snapshots, padrões compilados e cache ficam carregados entre consultas.
+// Cada requisição roda numa thread virtual; o AgendadorBuscas junta consultas idênticas, agrupa as
+// que chegam na mesma janela numa só passada e limita quantas varreduras rodam ao mesmo tempo.
+//
+// Uso: java --add-modules jdk.incubator.vector -cp out app.BuscaArquivosServidor --dir txt/dataset_g
+//        [--dir txt/dataset_p]... [--porta 8080] [--janela 5] [--lote 64] [--varreduras 4]
+//        [--espera 2000] [--threads n] [--sem-cache]
+//
+// GET /buscar?termo=Peter[&metodo=paralelo otimizado][&modo=exato][&limite=100][&dir=dataset_g]
+//     {"consulta":..., "metodo":..., "total":N, "ms":..., "resultados":[{"arquivo","linha","conteudo"}...]}
+//     limite 0 devolve todos; 400 consulta inválida, 404 diretório desconhecido, 503 sem vaga (tente de novo)
+// GET /sugerir?prefixo=Pe[&limite=10][&dir=dataset_g]    {"sugestoes":[...]}
+// GET /estatisticas                                      contadores do agendador e das buscas
+public final class BuscaArquivosServidor {
+
+    private static final int LIMITE_PADRAO = 100;
+    private static final int MAX_SUGESTOES = 10;
+
+    private final Map<String, File> diretorios = new LinkedHashMap<>();
+    private final Map<File, AtualizadorIndice> atualizadores = new HashMap<>();
+    private final AgendadorBuscas agendador;
+    private final HttpServer servidor;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+
+    // porta 0 escolhe uma livre (ver getPorta())
+    public BuscaArquivosServidor(List<File> diretorios, AgendadorBuscas agendador, int porta) throws IOException {
+        if (diretorios.isEmpty()) throw new IllegalArgumentException("Informe ao menos um diretório");
+        for (File diretorio : diretorios) {
+            if (!diretorio.isDirectory()) throw new IllegalArgumentException("Diretório inválido: " + diretorio);
+            // O nome é o que o parâmetro dir usa: dois iguais deixariam um dos diretórios inalcançável
+            File outro = this.diretorios.putIfAbsent(diretorio.getName(), diretorio);
+            if (outro != null) {
+                throw new IllegalArgumentException("Diretórios com o mesmo nome: " + outro + " e " + diretorio);
+            }
+        }
+        this.agendador = agendador;
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        servidor.setExecutor(threads);
+        servidor.createContext("/buscar", troca -> responder(troca, this::buscar));
+        servidor.createContext("/sugerir", troca -> responder(troca, this::sugerir));
+        servidor.createContext("/estatisticas", troca -> responder(troca, this::estatisticas));
+    }
+
+    public void iniciar() {
+        // O autocomplete sobe com o snapshot já gravado e segue o que muda nos datasets
+        FiltroArquivos filtro = agendador.getService().getFiltro();
+        for (File diretorio : diretorios.values()) {
+            AtualizadorIndice atualizador = new AtualizadorIndice(diretorio, filtro);
+            atualizador.iniciar();
+            atualizadores.put(diretorio, atualizador);
+        }
+        servidor.start();
+    }
+
+    public void parar() {
+        servidor.stop(0);
+        threads.shutdownNow();
+        atualizadores.values().forEach(AtualizadorIndice::parar);
+        agendador.getService().close();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public static void main(String[] args) {
+        List<File> dirs = new ArrayList<>();
+        int porta = 8080;
+        long janela = 5;
+        int lote = 64;
+        int varreduras = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        long espera = 2000;
+        int paralelismo = 0;
+        boolean comCache = true;
+        BuscaArquivosServidor servidor;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--sem-cache")) {
+                    comCache = false;
+                    continue;
+                }
+                if (args[i].equals("--ajuda")) {
+                    uso(System.out);
+                    return;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                String valor = args[++i];
+                switch (args[i - 1]) {
+                    case "--dir" -> dirs.add(new File(valor));
+                    case "--porta" -> porta = Integer.parseInt(valor);
+                    case "--janela" -> janela = Long.parseLong(valor);
+                    case "--lote" -> lote = Integer.parseInt(valor);
+                    case "--varreduras" -> varreduras = Integer.parseInt(valor);
+                    case "--espera" -> espera = Long.parseLong(valor);
+                    case "--threads" -> paralelismo = Integer.parseInt(valor);
+                    default -> throw new IllegalArgumentException("Opção inválida: " + args[i - 1]);
+                }
+            }
+            BuscasService service = comCache ? new BuscasService() : new BuscasService(null);
+            service.setParalelismo(paralelismo);
+            servidor = new BuscaArquivosServidor(dirs, new AgendadorBuscas(service, janela, lote, varreduras, espera), porta);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Erro: " + e.getMessage());
+            uso(System.err);
+            System.exit(2);
+            return;
+        }
+
+        EstatisticasBuscas.publicarJmx();
+        servidor.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(servidor::parar));
+        System.out.println("Servidor de buscas em http://127.0.0.1:" + servidor.getPorta() + "/ (" + dirs + ")");
+    }
+
+    private static void uso(PrintStream out) {
+        out.println("Uso: BuscaArquivosServidor --dir <diretório> [--dir <diretório>]... [--porta 8080]");
+        out.println("       [--janela ms] [--lote n] [--varreduras n] [--espera ms] [--threads n] [--sem-cache]");
+        out.println("Endpoints: GET /buscar?termo=&metodo=&modo=&limite=&dir=, /sugerir?prefixo=&limite=&dir=, /estatisticas");
+    }
+
+    // <editor-fold desc="Endpoints">
+
+    private interface Tratador {
+        String tratar(Map<String, String> parametros) throws InterruptedException;
+    }
+
+    // Erro de uso vira 400 (ou 404 para diretório), falta de vaga vira 503
+    private static final class ErroHttp extends RuntimeException {
+        final int status;
+
+        ErroHttp(int status, String mensagem) {
+            super(mensagem);
+            this.status = status;
+        }
+    }
+
+    private void responder(HttpExchange troca, Tratador tratador) throws IOException {
+        int status = 200;
+        String corpo;
+        try {
+            if (!troca.getRequestMethod().equals("GET")) throw new ErroHttp(405, "Use GET");
+            corpo = tratador.tratar(parametros(troca.getRequestURI().getRawQuery()));
+        } catch (ErroHttp e) {
+            status = e.status;
+            corpo = erro(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            status = 503;
+            troca.getResponseHeaders().set("Retry-After", "1");
+            corpo = erro(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Método, modo ou regex inválidos
+            status = 400;
+            corpo = erro(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            corpo = erro("Interrompida");
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao atender " + troca.getRequestURI() + ": " + e);
+            status = 500;
+            corpo = erro(String.valueOf(e.getMessage()));
+        }
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(bytes);
+        }
+    }
+
+    private String buscar(Map<String, String> parametros) throws InterruptedException {
+        String termo = parametros.get("termo");
+        if (termo == null) throw new ErroHttp(400, "Informe o termo");
+        String metodo = parametros.getOrDefault("metodo", "paralelo otimizado");
+        ModoComparacao modo = BuscaArquivosCli.lerModo(parametros.getOrDefault("modo", "exato"));
+        int limite = inteiro(parametros, "limite", LIMITE_PADRAO);
+        File diretorio = diretorio(parametros);
+
+        long inicio = System.nanoTime();
+        List<ResultadoBusca> resultados = agendador.buscar(diretorio, termo, metodo, modo);
+        double ms = (System.nanoTime() - inicio) / 1e6;
+
+        int mostrar = limite > 0 ? Math.min(limite, resultados.size()) : resultados.size();
+        StringBuilder sb = new StringBuilder(128 + mostrar * 96);
+        sb.append("{\"consulta\":").append(BuscaArquivosCli.textoJson(termo))
+                .append(",\"metodo\":").append(BuscaArquivosCli.textoJson(metodo))
+                .append(",\"total\":").append(resultados.size())
+                .append(",\"ms\":").append(String.format(Locale.ROOT, "%.1f", ms))
+                .append(",\"resultados\":[");
+        int i = 0;
+        for (ResultadoBusca r : resultados) {
+            if (i == mostrar) break;
+            if (i++ > 0) sb.append(',');
+            sb.append("{\"arquivo\":").append(BuscaArquivosCli.textoJson(r.getCaminhoArquivo()))
+                    .append(",\"linha\":").append(r.getLinha())
+                    .append(",\"conteudo\":").append(BuscaArquivosCli.textoJson(r.getConteudo()));
+            if (r instanceof ResultadoAproximado aproximado) sb.append(",\"distancia\":").append(aproximado.getDistancia());
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String sugerir(Map<String, String> parametros) {
+        String prefixo = parametros.get("prefixo");
+        if (prefixo == null) throw new ErroHttp(400, "Informe o prefixo");
+        int limite = inteiro(parametros, "limite", MAX_SUGESTOES);
+        List<String> sugestoes = prefixo.isBlank() ? List.of() : atualizadores.get(diretorio(parametros)).sugerir(prefixo, limite);
+        StringBuilder sb = new StringBuilder("{\"sugestoes\":[");
+        for (int i = 0; i < sugestoes.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(BuscaArquivosCli.textoJson(sugestoes.get(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String estatisticas(Map<String, String> parametros) {
+        EstatisticasBuscas buscas = EstatisticasBuscas.instancia();
+        return String.format(Locale.ROOT, "{\"consultas\":%d,\"coalescidas\":%d,\"lotes\":%d,\"consultasEmLote\":%d,"
+                        + "\"recusadas\":%d,\"varredurasEmAndamento\":%d,\"esperandoVaga\":%d,"
+                        + "\"buscas\":%d,\"buscasDoCache\":%d,\"bytesLidos\":%d,\"tempoTotalMs\":%.1f}",
+                agendador.getConsultas(), agendador.getCoalescidas(), agendador.getLotes(), agendador.getConsultasEmLote(),
+                agendador.getRecusadas(), agendador.getVarredurasEmAndamento(), agendador.getEsperandoVaga(),
+                buscas.getBuscas(), buscas.getBuscasDoCache(), buscas.getBytesLidos(), buscas.getTempoTotalMs());
+    }
+
+    // Pelo nome (ex.: dataset_g) ou pelo caminho passado no --dir; sem o parâmetro, o primeiro
+    private File diretorio(Map<String, String> parametros) {
+        String nome = parametros.get("dir");
+        if (nome == null) return diretorios.values().iterator().next();
+        File diretorio = diretorios.get(nome);
+        if (diretorio == null) {
+            for (File d : diretorios.values()) {
+                if (d.getPath().equals(nome)) diretorio = d;
+            }
+        }
+        if (diretorio == null) throw new ErroHttp(404, "Diretório desconhecido: " + nome);
+        return diretorio;
+    }
+
+    private static int inteiro(Map<String, String> parametros, String nome, int padrao) {
+        String valor = parametros.get(nome);
+        try {
+            int numero = valor == null ? padrao : Integer.parseInt(valor);
+            if (numero < 0) throw new NumberFormatException();
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new ErroHttp(400, "Valor inválido para " + nome + ": " + valor);
+        }
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) return parametros;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nome = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), StandardCharsets.UTF_8);
+            String valor = igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+            parametros.putIfAbsent(nome, valor);
+        }
+        return parametros;
+    }
+
+    private static String erro(String mensagem) {
+        return "{\"erro\":" + BuscaArquivosCli.textoJson(mensagem) + "}";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,223 @@
+package benchmark;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import service.AlgoritmoBuscaFactory;
+import service.CacheResultados;
+import service.FiltroArquivos;
+import service.PercursoArquivos;
+import strategy.BuscaTexto;
+import strategy.BuscasService;
+import strategy.CoordenadorFragmentos;
+import strategy.ModoComparacao;
+
+// Mede todos os métodos do BuscasService e os algoritmos BuscaTexto fora da interface gráfica:
+// aquecimento separado da medição, várias iterações, percentis de latência, vazão e bytes alocados.
+//
+// Uso: java --add-modules jdk.incubator.vector -Xms2g -Xmx2g -cp out benchmark.BenchmarkBuscas [--corpus a,b] [--sintetico 100m,1g,10g]
+//        [--metodos m1,m2] [--motores sequencial,boyer-moore,mapeada,vetorial] [--padroes p1,p2]
+//        [--aquecimento 3] [--iteracoes 10] [--csv resultados.csv]
+//        [--fragmentos 2,4 [--metodo-fragmentos "paralelo otimizado"]]
+//
+// --fragmentos mede também a busca fragmentada em processos trabalhadores (CoordenadorFragmentos),
+// com o mesmo método dentro de cada fragmento, para comparar com os métodos de um processo só.
+public class BenchmarkBuscas {
+
+    private static final String[] METODOS = {"Sequencial", "Boyer-Moore", "Paralelo", "Paralelo otimizado",
+            "Indexado", "Snapshot", "Mapeado", "Fork/Join", "Virtual threads", "Aproximado", "Ranqueado", "Regex"};
+    private static final String[] MOTORES = {"sequencial", "boyer-moore", "mapeada", "vetorial"};
+    // Do mais frequente ao inexistente, com tamanhos de padrão diferentes
+    private static final String[] PADROES = {"e", "Peter", "Savannah Berg", "Xyzzy Quux Inexistente"};
+
+    private static final class Medicao {
+        final long[] nanos;
+        final long bytesAlocados;
+        final int resultados;
+
+        Medicao(long[] nanos, long bytesAlocados, int resultados) {
+            this.nanos = nanos;
+            this.bytesAlocados = bytesAlocados;
+            this.resultados = resultados;
+        }
+
+        double percentilMs(double p) {
+            long[] ordenados = nanos.clone();
+            Arrays.sort(ordenados);
+            int pos = (int) Math.ceil(p / 100.0 * ordenados.length) - 1;
+            return ordenados[Math.max(0, Math.min(pos, ordenados.length - 1))] / 1e6;
+        }
+    }
+
+    private interface Operacao {
+        int executar() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opcoes = lerOpcoes(args);
+        int aquecimento = Integer.parseInt(opcoes.getOrDefault("aquecimento", "3"));
+        int iteracoes = Integer.parseInt(opcoes.getOrDefault("iteracoes", "10"));
+        String[] metodos = lista(opcoes.get("metodos"), METODOS);
+        String[] motores = lista(opcoes.get("motores"), MOTORES);
+        String[] padroes = lista(opcoes.get("padroes"), PADROES);
+        String[] fragmentos = lista(opcoes.get("fragmentos"), new String[0]);
+        String metodoFragmentos = opcoes.getOrDefault("metodo-fragmentos", "paralelo otimizado");
+
+        List<File> corpora = new ArrayList<>();
+        for (String caminho : lista(opcoes.get("corpus"), new String[]{"txt/dataset_p", "txt/dataset_g"})) {
+            corpora.add(new File(caminho));
+        }
+        for (String tamanho : lista(opcoes.get("sintetico"), new String[0])) {
+            System.out.println("Gerando corpus sintético de " + tamanho + "...");
+            corpora.add(GeradorCorpus.obter(new File("txt/dataset_g"), tamanhoEmBytes(tamanho), 42));
+        }
+
+        PrintWriter csv = opcoes.containsKey("csv") ? new PrintWriter(new FileWriter(opcoes.get("csv"))) : null;
+        if (csv != null) {
+            csv.println("corpus,bytes,padrao,tamanho_padrao,taxa_acerto,alvo,resultados,mb_s,p50_ms,p90_ms,p99_ms,max_ms,mb_alocados_op");
+        }
+        System.out.printf("%-22s %-24s %7s %-24s %9s %9s %9s %9s %9s %9s %11s%n",
+                "corpus", "padrão", "acerto", "alvo", "result.", "MB/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "MB aloc/op");
+
+        // Sem cache: cada iteração precisa varrer os arquivos de novo
+        BuscasService service = new BuscasService(null);
+        BuscasService comCache = new BuscasService(new CacheResultados());
+        for (File corpus : corpora) {
+            // Os mesmos arquivos que os métodos enxergam (a árvore inteira, pelo filtro padrão)
+            List<File> arquivos = PercursoArquivos.listar(corpus, FiltroArquivos.PADRAO);
+            if (!corpus.isDirectory()) {
+                System.err.println("Corpus inválido: " + corpus.getPath());
+                continue;
+            }
+            long bytes = 0;
+            long linhas = 0;
+            for (File arquivo : arquivos) {
+                bytes += arquivo.length();
+                linhas += contarLinhas(arquivo);
+            }
+            // Trabalhadores sem cache, como o service acima; sobem uma vez por corpus
+            List<CoordenadorFragmentos> coordenadores = new ArrayList<>();
+            for (String n : fragmentos) {
+                CoordenadorFragmentos coordenador = new CoordenadorFragmentos(corpus, Integer.parseInt(n.trim()),
+                        FiltroArquivos.PADRAO, 0, false, 0, List.of());
+                coordenadores.add(coordenador);
+                try {
+                    coordenador.iniciar();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            for (String padrao : padroes) {
+                int acertos = service.buscar(corpus, padrao, "sequencial").size();
+                double taxa = linhas == 0 ? 0 : 100.0 * acertos / linhas;
+
+                for (String metodo : metodos) {
+                    Medicao m = medir(aquecimento, iteracoes, () -> service.buscar(corpus, padrao, metodo).size());
+                    imprimir(csv, corpus, bytes, padrao, taxa, metodo, m);
+                }
+                for (CoordenadorFragmentos coordenador : coordenadores) {
+                    Medicao m = medir(aquecimento, iteracoes, () -> {
+                        try {
+                            return coordenador.buscar(padrao, metodoFragmentos, ModoComparacao.EXATO).size();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                    });
+                    imprimir(csv, corpus, bytes, padrao, taxa,
+                            "Fragmentos " + coordenador.getFragmentos() + " (" + metodoFragmentos + ")", m);
+                }
+                // Consulta repetida: a primeira chamada do aquecimento preenche o cache
+                Medicao repetida = medir(aquecimento, iteracoes, () -> comCache.buscar(corpus, padrao, "sequencial").size());
+                imprimir(csv, corpus, bytes, padrao, taxa, "Sequencial (cache)", repetida);
+                // Os algoritmos isolados: cada arquivo lido inteiro, sem deduplicação
+                for (String motor : motores) {
+                    BuscaTexto algoritmo = AlgoritmoBuscaFactory.criar(motor);
+                    Medicao m = medir(aquecimento, iteracoes, () -> {
+                        int total = 0;
+                        for (File arquivo : arquivos) total += algoritmo.buscarEmArquivo(arquivo, padrao).size();
+                        return total;
+                    });
+                    imprimir(csv, corpus, bytes, padrao, taxa, "BuscaTexto:" + motor, m);
+                }
+            }
+            for (CoordenadorFragmentos coordenador : coordenadores) coordenador.close();
+        }
+        if (csv != null) csv.close();
+        System.exit(0);
+    }
+
+    private static Medicao medir(int aquecimento, int iteracoes, Operacao operacao) throws IOException {
+        for (int i = 0; i < aquecimento; i++) operacao.executar();
+        // Cada medição começa com o heap limpo para não pagar o lixo da anterior
+        System.gc();
+
+        long[] nanos = new long[iteracoes];
+        long alocadoAntes = bytesAlocados();
+        int resultados = 0;
+        for (int i = 0; i < iteracoes; i++) {
+            long inicio = System.nanoTime();
+            resultados = operacao.executar();
+            nanos[i] = System.nanoTime() - inicio;
+        }
+        long alocadoDepois = bytesAlocados();
+        long porOperacao = alocadoAntes < 0 ? -1 : (alocadoDepois - alocadoAntes) / Math.max(1, iteracoes);
+        return new Medicao(nanos, porOperacao, resultados);
+    }
+
+    // Soma das alocações de todas as threads da JVM (inclui os pools das buscas paralelas)
+    private static long bytesAlocados() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            return sun.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static void imprimir(PrintWriter csv, File corpus, long bytes, String padrao, double taxa, String alvo, Medicao m) {
+        double p50 = m.percentilMs(50);
+        double mbPorSegundo = p50 > 0 ? (bytes / (1024.0 * 1024.0)) / (p50 / 1000.0) : 0;
+        double mbAlocados = m.bytesAlocados < 0 ? -1 : m.bytesAlocados / (1024.0 * 1024.0);
+        System.out.printf(Locale.ROOT, "%-22s %-24s %6.2f%% %-24s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %11.1f%n",
+                corpus.getName(), padrao, taxa, alvo, m.resultados, mbPorSegundo,
+                p50, m.percentilMs(90), m.percentilMs(99), m.percentilMs(100), mbAlocados);
+        if (csv != null) {
+            csv.printf(Locale.ROOT, "%s,%d,\"%s\",%d,%.4f,%s,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.2f%n",
+                    corpus.getPath(), bytes, padrao, padrao.length(), taxa, alvo, m.resultados, mbPorSegundo,
+                    p50, m.percentilMs(90), m.percentilMs(99), m.percentilMs(100), mbAlocados);
+        }
+    }
+
+    private static long contarLinhas(File arquivo) throws IOException {
+        long linhas = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(arquivo), StandardCharsets.UTF_8))) {
+            while (reader.readLine() != null) linhas++;
+        }
+        return linhas;
+    }
+
+    private static Map<String, String> lerOpcoes(String[] args) {
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Opção inválida: " + args[i]);
+            opcoes.put(args[i].substring(2), args[i + 1]);
+        }
+        return opcoes;
+    }
+
+    private static String[] lista(String valor, String[] padrao) {
+        return valor == null ? padrao : valor.split(",");
+    }
+
+    private static long tamanhoEmBytes(String texto) {
+        String t = texto.trim().toLowerCase();
+        long multiplicador = 1;
+        if (t.endsWith("k")) multiplicador = 1024L;
+        else if (t.endsWith("m")) multiplicador = 1024L * 1024;
+        else if (t.endsWith("g")) multiplicador = 1024L * 1024 * 1024;
+        if (multiplicador > 1) t = t.substring(0, t.length() - 1);
+        return Long.parseLong(t) * multiplicador;
+    }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.BuscaArquivosServidor;
+import strategy.AgendadorBuscas;
+import strategy.BuscasService;
+
+// Teste de carga do servidor de buscas: N clientes simultâneos (threads virtuais, um HttpClient
+// compartilhado) disparam consultas sem pausa e a latência de cada requisição é medida do lado do
+// cliente. Sem --url sobe o servidor no próprio processo, numa porta livre e sem o cache de resultados
+// (senão as repetições medem só o cache), uma vez com lotes e outra sem, para comparar.
+//
+// Uso: java --add-modules jdk.incubator.vector -cp out benchmark.CargaServidor [--url http://127.0.0.1:8080]
+//        [--dir txt/dataset_g] [--clientes 1,8,32] [--requisicoes 200] [--metodo "paralelo otimizado"]
+//        [--padroes p1,p2] [--janela 5] [--varreduras 4] [--csv carga.csv]
+public class CargaServidor {
+
+    // Repetidos de propósito: clientes simultâneos pedindo o mesmo termo exercitam a coalescência
+    private static final String[] PADROES = {"Peter", "Savannah Berg", "Mr. ", "Jr.", "n H", "Stein DDS", "Xyzzy", "ter St"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Opção inválida: " + args[i]);
+            opcoes.put(args[i].substring(2), args[i + 1]);
+        }
+        File diretorio = new File(opcoes.getOrDefault("dir", "txt/dataset_g"));
+        String metodo = opcoes.getOrDefault("metodo", "paralelo otimizado");
+        int requisicoes = Integer.parseInt(opcoes.getOrDefault("requisicoes", "200"));
+        String[] padroes = opcoes.containsKey("padroes") ? opcoes.get("padroes").split(",") : PADROES;
+        List<Integer> clientes = new ArrayList<>();
+        for (String n : opcoes.getOrDefault("clientes", "1,8,32").split(",")) clientes.add(Integer.parseInt(n.trim()));
+        PrintWriter csv = opcoes.containsKey("csv") ? new PrintWriter(new FileWriter(opcoes.get("csv"))) : null;
+        if (csv != null) csv.println("servidor,clientes,requisicoes,recusadas,req_por_s,p50_ms,p90_ms,p99_ms,max_ms");
+
+        System.out.printf("%-14s %8s %11s %9s %9s %9s %9s %9s %9s%n",
+                "servidor", "clientes", "requisições", "recusadas", "req/s", "p50 ms", "p90 ms", "p99 ms", "máx ms");
+        if (opcoes.containsKey("url")) {
+            for (int n : clientes) medir(opcoes.get("url"), "externo", n, requisicoes, diretorio, metodo, padroes, csv);
+        } else {
+            long janela = Long.parseLong(opcoes.getOrDefault("janela", "5"));
+            int varreduras = Integer.parseInt(opcoes.getOrDefault("varreduras",
+                    String.valueOf(Math.max(2, Runtime.getRuntime().availableProcessors() / 2))));
+            for (long janelaMs : new long[]{janela, 0}) {
+                AgendadorBuscas agendador = new AgendadorBuscas(new BuscasService(null), janelaMs, 64, varreduras, 10_000);
+                BuscaArquivosServidor servidor = new BuscaArquivosServidor(List.of(diretorio), agendador, 0);
+                servidor.iniciar();
+                String rotulo = janelaMs > 0 ? "lotes " + janelaMs + " ms" : "sem lotes";
+                try {
+                    String url = "http://127.0.0.1:" + servidor.getPorta();
+                    // Aquecimento: JIT, índices e páginas do dataset
+                    medir(url, null, 4, 4 * padroes.length, diretorio, metodo, padroes, null);
+                    for (int n : clientes) medir(url, rotulo, n, requisicoes, diretorio, metodo, padroes, csv);
+                    System.out.printf("  %s: %d consultas, %d coalescidas, %d lotes com %d consultas, %d recusadas%n", rotulo,
+                            agendador.getConsultas(), agendador.getCoalescidas(), agendador.getLotes(),
+                            agendador.getConsultasEmLote(), agendador.getRecusadas());
+                } finally {
+                    servidor.parar();
+                }
+            }
+        }
+        if (csv != null) csv.close();
+        System.exit(0);
+    }
+
+    // rotulo null: só aquece, sem imprimir
+    private static void medir(String url, String rotulo, int clientes, int requisicoes, File diretorio, String metodo,
+                              String[] padroes, PrintWriter csv) throws Exception {
+        long[] nanos = new long[requisicoes];
+        AtomicInteger proxima = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        long inicio = System.nanoTime();
+        try (HttpClient http = HttpClient.newHttpClient();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int c = 0; c < clientes; c++) {
+                tarefas.add(executor.submit(() -> {
+                    int i;
+                    while ((i = proxima.getAndIncrement()) < requisicoes) {
+                        String termo = padroes[i % padroes.length];
+                        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(url + "/buscar?limite=10"
+                                + "&dir=" + codificar(diretorio.getName())
+                                + "&metodo=" + codificar(metodo) + "&termo=" + codificar(termo))).build();
+                        long antes = System.nanoTime();
+                        HttpResponse<String> resposta = http.send(requisicao, HttpResponse.BodyHandlers.ofString());
+                        nanos[i] = System.nanoTime() - antes;
+                        if (resposta.statusCode() == 503) recusadas.incrementAndGet();
+                        else if (resposta.statusCode() != 200) throw new IOException("HTTP " + resposta.statusCode() + ": " + resposta.body());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) tarefa.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        if (rotulo == null) return;
+
+        Arrays.sort(nanos);
+        double p50 = percentilMs(nanos, 50), p90 = percentilMs(nanos, 90), p99 = percentilMs(nanos, 99), max = percentilMs(nanos, 100);
+        System.out.printf(Locale.ROOT, "%-14s %8d %11d %9d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                rotulo, clientes, requisicoes, recusadas.get(), requisicoes / segundos, p50, p90, p99, max);
+        if (csv != null) {
+            csv.printf(Locale.ROOT, "%s,%d,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f%n",
+                    rotulo, clientes, requisicoes, recusadas.get(), requisicoes / segundos, p50, p90, p99, max);
+        }
+    }
+
+    // Mesmo critério do BenchmarkBuscas (vetor já ordenado)
+    private static double percentilMs(long[] ordenados, double p) {
+        int pos = (int) Math.ceil(p / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(pos, ordenados.length - 1))] / 1e6;
+    }
+
+    private static String codificar(String texto) {
+        return URLEncoder.encode(texto, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Gera corpora sintéticos no formato dos datasets (um nome por linha), com conteúdo
+// diferente em cada arquivo para a deduplicação não mascarar o custo da varredura.
+public final class GeradorCorpus {
+
+    private static final long TAMANHO_ARQUIVO = 64L * 1024 * 1024;
+
+    private GeradorCorpus() {
+    }
+
+    // Reaproveita o diretório se ele já tiver sido gerado com o mesmo tamanho
+    public static File obter(File base, long bytes, long semente) throws IOException {
+        File destino = new File(System.getProperty("java.io.tmpdir"), "busca-sintetico-" + bytes + "-" + semente);
+        File marcador = new File(destino, ".completo");
+        if (marcador.isFile()) return destino;
+
+        destino.mkdirs();
+        List<String> primeiros = new ArrayList<>();
+        List<String> ultimos = new ArrayList<>();
+        carregarPartes(base, primeiros, ultimos);
+
+        Random random = new Random(semente);
+        long escritos = 0;
+        int indice = 0;
+        while (escritos < bytes) {
+            File arquivo = new File(destino, String.format("s%05d.txt", indice++));
+            long limite = Math.min(TAMANHO_ARQUIVO, bytes - escritos);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(arquivo), StandardCharsets.UTF_8), 1 << 16)) {
+                long noArquivo = 0;
+                while (noArquivo < limite) {
+                    String linha = primeiros.get(random.nextInt(primeiros.size())) + " "
+                            + ultimos.get(random.nextInt(ultimos.size())) + "\n";
+                    out.write(linha);
+                    noArquivo += linha.length();
+                }
+                escritos += noArquivo;
+            }
+        }
+        Files.createFile(marcador.toPath());
+        return destino;
+    }
+
+    private static void carregarPartes(File base, List<String> primeiros, List<String> ultimos) throws IOException {
+        File[] arquivos = base.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
+        if (arquivos == null) throw new IOException("Diretório base inválido: " + base.getPath());
+        for (File arquivo : arquivos) {
+            for (String linha : Files.readAllLines(arquivo.toPath(), StandardCharsets.UTF_8)) {
+                int espaco = linha.indexOf(' ');
+                if (espaco <= 0) continue;
+                primeiros.add(linha.substring(0, espaco));
+                ultimos.add(linha.substring(espaco + 1));
+            }
+        }
+        if (primeiros.isEmpty()) throw new IOException("Nenhum nome encontrado em " + base.getPath());
+    }
+}
@@ -0,0 +1,25 @@
+package model;
+
+// Acerto da busca aproximada: guarda a distância de edição entre o termo e o trecho da linha
+public class ResultadoAproximado extends ResultadoBusca {
+    private final int distancia;
+
+    public ResultadoAproximado(String caminhoArquivo, int linha, String conteudo, int distancia) {
+        super(caminhoArquivo, linha, conteudo);
+        this.distancia = distancia;
+    }
+
+    public int getDistancia() {
+        return distancia;
+    }
+
+    @Override
+    public ResultadoBusca comCaminho(String caminho) {
+        return new ResultadoAproximado(caminho, getLinha(), getConteudo(), distancia);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Encontrado em %s (linha %d) [distância %d]: %s", getCaminhoArquivo(), getLinha(), distancia, getConteudo());
+    }
+}
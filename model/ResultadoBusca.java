@@ -4,15 +4,47 @@ public class ResultadoBusca {
     private final String caminhoArquivo;
     private final int linha;
     private final String conteudo;
+    // Preenchido nas buscas com vários termos: qual deles casou com a linha
+    private final String padrao;
 
     public ResultadoBusca(String caminhoArquivo, int linha, String conteudo) {
+        this(caminhoArquivo, linha, conteudo, null);
+    }
+
+    public ResultadoBusca(String caminhoArquivo, int linha, String conteudo, String padrao) {
         this.caminhoArquivo = caminhoArquivo;
         this.linha = linha;
         this.conteudo = conteudo;
+        this.padrao = padrao;
+    }
+
+    public String getCaminhoArquivo() {
+        return caminhoArquivo;
+    }
+
+    public int getLinha() {
+        return linha;
+    }
+
+    // Subclasses podem carregar o texto só quando pedido (ver ResultadosCompactos)
+    public String getConteudo() {
+        return conteudo;
+    }
+
+    public String getPadrao() {
+        return padrao;
+    }
+
+    // Mesmo acerto atribuído a outro arquivo (ex.: uma cópia idêntica); subclasses mantêm os seus dados
+    public ResultadoBusca comCaminho(String caminho) {
+        return new ResultadoBusca(caminho, linha, getConteudo(), padrao);
     }
 
     @Override
     public String toString() {
-        return String.format("Encontrado em %s (linha %d): %s", caminhoArquivo, linha, conteudo);
+        if (padrao != null) {
+            return String.format("Encontrado em %s (linha %d) [%s]: %s", caminhoArquivo, linha, padrao, getConteudo());
+        }
+        return String.format("Encontrado em %s (linha %d): %s", caminhoArquivo, linha, getConteudo());
     }
 }
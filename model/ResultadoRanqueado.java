@@ -0,0 +1,26 @@
+package model;
+
+// Acerto da busca ranqueada: a parte inteira da pontuação é o nível do acerto (3 linha inteira,
+// 2 início de token, 1 trecho) e a fracionária desempata dentro do nível
+public class ResultadoRanqueado extends ResultadoBusca {
+    private final double pontuacao;
+
+    public ResultadoRanqueado(String caminhoArquivo, int linha, String conteudo, double pontuacao) {
+        super(caminhoArquivo, linha, conteudo);
+        this.pontuacao = pontuacao;
+    }
+
+    public double getPontuacao() {
+        return pontuacao;
+    }
+
+    @Override
+    public ResultadoBusca comCaminho(String caminho) {
+        return new ResultadoRanqueado(caminho, getLinha(), getConteudo(), pontuacao);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Encontrado em %s (linha %d) [relevância %.3f]: %s", getCaminhoArquivo(), getLinha(), pontuacao, getConteudo());
+    }
+}
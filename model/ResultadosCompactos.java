@@ -0,0 +1,251 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+// Lista de resultados guardada em arrays primitivos: por acerto só o número da linha e a posição
+// (em bytes) do início dela no arquivo, uns 12 bytes. Os acertos de um mesmo arquivo ficam juntos
+// num trecho, que guarda o caminho uma vez só. Cada get() devolve um ResultadoBusca que lê o texto
+// da linha do arquivo quando getConteudo() é chamado; percorrer a lista lê cada arquivo uma vez.
+public class ResultadosCompactos extends AbstractList<ResultadoBusca> implements RandomAccess {
+
+    private static final int LEITURA = 64 * 1024;
+    // Linhas lidas por abertura de arquivo no iterator()
+    private static final int LOTE = 1024;
+
+    // Trechos: caminho mostrado, arquivo de onde as linhas são lidas e o primeiro acerto de cada um
+    private String[] caminhos = new String[4];
+    private File[] arquivos = new File[4];
+    private long[] tamanhos = new long[4];
+    private long[] modificados = new long[4];
+    private int[] primeiroAcerto = new int[4];
+    private int trechos;
+
+    private int[] linhas = new int[16];
+    private long[] posicoes = new long[16];
+    private int tamanho;
+    // Depois de congelar() a lista é só leitura: pode ser entregue a várias threads (ex.: pelo cache)
+    private volatile boolean congelada;
+
+    // ResultadoBusca cujo texto só é lido na primeira chamada de getConteudo()
+    private static final class Visao extends ResultadoBusca {
+        private final ResultadosCompactos origem;
+        private final int trecho;
+        private final long posicao;
+        private String conteudo;
+
+        Visao(ResultadosCompactos origem, int trecho, int linha, long posicao, String conteudo) {
+            super(origem.caminhos[trecho], linha, null);
+            this.origem = origem;
+            this.trecho = trecho;
+            this.posicao = posicao;
+            this.conteudo = conteudo;
+        }
+
+        @Override
+        public String getConteudo() {
+            if (conteudo == null) {
+                try (RandomAccessFile arquivo = origem.abrir(trecho)) {
+                    conteudo = new LeitorLinhas(arquivo).linhaEm(posicao);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Erro ao ler: " + getCaminhoArquivo(), e);
+                }
+            }
+            return conteudo;
+        }
+    }
+
+    // Lê linhas em posições crescentes do mesmo arquivo reaproveitando um buffer
+    private static final class LeitorLinhas {
+        private final RandomAccessFile arquivo;
+        private byte[] buffer = new byte[LEITURA];
+        private long inicioBuffer;
+        private int cheio;
+
+        LeitorLinhas(RandomAccessFile arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        String linhaEm(long posicao) throws IOException {
+            int fim;
+            while (true) {
+                if (posicao < inicioBuffer || posicao >= inicioBuffer + cheio) carregar(posicao);
+                int inicio = (int) (posicao - inicioBuffer);
+                fim = inicio;
+                while (fim < cheio && buffer[fim] != '\n' && buffer[fim] != '\r') fim++;
+                // Achou o fim da linha, ou o arquivo acabou
+                if (fim < cheio || inicioBuffer + cheio >= arquivo.length()) {
+                    return new String(buffer, inicio, fim - inicio, StandardCharsets.UTF_8);
+                }
+                if (inicio == 0) buffer = Arrays.copyOf(buffer, buffer.length * 2);  // linha maior que o buffer
+                carregar(posicao);
+            }
+        }
+
+        private void carregar(long posicao) throws IOException {
+            arquivo.seek(posicao);
+            inicioBuffer = posicao;
+            cheio = 0;
+            int lidos;
+            while (cheio < buffer.length && (lidos = arquivo.read(buffer, cheio, buffer.length - cheio)) > 0) {
+                cheio += lidos;
+            }
+        }
+    }
+
+    // Começa o trecho de um arquivo; os próximos adicionar() pertencem a ele
+    public void novoArquivo(String caminho, File arquivo) {
+        conferirAberta();
+        if (trechos == caminhos.length) crescerTrechos();
+        caminhos[trechos] = caminho;
+        arquivos[trechos] = arquivo;
+        tamanhos[trechos] = arquivo.length();
+        modificados[trechos] = arquivo.lastModified();
+        primeiroAcerto[trechos] = tamanho;
+        trechos++;
+    }
+
+    public void adicionar(int linha, long posicao) {
+        conferirAberta();
+        if (trechos == 0) throw new IllegalStateException("novoArquivo() antes de adicionar()");
+        if (tamanho == linhas.length) {
+            int capacidade = linhas.length + (linhas.length >> 1);
+            linhas = Arrays.copyOf(linhas, capacidade);
+            posicoes = Arrays.copyOf(posicoes, capacidade);
+        }
+        linhas[tamanho] = linha;
+        posicoes[tamanho] = posicao;
+        tamanho++;
+    }
+
+    // Copia os acertos de outra lista somando 'somaLinhas' aos números de linha. Com 'caminho'
+    // diferente de null, os trechos copiados passam a mostrar esse caminho (ex.: cópias idênticas).
+    public void anexar(ResultadosCompactos origem, String caminho, int somaLinhas) {
+        conferirAberta();
+        for (int t = 0; t < origem.trechos; t++) {
+            int de = origem.primeiroAcerto[t];
+            int ate = origem.fimDoTrecho(t);
+            if (de == ate) continue;
+            if (trechos == caminhos.length) crescerTrechos();
+            caminhos[trechos] = caminho != null ? caminho : origem.caminhos[t];
+            arquivos[trechos] = origem.arquivos[t];
+            tamanhos[trechos] = origem.tamanhos[t];
+            modificados[trechos] = origem.modificados[t];
+            primeiroAcerto[trechos] = tamanho;
+            trechos++;
+            for (int i = de; i < ate; i++) {
+                adicionar(origem.linhas[i] + somaLinhas, origem.posicoes[i]);
+            }
+        }
+    }
+
+    // Fecha a lista para novos acertos; novoArquivo()/adicionar()/anexar() passam a falhar
+    public ResultadosCompactos congelar() {
+        congelada = true;
+        return this;
+    }
+
+    public boolean isCongelada() {
+        return congelada;
+    }
+
+    private void conferirAberta() {
+        if (congelada) throw new UnsupportedOperationException("Lista de resultados congelada");
+    }
+
+    @Override
+    public ResultadoBusca get(int indice) {
+        if (indice < 0 || indice >= tamanho) throw new IndexOutOfBoundsException(indice);
+        return new Visao(this, trechoDe(indice), linhas[indice], posicoes[indice], null);
+    }
+
+    @Override
+    public int size() {
+        return tamanho;
+    }
+
+    // Percorre em ordem lendo as linhas em lotes de até LOTE acertos do mesmo trecho: cada lote abre o
+    // arquivo, lê as suas linhas e fecha antes de devolver a primeira. Quem para no meio (limite de
+    // resultados, cliente que desistiu) não deixa arquivo aberto.
+    @Override
+    public Iterator<ResultadoBusca> iterator() {
+        return new Iterator<>() {
+            private int proximo;
+            private int trecho = -1;
+            // Linhas lidas para os acertos [inicioLote, inicioLote + lote.length)
+            private String[] lote = new String[0];
+            private int inicioLote;
+
+            @Override
+            public boolean hasNext() {
+                return proximo < tamanho;
+            }
+
+            @Override
+            public ResultadoBusca next() {
+                if (proximo >= tamanho) throw new NoSuchElementException();
+                int indice = proximo++;
+                while (trecho < 0 || indice >= fimDoTrecho(trecho)) trecho++;
+                if (indice - inicioLote >= lote.length || indice < inicioLote) lerLote(indice);
+                return new Visao(ResultadosCompactos.this, trecho, linhas[indice], posicoes[indice], lote[indice - inicioLote]);
+            }
+
+            private void lerLote(int indice) {
+                int ate = Math.min(fimDoTrecho(trecho), indice + LOTE);
+                String[] lidas = new String[ate - indice];
+                try (RandomAccessFile arquivo = abrir(trecho)) {
+                    LeitorLinhas leitor = new LeitorLinhas(arquivo);
+                    for (int i = 0; i < lidas.length; i++) lidas[i] = leitor.linhaEm(posicoes[indice + i]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Erro ao ler: " + caminhos[trecho], e);
+                }
+                lote = lidas;
+                inicioLote = indice;
+            }
+        };
+    }
+
+    // Memória ocupada pelos arrays, para quem precisa limitar o total guardado
+    public long getBytesEstimados() {
+        return 64L + linhas.length * 12L + caminhos.length * 48L;
+    }
+
+    private RandomAccessFile abrir(int trecho) throws IOException {
+        File arquivo = arquivos[trecho];
+        // As linhas são lidas depois da busca: se o arquivo mudou, as posições não valem mais
+        if (arquivo.length() != tamanhos[trecho] || arquivo.lastModified() != modificados[trecho]) {
+            throw new IOException("Arquivo alterado depois da busca: " + arquivo.getPath());
+        }
+        return new RandomAccessFile(arquivo, "r");
+    }
+
+    private int fimDoTrecho(int trecho) {
+        return trecho + 1 < trechos ? primeiroAcerto[trecho + 1] : tamanho;
+    }
+
+    // Último trecho que começa em um índice <= 'indice'
+    private int trechoDe(int indice) {
+        int pos = Arrays.binarySearch(primeiroAcerto, 0, trechos, indice);
+        if (pos < 0) return -pos - 2;
+        // Trechos vazios começam no mesmo índice: fica com o último deles
+        while (pos + 1 < trechos && primeiroAcerto[pos + 1] == indice) pos++;
+        return pos;
+    }
+
+    private void crescerTrechos() {
+        int capacidade = caminhos.length * 2;
+        caminhos = Arrays.copyOf(caminhos, capacidade);
+        arquivos = Arrays.copyOf(arquivos, capacidade);
+        tamanhos = Arrays.copyOf(tamanhos, capacidade);
+        modificados = Arrays.copyOf(modificados, capacidade);
+        primeiroAcerto = Arrays.copyOf(primeiroAcerto, capacidade);
+    }
+}
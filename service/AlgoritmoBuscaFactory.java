@@ -1,14 +1,22 @@
 package service;
 
+import strategy.BuscaAproximada;
 import strategy.BuscaBoyerMoore;
+import strategy.BuscaMapeada;
+import strategy.BuscaRegex;
 import strategy.BuscaSequencial;
 import strategy.BuscaTexto;
+import strategy.BuscaVetorial;
 
 public class AlgoritmoBuscaFactory {
     public static BuscaTexto criar(String tipo) {
         return switch (tipo.toLowerCase()) {
             case "boyer-moore" -> new BuscaBoyerMoore();
             case "sequencial" -> new BuscaSequencial();
+            case "mapeada" -> new BuscaMapeada(false);
+            case "vetorial" -> new BuscaVetorial(false);
+            case "aproximada" -> new BuscaAproximada();
+            case "regex" -> new BuscaRegex();
             default -> throw new IllegalArgumentException("Tipo de busca inválido: " + tipo);
         };
     }
@@ -0,0 +1,102 @@
+package service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// Mantém o índice invertido e o snapshot do autocomplete do dataset em dia sem esperar uma consulta:
+// quando o VigiaDiretorios avisa que a árvore mudou, pede os dois de novo, e cada um reprocessa só os
+// arquivos que mudaram (o mesmo caminho das consultas, então nada é aplicado duas vezes).
+// O autocomplete começa pelo último snapshot gravado, sem ler o dataset; a conferência com a árvore
+// (e a gravação de um delta, se algo mudou) acontece na thread do atualizador.
+public class AtualizadorIndice {
+
+    // Espera eventos "assentarem" antes de processar, sem passar do atraso máximo
+    private static final long JANELA_MS = 200;
+    private static final long ATRASO_MAXIMO_MS = 1000;
+    // Sem vigia (limite de observações, diretório que sumiu), tenta observar de novo a cada intervalo
+    private static final long INTERVALO_SEM_VIGIA_MS = 5_000;
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+
+    private Thread thread;
+    private volatile boolean ativo;
+    private volatile IndiceInvertido indice;
+    private volatile SnapshotCorpus snapshot;
+
+    public AtualizadorIndice(File diretorio) {
+        this(diretorio, FiltroArquivos.PADRAO);
+    }
+
+    public AtualizadorIndice(File diretorio, FiltroArquivos filtro) {
+        this.diretorio = diretorio;
+        this.filtro = filtro;
+    }
+
+    // Null até existir um snapshot gravado; trocado inteiro a cada mudança no dataset
+    public SnapshotCorpus getSnapshot() {
+        return snapshot;
+    }
+
+    // Seguro para consulta em outras threads; sem snapshot ainda, nenhuma sugestão
+    public List<String> sugerir(String prefixo, int limite) {
+        SnapshotCorpus atual = snapshot;
+        return atual == null ? new ArrayList<>() : atual.sugerir(prefixo, limite);
+    }
+
+    public IndiceInvertido getIndice() {
+        return indice;
+    }
+
+    public void iniciar() {
+        snapshot = SnapshotCorpus.ultimo(diretorio, filtro);
+
+        ativo = true;
+        thread = new Thread(this::executar, "atualizador-indice-" + diretorio.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void parar() {
+        ativo = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    private void executar() {
+        try {
+            // A versão antes de atualizar: o que mudar durante a atualização dispara a próxima
+            long versao = VigiaDiretorios.versao(diretorio);
+            atualizar();
+            while (ativo) {
+                long atual = VigiaDiretorios.esperarMudanca(diretorio, versao, INTERVALO_SEM_VIGIA_MS);
+                if (atual < 0) {
+                    Thread.sleep(INTERVALO_SEM_VIGIA_MS);
+                    atual = VigiaDiretorios.versao(diretorio);
+                    if (atual < 0) continue;
+                }
+                if (atual == versao) continue;
+
+                long limite = System.currentTimeMillis() + ATRASO_MAXIMO_MS;
+                long restante;
+                while ((restante = limite - System.currentTimeMillis()) > 0) {
+                    long seguinte = VigiaDiretorios.esperarMudanca(diretorio, atual, Math.min(JANELA_MS, restante));
+                    if (seguinte == atual || seguinte < 0) break;
+                    atual = seguinte;
+                }
+                versao = atual;
+                atualizar();
+            }
+        } catch (InterruptedException e) {
+            // parar()
+        }
+    }
+
+    // O índice reindexa só os arquivos citados pelo vigia; o snapshot grava um delta só com eles
+    // (a base é regravada em segundo plano)
+    private void atualizar() {
+        indice = IndiceInvertido.obter(diretorio, filtro);
+        SnapshotCorpus atual = SnapshotCorpus.obter(diretorio, filtro);
+        if (atual != null) snapshot = atual;
+    }
+}
@@ -2,44 +2,56 @@ package service;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 import model.ResultadoBusca;
 import strategy.BuscaTexto;
+import strategy.PadraoCompilado;
 
 public class BuscaArquivoService {
 
+    // Arquivos já listados esperando a leitura
+    private static final int CAPACIDADE_FILA = 256;
+
     private final BuscaTexto algoritmo;
+    private final FiltroArquivos filtro;
 
     public BuscaArquivoService(BuscaTexto algoritmo) {
+        this(algoritmo, FiltroArquivos.PADRAO);
+    }
+
+    public BuscaArquivoService(BuscaTexto algoritmo, FiltroArquivos filtro) {
         this.algoritmo = algoritmo;
+        this.filtro = filtro;
     }
 
     // Método para autocomplete
     public Set<String> carregarNomesDoDiretorio(File diretorio) {
         Set<String> nomes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        carregarRecursivo(diretorio, nomes);
+        carregarRecursivo(diretorio, nomes::add);
         return nomes;
     }
 
-    private void carregarRecursivo(File dir, Set<String> nomes) {
-        File[] arquivos = dir.listFiles();
-        if (arquivos == null) return;
-
-        for (File arquivo : arquivos) {
-            if (arquivo.isDirectory()) {
-                carregarRecursivo(arquivo, nomes);
-            } else if (arquivo.getName().endsWith(".txt")) {
+    // Lê cada arquivo assim que o percurso o encontra, sem esperar a árvore inteira ser listada
+    private void carregarRecursivo(File dir, Consumer<String> nomes) {
+        PercursoArquivos.Fila fila = PercursoArquivos.percorrer(dir, filtro, CAPACIDADE_FILA);
+        try {
+            File arquivo;
+            while ((arquivo = fila.proximo()) != null) {
                 try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
                     String linha;
                     while ((linha = reader.readLine()) != null) {
                         linha = linha.trim();
                         if (!linha.isBlank()) {
-                            nomes.add(linha); // adiciona a linha inteira
+                            nomes.accept(linha); // adiciona a linha inteira
                         }
                     }
                 } catch (IOException e) {
                     System.out.println("Erro ao ler arquivo: " + arquivo.getPath());
                 }
             }
+        } catch (InterruptedException e) {
+            fila.cancelar();
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -47,31 +59,40 @@ public class BuscaArquivoService {
     // Métodos de busca já existentes
     // ==============================
     public List<ResultadoBusca> buscarEmDiretorio(File diretorio, String termo) {
-        List<ResultadoBusca> resultados = new ArrayList<>();
-        buscarRecursivo(diretorio, termo, resultados);
-        return resultados;
+        return buscarRecursivo(diretorio, algoritmo.compilar(termo));
     }
 
-    private void buscarRecursivo(File dir, String termo, List<ResultadoBusca> resultados) {
-        File[] arquivos = dir.listFiles();
-        if (arquivos == null) return;
-
-        for (File arquivo : arquivos) {
-            if (arquivo.isDirectory()) {
-                buscarRecursivo(arquivo, termo, resultados);
-            } else if (arquivo.getName().endsWith(".txt")) {
-                lerArquivo(arquivo, termo, resultados);
+    // Lê enquanto a árvore é listada; no fim junta os resultados na ordem do percurso
+    private List<ResultadoBusca> buscarRecursivo(File dir, PadraoCompilado padrao) {
+        PercursoArquivos.Fila fila = PercursoArquivos.percorrer(dir, filtro, CAPACIDADE_FILA);
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        try {
+            File arquivo;
+            while ((arquivo = fila.proximo()) != null) {
+                List<ResultadoBusca> doArquivo = new ArrayList<>();
+                lerArquivo(arquivo, padrao, doArquivo);
+                if (!doArquivo.isEmpty()) porArquivo.put(arquivo, doArquivo);
             }
+        } catch (InterruptedException e) {
+            fila.cancelar();
+            Thread.currentThread().interrupt();
         }
+
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        for (File arquivo : fila.ordem()) {
+            List<ResultadoBusca> doArquivo = porArquivo.get(arquivo);
+            if (doArquivo != null) resultados.addAll(doArquivo);
+        }
+        return resultados;
     }
 
-    private void lerArquivo(File arquivo, String termo, List<ResultadoBusca> resultados) {
+    private void lerArquivo(File arquivo, PadraoCompilado padrao, List<ResultadoBusca> resultados) {
         try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
             String linha;
             int numeroLinha = 1;
 
             while ((linha = reader.readLine()) != null) {
-                if (algoritmo.contem(linha, termo)) {
+                if (padrao.contem(linha)) {
                     resultados.add(new ResultadoBusca(arquivo.getPath(), numeroLinha, linha.trim()));
                 }
                 numeroLinha++;
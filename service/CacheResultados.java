@@ -0,0 +1,278 @@
+package service;
+
+import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import model.ResultadoBusca;
+import model.ResultadosCompactos;
+import strategy.ModoComparacao;
+
+// Guarda os resultados das últimas buscas por (diretório, filtro, termo, método, modo de comparação), do
+// menos para o mais usado (LRU), limitado em entradas e em bytes estimados. Cada entrada lembra a versão
+// da árvore no VigiaDiretorios e é descartada quando algum arquivo muda: um acerto não lista a árvore.
+// Sem observação possível, a versão volta a ser o tamanho e a data de modificação de cada arquivo.
+public class CacheResultados {
+
+    public static final int MAX_ENTRADAS_PADRAO = 256;
+    public static final long MAX_BYTES_PADRAO = 64L * 1024 * 1024;
+
+    private final int maxEntradas;
+    private final long maxBytes;
+    // accessOrder = true: cada get() move a entrada para o fim, o mais antigo fica na frente
+    private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private final AtomicLong invalidacoes = new AtomicLong();
+    private final AtomicLong descartes = new AtomicLong();
+
+    private static final class Chave {
+        final String diretorio;
+        final FiltroArquivos filtro;
+        final String termo;
+        final String metodo;
+        final ModoComparacao modo;
+
+        Chave(File diretorio, FiltroArquivos filtro, String termo, String metodo, ModoComparacao modo) {
+            this.diretorio = diretorio.getAbsolutePath();
+            this.filtro = filtro;
+            this.termo = termo;
+            this.metodo = metodo.toLowerCase();
+            this.modo = modo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Chave c)) return false;
+            return diretorio.equals(c.diretorio) && filtro.equals(c.filtro) && termo.equals(c.termo)
+                    && metodo.equals(c.metodo) && modo == c.modo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(diretorio, filtro, termo, metodo, modo);
+        }
+    }
+
+    // Estado da árvore num dado momento: a versão do VigiaDiretorios ou, sem ela, o caminho relativo,
+    // o tamanho e a data de modificação de cada arquivo
+    public static final class Versao {
+        private final long marca;
+        private final String[] nomes;
+        private final long[] tamanhos;
+        private final long[] modificados;
+
+        private Versao(long marca, String[] nomes, long[] tamanhos, long[] modificados) {
+            this.marca = marca;
+            this.nomes = nomes;
+            this.tamanhos = tamanhos;
+            this.modificados = modificados;
+        }
+
+        boolean mesma(Versao outra) {
+            if (outra == null) return false;
+            if (marca >= 0 || outra.marca >= 0) return marca == outra.marca;
+            return Arrays.equals(nomes, outra.nomes) && Arrays.equals(tamanhos, outra.tamanhos)
+                    && Arrays.equals(modificados, outra.modificados);
+        }
+    }
+
+    private static final class Entrada {
+        final List<ResultadoBusca> resultados;
+        final Versao versao;
+        // false: busca interrompida ou limitada, 'resultados' são só os primeiros encontrados
+        final boolean completa;
+        final long bytes;
+
+        Entrada(List<ResultadoBusca> resultados, Versao versao, boolean completa) {
+            this.resultados = resultados;
+            this.versao = versao;
+            this.completa = completa;
+            if (resultados instanceof ResultadosCompactos compactos) {
+                // Sem o texto das linhas, que só é lido do arquivo quando pedido
+                this.bytes = compactos.getBytesEstimados();
+                return;
+            }
+            long total = 64;
+            for (ResultadoBusca r : resultados) {
+                total += 96 + r.getConteudo().length() + r.getCaminhoArquivo().length();
+            }
+            this.bytes = total;
+        }
+    }
+
+    public CacheResultados() {
+        this(MAX_ENTRADAS_PADRAO, MAX_BYTES_PADRAO);
+    }
+
+    public CacheResultados(int maxEntradas, long maxBytes) {
+        this.maxEntradas = maxEntradas;
+        this.maxBytes = maxBytes;
+    }
+
+    // Devolve do cache se ainda valer; senão executa a busca e guarda o resultado
+    public List<ResultadoBusca> obterOuBuscar(File diretorio, String termo, String metodo, ModoComparacao modo,
+                                              Supplier<List<ResultadoBusca>> busca) {
+        return obterOuBuscar(diretorio, FiltroArquivos.PADRAO, termo, metodo, modo, busca);
+    }
+
+    public List<ResultadoBusca> obterOuBuscar(File diretorio, FiltroArquivos filtro, String termo, String metodo,
+                                              ModoComparacao modo, Supplier<List<ResultadoBusca>> busca) {
+        List<ResultadoBusca> guardados = obter(diretorio, filtro, termo, metodo, modo, 0);
+        if (guardados != null) return guardados;
+
+        // Fotografa antes de buscar: uma mudança durante a varredura invalida a entrada na próxima consulta
+        Versao versao = fotografar(diretorio, filtro);
+        List<ResultadoBusca> resultados = busca.get();
+        return guardar(diretorio, filtro, termo, metodo, modo, versao, resultados, true);
+    }
+
+    // Resultados guardados, ou null se não houver entrada válida. Uma entrada incompleta só serve
+    // quando quem pede se contenta com 'minimo' resultados (minimo > 0) e ela tem pelo menos isso.
+    public List<ResultadoBusca> obter(File diretorio, String termo, String metodo, ModoComparacao modo, int minimo) {
+        return obter(diretorio, FiltroArquivos.PADRAO, termo, metodo, modo, minimo);
+    }
+
+    public List<ResultadoBusca> obter(File diretorio, FiltroArquivos filtro, String termo, String metodo,
+                                      ModoComparacao modo, int minimo) {
+        Chave chave = new Chave(diretorio, filtro, termo, metodo, modo);
+        Entrada entrada;
+        synchronized (this) {
+            entrada = entradas.get(chave);
+        }
+        if (entrada == null || !(entrada.completa || (minimo > 0 && entrada.resultados.size() >= minimo))) {
+            falhas.incrementAndGet();
+            return null;
+        }
+
+        // Com o vigia, só a comparação de duas versões; sem ele, lista a árvore (sem abrir os arquivos)
+        if (!entrada.versao.mesma(fotografar(diretorio, filtro))) {
+            synchronized (this) {
+                if (entradas.get(chave) == entrada) remover(chave);
+            }
+            invalidacoes.incrementAndGet();
+            falhas.incrementAndGet();
+            return null;
+        }
+        acertos.incrementAndGet();
+        return entrada.resultados;
+    }
+
+    // Retorna a lista guardada (não modificável). Sem versão (diretório ilegível) nada é guardado.
+    public List<ResultadoBusca> guardar(File diretorio, String termo, String metodo, ModoComparacao modo,
+                                        Versao versao, List<ResultadoBusca> resultados, boolean completa) {
+        return guardar(diretorio, FiltroArquivos.PADRAO, termo, metodo, modo, versao, resultados, completa);
+    }
+
+    public List<ResultadoBusca> guardar(File diretorio, FiltroArquivos filtro, String termo, String metodo, ModoComparacao modo,
+                                        Versao versao, List<ResultadoBusca> resultados, boolean completa) {
+        // A lista compacta é congelada (só leitura daqui em diante) em vez de copiada; as outras são copiadas
+        List<ResultadoBusca> copia = resultados instanceof ResultadosCompactos compactos
+                ? compactos.congelar() : Collections.unmodifiableList(new ArrayList<>(resultados));
+        if (versao == null || (!completa && copia.isEmpty())) return copia;
+
+        Entrada entrada = new Entrada(copia, versao, completa);
+        if (entrada.bytes > maxBytes) return copia;
+
+        Chave chave = new Chave(diretorio, filtro, termo, metodo, modo);
+        synchronized (this) {
+            Entrada anterior = entradas.get(chave);
+            // Não troca uma entrada completa e ainda válida por uma parcial
+            if (anterior != null && anterior.completa && !completa && anterior.versao.mesma(versao)) return copia;
+            if (anterior != null) remover(chave);
+            entradas.put(chave, entrada);
+            bytes += entrada.bytes;
+
+            Iterator<Map.Entry<Chave, Entrada>> maisAntigas = entradas.entrySet().iterator();
+            while ((entradas.size() > maxEntradas || bytes > maxBytes) && maisAntigas.hasNext()) {
+                Entrada antiga = maisAntigas.next().getValue();
+                if (antiga == entrada) continue;
+                maisAntigas.remove();
+                bytes -= antiga.bytes;
+                descartes.incrementAndGet();
+            }
+        }
+        return copia;
+    }
+
+    public static Versao fotografar(File diretorio) {
+        return fotografar(diretorio, FiltroArquivos.PADRAO);
+    }
+
+    // null se o diretório não puder ser listado. Com o diretório observado é só a versão do vigia; sem,
+    // usa os atributos lidos pelo próprio percurso: um stat por arquivo (sem o length()/lastModified() separados).
+    public static Versao fotografar(File diretorio, FiltroArquivos filtro) {
+        if (diretorio == null) return null;
+        long marca = VigiaDiretorios.versao(diretorio);
+        if (marca >= 0) return new Versao(marca, null, null, null);
+        if (!diretorio.isDirectory()) return null;
+        TreeMap<String, BasicFileAttributes> arquivos = new TreeMap<>();
+        for (PercursoArquivos.Arquivo a : PercursoArquivos.listarComAtributos(diretorio, filtro)) {
+            arquivos.put(a.relativo.toString().replace(File.separatorChar, '/'), a.atributos);
+        }
+
+        String[] nomes = new String[arquivos.size()];
+        long[] tamanhos = new long[nomes.length];
+        long[] modificados = new long[nomes.length];
+        int i = 0;
+        for (Map.Entry<String, BasicFileAttributes> e : arquivos.entrySet()) {
+            nomes[i] = e.getKey();
+            tamanhos[i] = e.getValue().size();
+            modificados[i] = e.getValue().lastModifiedTime().toMillis();
+            i++;
+        }
+        return new Versao(-1, nomes, tamanhos, modificados);
+    }
+
+    public synchronized void limpar() {
+        entradas.clear();
+        bytes = 0;
+    }
+
+    private void remover(Chave chave) {
+        Entrada removida = entradas.remove(chave);
+        if (removida != null) bytes -= removida.bytes;
+    }
+
+    public long getAcertos() {
+        return acertos.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    public long getInvalidacoes() {
+        return invalidacoes.get();
+    }
+
+    public long getDescartes() {
+        return descartes.get();
+    }
+
+    public synchronized int getEntradas() {
+        return entradas.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d acertos, %d falhas, %d invalidadas, %d descartadas, %d entradas (~%d KB)",
+                getAcertos(), getFalhas(), getInvalidacoes(), getDescartes(), getEntradas(), getBytes() / 1024);
+    }
+}
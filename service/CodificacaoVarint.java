@@ -0,0 +1,54 @@
+package service;
+
+import java.io.ByteArrayOutputStream;
+
+// Inteiros sem sinal em 7 bits por byte (o bit mais alto indica continuação)
+public final class CodificacaoVarint {
+
+    private CodificacaoVarint() {
+    }
+
+    public static void escrever(ByteArrayOutputStream saida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            saida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.write((int) valor);
+    }
+
+    // Lê um varint a partir de pos[0] e avança a posição
+    public static long ler(byte[] dados, int[] pos) {
+        long valor = 0;
+        int deslocamento = 0;
+        while (true) {
+            byte b = dados[pos[0]++];
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) return valor;
+            deslocamento += 7;
+        }
+    }
+
+    // Sequência crescente gravada como quantidade + diferenças
+    public static byte[] codificarCrescente(long[] valores, int quantidade) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(quantidade + 4);
+        escrever(saida, quantidade);
+        long anterior = 0;
+        for (int i = 0; i < quantidade; i++) {
+            escrever(saida, valores[i] - anterior);
+            anterior = valores[i];
+        }
+        return saida.toByteArray();
+    }
+
+    public static long[] decodificarCrescente(byte[] dados) {
+        int[] pos = {0};
+        int quantidade = (int) ler(dados, pos);
+        long[] valores = new long[quantidade];
+        long anterior = 0;
+        for (int i = 0; i < quantidade; i++) {
+            anterior += ler(dados, pos);
+            valores[i] = anterior;
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,177 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import model.ResultadoBusca;
+import model.ResultadosCompactos;
+
+// Agrupa arquivos de conteúdo idêntico (tamanho + hash de 64 bits) para que cada
+// conteúdo seja lido uma única vez e os resultados sejam replicados para as cópias.
+public final class DeduplicacaoArquivos {
+
+    // Hash por caminho, válido enquanto tamanho e data não mudarem
+    private static final Map<String, long[]> IMPRESSOES = new ConcurrentHashMap<>();
+
+    private DeduplicacaoArquivos() {
+    }
+
+    // Cada arquivo -> representante do seu grupo (o primeiro da lista com aquele conteúdo)
+    public static Map<File, File> representantes(File[] arquivos) {
+        Map<File, File> representantes = new LinkedHashMap<>();
+        Map<Long, List<File>> porTamanho = new HashMap<>();
+        for (File arquivo : arquivos) {
+            porTamanho.computeIfAbsent(arquivo.length(), t -> new ArrayList<>()).add(arquivo);
+        }
+
+        Map<String, File> primeiroPorConteudo = new HashMap<>();
+        for (File arquivo : arquivos) {
+            List<File> mesmoTamanho = porTamanho.get(arquivo.length());
+            if (mesmoTamanho == null || mesmoTamanho.size() == 1) {
+                // Tamanho único: não há com quem comparar, nem precisa calcular o hash
+                representantes.put(arquivo, arquivo);
+                continue;
+            }
+            Long hash = impressao(arquivo);
+            if (hash == null) {
+                representantes.put(arquivo, arquivo);
+                continue;
+            }
+            File primeiro = primeiroPorConteudo.putIfAbsent(arquivo.length() + ":" + hash, arquivo);
+            representantes.put(arquivo, primeiro != null ? primeiro : arquivo);
+        }
+        return representantes;
+    }
+
+    public static Map<File, File> representantes(List<File> arquivos) {
+        return representantes(arquivos.toArray(new File[0]));
+    }
+
+    // Para arquivos que chegam aos poucos (lidos enquanto a listagem anda): o primeiro arquivo de cada
+    // tamanho é lido na hora; os seguintes podem ser cópias e esperam a listagem terminar para serem
+    // comparados pelo hash. Só os arquivos de tamanho repetido custam o hash, como no representantes().
+    public static final class Incremental {
+        private final Map<Long, File> primeiroPorTamanho = new ConcurrentHashMap<>();
+        private final Map<File, Long> adiados = new ConcurrentHashMap<>();
+        private final Set<Long> tamanhosRepetidos = ConcurrentHashMap.newKeySet();
+        private Map<File, File> representantes;
+
+        // true: ler agora; false: adiado até resolver()
+        public boolean lerAgora(File arquivo) {
+            long tamanho = arquivo.length();
+            if (primeiroPorTamanho.putIfAbsent(tamanho, arquivo) == null) return true;
+            tamanhosRepetidos.add(tamanho);
+            adiados.put(arquivo, tamanho);
+            return false;
+        }
+
+        // Algum arquivo do mesmo tamanho já foi adiado: o lido agora pode ter cópias. false não garante
+        // o contrário (o outro ainda pode aparecer); o certo só se sabe no resolver().
+        public boolean tamanhoRepetido(File arquivo) {
+            return tamanhosRepetidos.contains(arquivo.length());
+        }
+
+        // Com a listagem completa (na ordem final): monta os representantes e devolve os adiados que
+        // não são cópias de nenhum outro e ainda precisam ser lidos
+        public List<File> resolver(List<File> ordem) {
+            Map<String, File> primeiroPorConteudo = new HashMap<>();
+            // Os já lidos com quem algum adiado pode ser igual entram primeiro: as cópias apontam para eles
+            for (long tamanho : new HashSet<>(adiados.values())) {
+                File lido = primeiroPorTamanho.get(tamanho);
+                Long hash = impressao(lido);
+                if (hash != null) primeiroPorConteudo.put(tamanho + ":" + hash, lido);
+            }
+
+            List<File> ler = new ArrayList<>();
+            representantes = new LinkedHashMap<>();
+            for (File arquivo : ordem) {
+                Long tamanho = adiados.get(arquivo);
+                if (tamanho == null) {
+                    representantes.put(arquivo, arquivo);
+                    continue;
+                }
+                Long hash = impressao(arquivo);
+                File primeiro = hash == null ? null : primeiroPorConteudo.putIfAbsent(tamanho + ":" + hash, arquivo);
+                if (primeiro == null) ler.add(arquivo);
+                representantes.put(arquivo, primeiro != null ? primeiro : arquivo);
+            }
+            return ler;
+        }
+
+        // Cada arquivo -> representante, na ordem passada ao resolver()
+        public Map<File, File> representantes() {
+            return representantes;
+        }
+    }
+
+    public static List<File> unicos(Map<File, File> representantes) {
+        List<File> unicos = new ArrayList<>();
+        for (Map.Entry<File, File> e : representantes.entrySet()) {
+            if (e.getKey() == e.getValue()) unicos.add(e.getKey());
+        }
+        return unicos;
+    }
+
+    // Reconstrói a saída na ordem original dos arquivos, trocando o caminho pelo de cada cópia
+    public static List<ResultadoBusca> replicar(Map<File, File> representantes,
+                                                Map<File, List<ResultadoBusca>> resultadosPorRepresentante,
+                                                Function<File, String> caminho) {
+        if (compactos(resultadosPorRepresentante)) return replicarCompactos(representantes, resultadosPorRepresentante, caminho);
+
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        for (Map.Entry<File, File> e : representantes.entrySet()) {
+            List<ResultadoBusca> doRepresentante = resultadosPorRepresentante.get(e.getValue());
+            if (doRepresentante == null) continue;
+            if (e.getKey() == e.getValue()) {
+                resultados.addAll(doRepresentante);
+                continue;
+            }
+            String caminhoCopia = caminho.apply(e.getKey());
+            for (ResultadoBusca r : doRepresentante) {
+                resultados.add(r.comCaminho(caminhoCopia));
+            }
+        }
+        return resultados;
+    }
+
+    // Cópias viram trechos que leem as linhas do representante: continuam custando só linha e posição por acerto
+    private static ResultadosCompactos replicarCompactos(Map<File, File> representantes,
+                                                         Map<File, List<ResultadoBusca>> resultadosPorRepresentante,
+                                                         Function<File, String> caminho) {
+        ResultadosCompactos resultados = new ResultadosCompactos();
+        for (Map.Entry<File, File> e : representantes.entrySet()) {
+            List<ResultadoBusca> doRepresentante = resultadosPorRepresentante.get(e.getValue());
+            if (doRepresentante == null) continue;
+            String caminhoCopia = e.getKey() == e.getValue() ? null : caminho.apply(e.getKey());
+            resultados.anexar((ResultadosCompactos) doRepresentante, caminhoCopia, 0);
+        }
+        return resultados;
+    }
+
+    private static boolean compactos(Map<File, List<ResultadoBusca>> resultadosPorRepresentante) {
+        if (resultadosPorRepresentante.isEmpty()) return false;
+        for (List<ResultadoBusca> lista : resultadosPorRepresentante.values()) {
+            if (!(lista instanceof ResultadosCompactos)) return false;
+        }
+        return true;
+    }
+
+    private static Long impressao(File arquivo) {
+        String chave = arquivo.getAbsolutePath();
+        long tamanho = arquivo.length();
+        long modificado = arquivo.lastModified();
+        long[] guardada = IMPRESSOES.get(chave);
+        if (guardada != null && guardada[0] == tamanho && guardada[1] == modificado) return guardada[2];
+        try {
+            long hash = ImpressaoDigital.calcular(arquivo);
+            IMPRESSOES.put(chave, new long[]{tamanho, modificado, hash});
+            return hash;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + arquivo.getName());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package service;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.Locale;
+
+// Quais arquivos de uma árvore entram na busca: globs de inclusão e exclusão e a profundidade máxima.
+// Um glob sem '/' vale para o nome do arquivo (ex.: "*.txt"); com '/', para o caminho relativo à raiz
+// (ex.: "logs/**/*.txt"). Assim como o antigo filtro por ".txt", as comparações ignoram maiúsculas.
+// Um diretório que casa com uma exclusão é podado inteiro, sem ser listado.
+// Um fragmento (ver fragmento()) aceita só os arquivos cujo caminho relativo cai nele pelo hash:
+// a divisão é estável enquanto os arquivos não mudam de nome, sem precisar listar a árvore antes.
+public final class FiltroArquivos {
+
+    public static final int SEM_LIMITE = Integer.MAX_VALUE;
+    public static final FiltroArquivos PADRAO = new FiltroArquivos(List.of("*.txt"), List.of(), SEM_LIMITE);
+
+    private final List<String> incluir;
+    private final List<String> excluir;
+    private final int profundidadeMaxima;
+    private final PathMatcher[] inclusoes;
+    private final boolean[] inclusaoPorCaminho;
+    private final PathMatcher[] exclusoes;
+    private final boolean[] exclusaoPorCaminho;
+    // 0 de 1: a árvore inteira
+    private final int fragmento;
+    private final int fragmentos;
+
+    // profundidadeMaxima: 1 olha só os arquivos da raiz, 2 também os dos subdiretórios imediatos...
+    public FiltroArquivos(List<String> incluir, List<String> excluir, int profundidadeMaxima) {
+        this(incluir, excluir, profundidadeMaxima, 0, 1);
+    }
+
+    private FiltroArquivos(List<String> incluir, List<String> excluir, int profundidadeMaxima, int fragmento, int fragmentos) {
+        if (incluir.isEmpty()) throw new IllegalArgumentException("Informe ao menos um glob de inclusão");
+        if (profundidadeMaxima < 1) throw new IllegalArgumentException("Profundidade inválida: " + profundidadeMaxima);
+        this.incluir = List.copyOf(incluir);
+        this.excluir = List.copyOf(excluir);
+        this.profundidadeMaxima = profundidadeMaxima;
+        this.fragmento = fragmento;
+        this.fragmentos = fragmentos;
+        this.inclusoes = new PathMatcher[incluir.size()];
+        this.inclusaoPorCaminho = new boolean[incluir.size()];
+        for (int i = 0; i < inclusoes.length; i++) {
+            inclusoes[i] = compilar(incluir.get(i));
+            inclusaoPorCaminho[i] = incluir.get(i).indexOf('/') >= 0;
+        }
+        this.exclusoes = new PathMatcher[excluir.size()];
+        this.exclusaoPorCaminho = new boolean[excluir.size()];
+        for (int i = 0; i < exclusoes.length; i++) {
+            exclusoes[i] = compilar(excluir.get(i));
+            exclusaoPorCaminho[i] = excluir.get(i).indexOf('/') >= 0;
+        }
+    }
+
+    // Os mesmos globs, restritos ao fragmento 'indice' de 'total' (0 <= indice < total)
+    public FiltroArquivos fragmento(int indice, int total) {
+        if (fragmentos != 1) throw new IllegalStateException("O filtro já é um fragmento: " + this);
+        if (total < 1 || indice < 0 || indice >= total) throw new IllegalArgumentException("Fragmento inválido: " + indice + " de " + total);
+        return new FiltroArquivos(incluir, excluir, profundidadeMaxima, indice, total);
+    }
+
+    // PatternSyntaxException já é uma IllegalArgumentException
+    private static PathMatcher compilar(String glob) {
+        if (glob.isBlank()) throw new IllegalArgumentException("Glob vazio");
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob.toLowerCase(Locale.ROOT));
+    }
+
+    public List<String> getIncluir() {
+        return incluir;
+    }
+
+    public List<String> getExcluir() {
+        return excluir;
+    }
+
+    public int getProfundidadeMaxima() {
+        return profundidadeMaxima;
+    }
+
+    public int getFragmento() {
+        return fragmento;
+    }
+
+    public int getFragmentos() {
+        return fragmentos;
+    }
+
+    // relativo: caminho do arquivo a partir da raiz; profundidade 1 = arquivo da própria raiz
+    boolean aceitaArquivo(Path relativo, int profundidade) {
+        if (profundidade > profundidadeMaxima) return false;
+        Path minusculo = minusculo(relativo);
+        Path nome = minusculo.getFileName();
+        boolean incluido = false;
+        for (int i = 0; i < inclusoes.length && !incluido; i++) {
+            incluido = inclusoes[i].matches(inclusaoPorCaminho[i] ? minusculo : nome);
+        }
+        return incluido && !excluido(minusculo, nome) && noFragmento(relativo);
+    }
+
+    // Pelo caminho com '/', como o PercursoArquivos.nomes: o mesmo arquivo cai no mesmo fragmento em qualquer sistema
+    private boolean noFragmento(Path relativo) {
+        if (fragmentos == 1) return true;
+        String nome = relativo.toString().replace(File.separatorChar, '/');
+        return Math.floorMod(nome.hashCode(), fragmentos) == fragmento;
+    }
+
+    // Mesmo critério do percurso para um caminho relativo com '/' (ex.: vindo do VigiaDiretorios): cada
+    // diretório do caminho precisa ser percorrido e o arquivo, aceito
+    boolean aceitaNome(String nome) {
+        Path relativo = Path.of(nome);
+        int partes = relativo.getNameCount();
+        for (int i = 1; i < partes; i++) {
+            if (!desceDiretorio(relativo.subpath(0, i), i)) return false;
+        }
+        return aceitaArquivo(relativo, partes);
+    }
+
+    // Vale a pena listar o subdiretório? (os arquivos dele ficam na profundidade + 1)
+    boolean desceDiretorio(Path relativo, int profundidade) {
+        if (profundidade >= profundidadeMaxima) return false;
+        Path minusculo = minusculo(relativo);
+        return !excluido(minusculo, minusculo.getFileName());
+    }
+
+    private boolean excluido(Path minusculo, Path nome) {
+        for (int i = 0; i < exclusoes.length; i++) {
+            if (exclusoes[i].matches(exclusaoPorCaminho[i] ? minusculo : nome)) return true;
+        }
+        return false;
+    }
+
+    private static Path minusculo(Path relativo) {
+        String texto = relativo.toString();
+        String minusculo = texto.toLowerCase(Locale.ROOT);
+        return minusculo.equals(texto) ? relativo : relativo.getFileSystem().getPath(minusculo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FiltroArquivos f)) return false;
+        return profundidadeMaxima == f.profundidadeMaxima && incluir.equals(f.incluir) && excluir.equals(f.excluir)
+                && fragmento == f.fragmento && fragmentos == f.fragmentos;
+    }
+
+    @Override
+    public int hashCode() {
+        // Sem fragmento, o mesmo hash de antes: é o sufixo das pastas de índice já gravadas
+        int hash = (incluir.hashCode() * 31 + excluir.hashCode()) * 31 + profundidadeMaxima;
+        return fragmentos == 1 ? hash : (hash * 31 + fragmento) * 31 + fragmentos;
+    }
+
+    @Override
+    public String toString() {
+        return "incluir " + incluir + (excluir.isEmpty() ? "" : ", excluir " + excluir)
+                + (profundidadeMaxima == SEM_LIMITE ? "" : ", profundidade " + profundidadeMaxima)
+                + (fragmentos == 1 ? "" : ", fragmento " + fragmento + " de " + fragmentos);
+    }
+}
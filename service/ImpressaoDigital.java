@@ -0,0 +1,40 @@
+package service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Hash FNV-1a de 64 bits, calculado em blocos para não carregar o arquivo inteiro
+public final class ImpressaoDigital {
+
+    private static final long BASE = 0xcbf29ce484222325L;
+    private static final long PRIMO = 0x100000001b3L;
+
+    private ImpressaoDigital() {
+    }
+
+    public static long calcular(byte[] dados, int inicio, int fim) {
+        return continuar(BASE, dados, inicio, fim);
+    }
+
+    public static long calcular(File arquivo) throws IOException {
+        long hash = BASE;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(arquivo)) {
+            int lidos;
+            while ((lidos = in.read(buffer)) > 0) {
+                hash = continuar(hash, buffer, 0, lidos);
+            }
+        }
+        return hash;
+    }
+
+    private static long continuar(long hash, byte[] dados, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            hash ^= dados[i] & 0xFF;
+            hash *= PRIMO;
+        }
+        return hash;
+    }
+}
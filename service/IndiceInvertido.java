@@ -0,0 +1,655 @@
+package service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import model.ResultadoBusca;
+import strategy.ModoComparacao;
+import strategy.PadraoCompilado;
+
+// Índice invertido por diretório: termo -> arquivos -> linhas.
+// Cada arquivo vira um segmento próprio (gravado em .<diretorio>.indice ao lado do dataset),
+// então só os arquivos alterados precisam ser reindexados. Os arquivos vêm do percurso da árvore
+// e são identificados pelo caminho relativo; um filtro diferente do padrão tem a sua própria pasta.
+// A árvore é conferida inteira na carga; depois, só os arquivos que o VigiaDiretorios viu mudar.
+public class IndiceInvertido {
+
+    private static final int MAGICO = 0x49445831; // "IDX1"
+    private static final int VERSAO = 2;
+    private static final int LEITURA_DENSA = 256;
+    private static final Map<String, IndiceInvertido> INDICES = new ConcurrentHashMap<>();
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+    private final Function<File, String> nomes;
+    private final File pastaIndice;
+    private final Map<String, Segmento> segmentosPorNome = new HashMap<>();
+    private final Map<Integer, Segmento> segmentosPorId = new HashMap<>();
+    // Vocabulário ordenado (prefixos viram faixas do mapa) -> ids dos arquivos, em ordem
+    private final TreeMap<String, int[]> vocabulario = new TreeMap<>();
+    private int proximoId = 0;
+    // Nomes na ordem do percurso da última listagem: as consultas seguem essa ordem sem listar de novo
+    private String[] ordem = new String[0];
+    // Arquivo novo fora da 'ordem': a próxima consulta lista a árvore para saber onde ele entra
+    private boolean ordemDesatualizada;
+    // Versão do VigiaDiretorios já refletida no índice (-1: nenhuma)
+    private long versaoSincronizada = -1;
+
+    static final class Segmento {
+        final int id;
+        final String nome;
+        final long tamanho;
+        final long modificado;
+        final long hash;
+        final long[] inicioLinhas;
+        final Map<String, byte[]> postings;
+        // Pares (linha, token distinto) do arquivo; calculado na primeira vez que o BM25 pede
+        long ocorrencias = -1;
+
+        Segmento(int id, String nome, long tamanho, long modificado, long hash, long[] inicioLinhas,
+                 Map<String, byte[]> postings) {
+            this.id = id;
+            this.nome = nome;
+            this.tamanho = tamanho;
+            this.modificado = modificado;
+            this.hash = hash;
+            this.inicioLinhas = inicioLinhas;
+            this.postings = postings;
+        }
+    }
+
+    private IndiceInvertido(File diretorio, FiltroArquivos filtro) {
+        this.diretorio = diretorio;
+        this.filtro = filtro;
+        this.nomes = PercursoArquivos.nomes(diretorio);
+        String sufixo = filtro.equals(FiltroArquivos.PADRAO) ? "" : "." + Integer.toHexString(filtro.hashCode());
+        this.pastaIndice = new File(diretorio.getAbsoluteFile().getParentFile(), "." + diretorio.getName() + sufixo + ".indice");
+    }
+
+    public static IndiceInvertido obter(File diretorio) {
+        return obter(diretorio, FiltroArquivos.PADRAO);
+    }
+
+    // Um índice por diretório e filtro, carregado do disco na primeira consulta
+    public static IndiceInvertido obter(File diretorio, FiltroArquivos filtro) {
+        String chave = diretorio.getAbsoluteFile().toPath().normalize() + "|" + filtro;
+        IndiceInvertido indice = INDICES.computeIfAbsent(chave, c -> {
+            IndiceInvertido novo = new IndiceInvertido(diretorio, filtro);
+            novo.carregar();
+            return novo;
+        });
+        indice.manterEmDia();
+        return indice;
+    }
+
+    // Sem eventos desde a última vez, nenhum IO. Com eventos, reindexa só os arquivos citados; lista a
+    // árvore inteira na carga, quando o vigia não sabe o que mudou ou quando aparece arquivo novo.
+    // Sem vigia (diretório que não pode ser observado) confere a árvore a cada consulta, como antes.
+    private synchronized void manterEmDia() {
+        long versao = VigiaDiretorios.versao(diretorio);
+        if (versao >= 0 && versao == versaoSincronizada && !ordemDesatualizada) return;
+        Set<String> mudancas = versao >= 0 && versaoSincronizada >= 0
+                ? VigiaDiretorios.mudancasDesde(diretorio, versaoSincronizada) : null;
+        if (mudancas != null) atualizarNomes(mudancas);
+        if (mudancas == null || ordemDesatualizada) sincronizar();
+        versaoSincronizada = versao;
+    }
+
+    public File getDiretorio() {
+        return diretorio;
+    }
+
+    public FiltroArquivos getFiltro() {
+        return filtro;
+    }
+
+    // <editor-fold desc="Consulta">
+
+    public List<ResultadoBusca> buscar(String termo) {
+        return buscar(termo, ModoComparacao.EXATO);
+    }
+
+    public synchronized List<ResultadoBusca> buscar(String termo, ModoComparacao modo) {
+        PadraoCompilado padrao = PadraoCompilado.literal(termo, modo);
+        List<TokenConsulta> tokens = tokenizarConsulta(termo);
+        if (tokens.isEmpty()) {
+            // Sem letras/dígitos o tokenizador não ajuda: varre os arquivos
+            return varrer(padrao);
+        }
+
+        List<List<String>> termosPorToken = new ArrayList<>();
+        BitSet candidatos = null;
+        for (TokenConsulta token : tokens) {
+            List<String> termos = modo == ModoComparacao.EXATO ? termosCompativeis(token) : termosCompativeis(token, modo);
+            if (termos.isEmpty()) return new ArrayList<>();
+            BitSet arquivos = new BitSet();
+            for (String t : termos) {
+                for (int id : vocabulario.get(t)) arquivos.set(id);
+            }
+            if (candidatos == null) candidatos = arquivos;
+            else candidatos.and(arquivos);
+            termosPorToken.add(termos);
+        }
+
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        for (String nome : ordem) {
+            Segmento segmento = segmentosPorNome.get(nome);
+            if (segmento == null || !candidatos.get(segmento.id)) continue;
+            File arquivo = new File(diretorio, nome);
+
+            long[] linhas = null;
+            for (List<String> termos : termosPorToken) {
+                long[] linhasToken = unirLinhas(segmento, termos);
+                linhas = linhas == null ? linhasToken : intersectar(linhas, linhasToken);
+                if (linhas.length == 0) break;
+            }
+            if (linhas.length > 0) confirmarLinhas(arquivo, segmento, linhas, padrao, resultados);
+        }
+        return resultados;
+    }
+
+    private List<String> termosCompativeis(TokenConsulta token) {
+        List<String> termos = new ArrayList<>();
+        String t = token.texto;
+        if (!token.abertoEsquerda && !token.abertoDireita) {
+            if (vocabulario.containsKey(t)) termos.add(t);
+        } else if (!token.abertoEsquerda) {
+            for (String v : vocabulario.tailMap(t, true).keySet()) {
+                if (!v.startsWith(t)) break;
+                termos.add(v);
+            }
+        } else {
+            // Sufixo ou trecho interno: percorre só o vocabulário, não o corpus
+            for (String v : vocabulario.keySet()) {
+                if (token.abertoDireita ? v.contains(t) : v.endsWith(t)) termos.add(v);
+            }
+        }
+        return termos;
+    }
+
+    // O vocabulário está em minúsculas, mas a ordem do TreeMap não vale para o texto dobrado:
+    // compara cada termo dobrando caractere a caractere, sem criar Strings
+    private List<String> termosCompativeis(TokenConsulta token, ModoComparacao modo) {
+        List<String> termos = new ArrayList<>();
+        String t = modo.dobrar(token.texto);
+        for (String v : vocabulario.keySet()) {
+            int folga = v.length() - t.length();
+            if (folga < 0) continue;
+            boolean casa;
+            if (!token.abertoEsquerda && !token.abertoDireita) casa = folga == 0 && casaEm(v, 0, t, modo);
+            else if (!token.abertoEsquerda) casa = casaEm(v, 0, t, modo);
+            else if (!token.abertoDireita) casa = casaEm(v, folga, t, modo);
+            else {
+                casa = false;
+                for (int i = 0; i <= folga && !casa; i++) casa = casaEm(v, i, t, modo);
+            }
+            if (casa) termos.add(v);
+        }
+        return termos;
+    }
+
+    // Para o BM25: quantas linhas o diretório tem, quantos tokens distintos cada uma tem em média e
+    // em quantas linhas aparece cada token pedido (em minúsculas, como no vocabulário). As contagens
+    // saem do primeiro varint de cada posting, sem decodificar as linhas.
+    public static final class EstatisticasTokens {
+        private final long linhas;
+        private final double mediaTokensPorLinha;
+        private final Map<String, Long> linhasComToken;
+
+        EstatisticasTokens(long linhas, double mediaTokensPorLinha, Map<String, Long> linhasComToken) {
+            this.linhas = linhas;
+            this.mediaTokensPorLinha = mediaTokensPorLinha;
+            this.linhasComToken = linhasComToken;
+        }
+
+        public long getLinhas() {
+            return linhas;
+        }
+
+        public double getMediaTokensPorLinha() {
+            return mediaTokensPorLinha;
+        }
+
+        public long linhasCom(String token) {
+            return linhasComToken.getOrDefault(token, 0L);
+        }
+    }
+
+    public synchronized EstatisticasTokens estatisticas(Collection<String> tokens) {
+        long linhas = 0;
+        long ocorrencias = 0;
+        for (Segmento segmento : segmentosPorNome.values()) {
+            linhas += segmento.inicioLinhas.length;
+            if (segmento.ocorrencias < 0) {
+                long soma = 0;
+                for (byte[] dados : segmento.postings.values()) soma += CodificacaoVarint.ler(dados, new int[]{0});
+                segmento.ocorrencias = soma;
+            }
+            ocorrencias += segmento.ocorrencias;
+        }
+        Map<String, Long> linhasComToken = new HashMap<>();
+        for (String token : tokens) {
+            long df = 0;
+            for (int id : vocabulario.getOrDefault(token, new int[0])) {
+                Segmento segmento = segmentosPorId.get(id);
+                byte[] dados = segmento != null ? segmento.postings.get(token) : null;
+                if (dados != null) df += CodificacaoVarint.ler(dados, new int[]{0});
+            }
+            linhasComToken.put(token, df);
+        }
+        return new EstatisticasTokens(linhas, linhas == 0 ? 0 : (double) ocorrencias / linhas, linhasComToken);
+    }
+
+    private static boolean casaEm(String v, int inicio, String dobrado, ModoComparacao modo) {
+        for (int j = 0; j < dobrado.length(); j++) {
+            if (modo.dobrar(v.charAt(inicio + j)) != dobrado.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static long[] unirLinhas(Segmento segmento, List<String> termos) {
+        long[] todas = new long[0];
+        int total = 0;
+        for (String t : termos) {
+            byte[] dados = segmento.postings.get(t);
+            if (dados == null) continue;
+            long[] linhas = CodificacaoVarint.decodificarCrescente(dados);
+            if (total + linhas.length > todas.length) {
+                todas = Arrays.copyOf(todas, Math.max(todas.length * 2, total + linhas.length));
+            }
+            System.arraycopy(linhas, 0, todas, total, linhas.length);
+            total += linhas.length;
+        }
+        if (termos.size() == 1) return Arrays.copyOf(todas, total);
+
+        Arrays.sort(todas, 0, total);
+        int unicos = 0;
+        for (int i = 0; i < total; i++) {
+            if (unicos == 0 || todas[unicos - 1] != todas[i]) todas[unicos++] = todas[i];
+        }
+        return Arrays.copyOf(todas, unicos);
+    }
+
+    private static long[] intersectar(long[] a, long[] b) {
+        long[] saida = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                saida[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(saida, n);
+    }
+
+    // O índice ignora maiúsculas; a confirmação na linha real aplica o modo de comparação pedido
+    private void confirmarLinhas(File arquivo, Segmento segmento, long[] linhas, PadraoCompilado padrao,
+                                 List<ResultadoBusca> resultados) {
+        try {
+            if ((long) linhas.length * LEITURA_DENSA > segmento.tamanho) {
+                // Muitos candidatos: uma leitura sequencial sai mais barato que um seek por linha
+                byte[] bytes = Files.readAllBytes(arquivo.toPath());
+                for (long numero : linhas) {
+                    long inicio = segmento.inicioLinhas[(int) numero - 1];
+                    long fim = fimLinha(segmento, (int) numero);
+                    confirmar(segmento.nome, (int) numero, bytes, (int) inicio, (int) (fim - inicio), padrao, resultados);
+                }
+                return;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r")) {
+                for (long numero : linhas) {
+                    long inicio = segmento.inicioLinhas[(int) numero - 1];
+                    byte[] bytes = new byte[(int) (fimLinha(segmento, (int) numero) - inicio)];
+                    raf.seek(inicio);
+                    raf.readFully(bytes);
+                    confirmar(segmento.nome, (int) numero, bytes, 0, bytes.length, padrao, resultados);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + arquivo.getName());
+        }
+    }
+
+    private static long fimLinha(Segmento segmento, int numero) {
+        return numero < segmento.inicioLinhas.length ? segmento.inicioLinhas[numero] : segmento.tamanho;
+    }
+
+    private static void confirmar(String nome, int numero, byte[] bytes, int inicio, int tamanho, PadraoCompilado padrao,
+                                  List<ResultadoBusca> resultados) {
+        if (tamanho > 0 && bytes[inicio + tamanho - 1] == '\n') tamanho--;
+        if (tamanho > 0 && bytes[inicio + tamanho - 1] == '\r') tamanho--;
+        String linha = new String(bytes, inicio, tamanho, StandardCharsets.UTF_8);
+        if (padrao.contem(linha)) {
+            resultados.add(new ResultadoBusca(nome, numero, linha));
+        }
+    }
+
+    private List<ResultadoBusca> varrer(PadraoCompilado padrao) {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        for (String nome : ordem) {
+            if (!segmentosPorNome.containsKey(nome)) continue;
+            File arquivo = new File(diretorio, nome);
+            try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+                String linha;
+                int numeroLinha = 0;
+                while ((linha = reader.readLine()) != null) {
+                    numeroLinha++;
+                    if (padrao.contem(linha)) {
+                        resultados.add(new ResultadoBusca(nome, numeroLinha, linha));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao ler: " + arquivo.getName());
+            }
+        }
+        return resultados;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Tokenização">
+
+    private static final class TokenConsulta {
+        final String texto;
+        final boolean abertoEsquerda;
+        final boolean abertoDireita;
+
+        TokenConsulta(String texto, boolean abertoEsquerda, boolean abertoDireita) {
+            this.texto = texto;
+            this.abertoEsquerda = abertoEsquerda;
+            this.abertoDireita = abertoDireita;
+        }
+    }
+
+    public static boolean caractereDeToken(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    // O primeiro e o último token da consulta podem ser pedaços de palavras da linha
+    private static List<TokenConsulta> tokenizarConsulta(String termo) {
+        List<TokenConsulta> tokens = new ArrayList<>();
+        int n = termo.length();
+        int i = 0;
+        while (i < n) {
+            if (!caractereDeToken(termo.charAt(i))) {
+                i++;
+                continue;
+            }
+            int inicio = i;
+            StringBuilder sb = new StringBuilder();
+            while (i < n && caractereDeToken(termo.charAt(i))) {
+                sb.append(Character.toLowerCase(termo.charAt(i)));
+                i++;
+            }
+            tokens.add(new TokenConsulta(sb.toString(), inicio == 0, i == n));
+        }
+        return tokens;
+    }
+
+    static void tokenizarLinha(String linha, int numero, Map<String, ListaLinhas> destino) {
+        int n = linha.length();
+        int i = 0;
+        StringBuilder sb = new StringBuilder();
+        while (i < n) {
+            if (!caractereDeToken(linha.charAt(i))) {
+                i++;
+                continue;
+            }
+            sb.setLength(0);
+            while (i < n && caractereDeToken(linha.charAt(i))) {
+                sb.append(Character.toLowerCase(linha.charAt(i)));
+                i++;
+            }
+            destino.computeIfAbsent(sb.toString(), k -> new ListaLinhas()).adicionar(numero);
+        }
+    }
+
+    static final class ListaLinhas {
+        long[] valores = new long[4];
+        int quantidade;
+
+        void adicionar(long linha) {
+            if (quantidade > 0 && valores[quantidade - 1] == linha) return;
+            if (quantidade == valores.length) valores = Arrays.copyOf(valores, quantidade * 2);
+            valores[quantidade++] = linha;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Manutenção">
+
+    private List<File> listarArquivos() {
+        return PercursoArquivos.listar(diretorio, filtro);
+    }
+
+    // Reindexa apenas arquivos novos ou com tamanho/data diferentes e remove os apagados
+    public synchronized void sincronizar() {
+        boolean alterado = false;
+        List<File> arquivos = listarArquivos();
+        String[] listados = new String[arquivos.size()];
+        Set<String> presentes = new HashSet<>();
+        for (int i = 0; i < listados.length; i++) {
+            listados[i] = nomes.apply(arquivos.get(i));
+            presentes.add(listados[i]);
+            alterado |= atualizarSemGravar(arquivos.get(i));
+        }
+        ordem = listados;
+        ordemDesatualizada = false;
+        for (Segmento segmento : new ArrayList<>(segmentosPorNome.values())) {
+            if (!presentes.contains(segmento.nome)) {
+                removerSemGravar(segmento.nome);
+                alterado = true;
+            }
+        }
+        if (alterado) gravarManifesto();
+    }
+
+    // Nomes vindos do VigiaDiretorios (caminhos relativos com '/'), inclusive os que o filtro ignora
+    private void atualizarNomes(Set<String> mudancas) {
+        boolean alterado = false;
+        for (String nome : mudancas) {
+            if (!filtro.aceitaNome(nome)) continue;
+            File arquivo = new File(diretorio, nome);
+            alterado |= arquivo.isFile() ? atualizarSemGravar(arquivo) : removerSemGravar(nome);
+        }
+        if (alterado) gravarManifesto();
+    }
+
+    private boolean atualizarSemGravar(File arquivo) {
+        String nome = nomes.apply(arquivo);
+        Segmento atual = segmentosPorNome.get(nome);
+        if (atual != null && atual.tamanho == arquivo.length() && atual.modificado == arquivo.lastModified()) {
+            return false;
+        }
+        if (atual == null) ordemDesatualizada = true;
+        try {
+            long modificado = arquivo.lastModified();
+            byte[] bytes = Files.readAllBytes(arquivo.toPath());
+            long hash = ImpressaoDigital.calcular(bytes, 0, bytes.length);
+            Segmento novo;
+            if (atual != null && atual.tamanho == bytes.length && atual.hash == hash) {
+                // Só a data mudou (cópia/touch): reaproveita as postings
+                novo = new Segmento(atual.id, atual.nome, atual.tamanho, modificado, hash, atual.inicioLinhas, atual.postings);
+                segmentosPorNome.put(novo.nome, novo);
+                segmentosPorId.put(novo.id, novo);
+                return true;
+            }
+            if (atual != null) remover(atual);
+            novo = indexarArquivo(atual != null ? atual.id : proximoId++, nome, modificado, hash, bytes);
+            registrar(novo);
+            gravarSegmento(novo);
+        } catch (IOException e) {
+            System.err.println("Erro ao indexar: " + nome);
+            if (atual != null && segmentosPorNome.get(atual.nome) == atual) removerSemGravar(atual.nome);
+        }
+        return true;
+    }
+
+    private boolean removerSemGravar(String nome) {
+        Segmento segmento = segmentosPorNome.get(nome);
+        if (segmento == null) return false;
+        remover(segmento);
+        new File(pastaIndice, segmento.id + ".seg").delete();
+        return true;
+    }
+
+    static Segmento indexarArquivo(int id, String nome, long modificado, long hash, byte[] bytes) {
+        Map<String, ListaLinhas> termos = new HashMap<>();
+        ListaLinhas inicios = new ListaLinhas();
+
+        int inicio = 0;
+        int numero = 0;
+        while (inicio < bytes.length) {
+            int fim = inicio;
+            while (fim < bytes.length && bytes[fim] != '\n' && bytes[fim] != '\r') fim++;
+            numero++;
+            inicios.adicionar(inicio);
+            tokenizarLinha(new String(bytes, inicio, fim - inicio, StandardCharsets.UTF_8), numero, termos);
+            if (fim < bytes.length && bytes[fim] == '\r') fim++;
+            if (fim < bytes.length && bytes[fim] == '\n') fim++;
+            inicio = fim;
+        }
+
+        Map<String, byte[]> postings = new HashMap<>(termos.size() * 2);
+        for (Map.Entry<String, ListaLinhas> e : termos.entrySet()) {
+            postings.put(e.getKey(), CodificacaoVarint.codificarCrescente(e.getValue().valores, e.getValue().quantidade));
+        }
+        return new Segmento(id, nome, bytes.length, modificado, hash,
+                Arrays.copyOf(inicios.valores, inicios.quantidade), postings);
+    }
+
+    private void registrar(Segmento segmento) {
+        segmentosPorNome.put(segmento.nome, segmento);
+        segmentosPorId.put(segmento.id, segmento);
+        proximoId = Math.max(proximoId, segmento.id + 1);
+        for (String termo : segmento.postings.keySet()) {
+            int[] ids = vocabulario.get(termo);
+            if (ids == null) {
+                vocabulario.put(termo, new int[]{segmento.id});
+                continue;
+            }
+            int pos = Arrays.binarySearch(ids, segmento.id);
+            if (pos >= 0) continue;
+            pos = -pos - 1;
+            int[] novos = new int[ids.length + 1];
+            System.arraycopy(ids, 0, novos, 0, pos);
+            novos[pos] = segmento.id;
+            System.arraycopy(ids, pos, novos, pos + 1, ids.length - pos);
+            vocabulario.put(termo, novos);
+        }
+    }
+
+    // Custo proporcional ao vocabulário do arquivo removido, não ao corpus
+    private void remover(Segmento segmento) {
+        segmentosPorNome.remove(segmento.nome);
+        segmentosPorId.remove(segmento.id);
+        for (String termo : segmento.postings.keySet()) {
+            int[] ids = vocabulario.get(termo);
+            if (ids == null) continue;
+            int pos = Arrays.binarySearch(ids, segmento.id);
+            if (pos < 0) continue;
+            if (ids.length == 1) {
+                vocabulario.remove(termo);
+                continue;
+            }
+            int[] novos = new int[ids.length - 1];
+            System.arraycopy(ids, 0, novos, 0, pos);
+            System.arraycopy(ids, pos + 1, novos, pos, ids.length - pos - 1);
+            vocabulario.put(termo, novos);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Persistência">
+
+    private void carregar() {
+        File manifesto = new File(pastaIndice, "arquivos.bin");
+        if (!manifesto.isFile()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifesto)))) {
+            if (in.readInt() != MAGICO || in.readInt() != VERSAO) return;
+            int quantidade = in.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                int id = in.readInt();
+                String nome = in.readUTF();
+                long tamanho = in.readLong();
+                long modificado = in.readLong();
+                long hash = in.readLong();
+                Segmento segmento = lerSegmento(id, nome, tamanho, modificado, hash);
+                if (segmento != null) registrar(segmento);
+            }
+        } catch (IOException e) {
+            System.err.println("Índice corrompido, será reconstruído: " + pastaIndice.getPath());
+            segmentosPorNome.clear();
+            segmentosPorId.clear();
+            vocabulario.clear();
+        }
+    }
+
+    private Segmento lerSegmento(int id, String nome, long tamanho, long modificado, long hash) {
+        File arquivo = new File(pastaIndice, id + ".seg");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            byte[] inicios = new byte[in.readInt()];
+            in.readFully(inicios);
+            int quantidade = in.readInt();
+            Map<String, byte[]> postings = new HashMap<>(quantidade * 2);
+            for (int i = 0; i < quantidade; i++) {
+                String termo = in.readUTF();
+                byte[] dados = new byte[in.readInt()];
+                in.readFully(dados);
+                postings.put(termo, dados);
+            }
+            return new Segmento(id, nome, tamanho, modificado, hash, CodificacaoVarint.decodificarCrescente(inicios), postings);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void gravarSegmento(Segmento segmento) {
+        pastaIndice.mkdirs();
+        File arquivo = new File(pastaIndice, segmento.id + ".seg");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo)))) {
+            byte[] inicios = CodificacaoVarint.codificarCrescente(segmento.inicioLinhas, segmento.inicioLinhas.length);
+            out.writeInt(inicios.length);
+            out.write(inicios);
+            out.writeInt(segmento.postings.size());
+            for (Map.Entry<String, byte[]> e : segmento.postings.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar índice: " + arquivo.getPath());
+        }
+    }
+
+    private void gravarManifesto() {
+        pastaIndice.mkdirs();
+        File temporario = new File(pastaIndice, "arquivos.bin.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario)))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeInt(segmentosPorNome.size());
+            for (Segmento segmento : segmentosPorNome.values()) {
+                out.writeInt(segmento.id);
+                out.writeUTF(segmento.nome);
+                out.writeLong(segmento.tamanho);
+                out.writeLong(segmento.modificado);
+                out.writeLong(segmento.hash);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar índice: " + temporario.getPath());
+            return;
+        }
+        File manifesto = new File(pastaIndice, "arquivos.bin");
+        manifesto.delete();
+        temporario.renameTo(manifesto);
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,235 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+import strategy.ModoComparacao;
+import strategy.MyersAproximado;
+
+// Índice de trigramas (em memória) para a busca aproximada: trigrama -> linhas que o contêm.
+// Se um trecho da linha está a até k edições do termo, a linha tem pelo menos
+// (m - 3 + 1) - 3k dos trigramas do termo (cada edição destrói no máximo 3), então só as linhas
+// que atingem essa contagem são conferidas com o Myers. Os trigramas são tirados do texto sem
+// maiúsculas e sem acentos, o que nunca aumenta a distância: serve para qualquer modo de comparação.
+public class IndiceNGramas {
+
+    static final int Q = 3;
+    private static final int LEITURA_DENSA = 256;
+    private static final int MAX_FRACAO_CANDIDATAS = 8;  // acima de 1/8 das linhas, varre
+    private static final ModoComparacao DOBRAMENTO = ModoComparacao.IGNORAR_MAIUSCULAS_E_ACENTOS;
+    private static final Map<String, IndiceNGramas> INDICES = new ConcurrentHashMap<>();
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+    private final Function<File, String> nomes;
+    private CacheResultados.Versao versao;
+    private Map<File, File> representantes = new LinkedHashMap<>();
+    // Por arquivo único: onde cada linha começa e o id global da sua primeira linha
+    private File[] arquivos = new File[0];
+    private long[][] inicioLinhas = new long[0][];
+    private long[] tamanhos = new long[0];
+    private int[] primeiraLinha = new int[0];
+    private int totalLinhas;
+    private Map<Long, int[]> postings = new HashMap<>();
+
+    private IndiceNGramas(File diretorio, FiltroArquivos filtro) {
+        this.diretorio = diretorio;
+        this.filtro = filtro;
+        this.nomes = PercursoArquivos.nomes(diretorio);
+    }
+
+    public static IndiceNGramas obter(File diretorio) {
+        return obter(diretorio, FiltroArquivos.PADRAO);
+    }
+
+    // Um índice por diretório e filtro, reconstruído quando algum arquivo muda
+    public static IndiceNGramas obter(File diretorio, FiltroArquivos filtro) {
+        String chave = diretorio.getAbsoluteFile().toPath().normalize() + "|" + filtro;
+        IndiceNGramas indice = INDICES.computeIfAbsent(chave, c -> new IndiceNGramas(diretorio, filtro));
+        indice.sincronizar();
+        return indice;
+    }
+
+    public synchronized void sincronizar() {
+        CacheResultados.Versao atual = CacheResultados.fotografar(diretorio, filtro);
+        if (atual != null && atual.mesma(versao)) return;
+        construir();
+        versao = atual;
+    }
+
+    // <editor-fold desc="Consulta">
+
+    // Linhas a até padrao.getMaxDistancia() do termo, na ordem dos arquivos (cópias incluídas).
+    // null quando o filtro não compensa: termo curto demais para a distância pedida (não descartaria
+    // nada) ou candidatas demais, em que conferir linha a linha sai mais caro que varrer os arquivos.
+    public synchronized List<ResultadoBusca> buscar(MyersAproximado padrao) {
+        String termo = DOBRAMENTO.dobrar(padrao.getPadrao());
+        int minimo = termo.length() - Q + 1 - Q * padrao.getMaxDistancia();
+        if (minimo <= 0) return null;
+
+        Map<Long, Integer> repeticoes = new HashMap<>();
+        for (int i = 0; i + Q <= termo.length(); i++) repeticoes.merge(trigrama(termo, i), 1, Integer::sum);
+
+        int[] contagem = new int[totalLinhas];
+        for (Map.Entry<Long, Integer> e : repeticoes.entrySet()) {
+            int[] linhas = postings.get(e.getKey());
+            if (linhas == null) continue;
+            for (int id : linhas) contagem[id] += e.getValue();
+        }
+        int candidatasTotal = 0;
+        for (int c : contagem) {
+            if (c >= minimo) candidatasTotal++;
+        }
+        if (candidatasTotal > totalLinhas / MAX_FRACAO_CANDIDATAS) return null;
+
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        for (int a = 0; a < arquivos.length; a++) {
+            int fim = a + 1 < arquivos.length ? primeiraLinha[a + 1] : totalLinhas;
+            int[] candidatas = new int[fim - primeiraLinha[a]];
+            int n = 0;
+            for (int id = primeiraLinha[a]; id < fim; id++) {
+                if (contagem[id] >= minimo) candidatas[n++] = id - primeiraLinha[a];
+            }
+            if (n == 0) continue;
+            List<ResultadoBusca> resultados = new ArrayList<>();
+            confirmarLinhas(a, Arrays.copyOf(candidatas, n), padrao, resultados);
+            if (!resultados.isEmpty()) porArquivo.put(arquivos[a], resultados);
+        }
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+    }
+
+    // Mesma estratégia do IndiceInvertido: leitura inteira com muitos candidatos, seek com poucos
+    private void confirmarLinhas(int a, int[] linhas, MyersAproximado padrao, List<ResultadoBusca> resultados) {
+        File arquivo = arquivos[a];
+        String nome = nomes.apply(arquivo);
+        try {
+            if ((long) linhas.length * LEITURA_DENSA > tamanhos[a]) {
+                byte[] bytes = Files.readAllBytes(arquivo.toPath());
+                for (int indice : linhas) {
+                    int inicio = (int) inicioLinhas[a][indice];
+                    int fim = (int) fimLinha(a, indice);
+                    confirmar(nome, indice + 1, bytes, inicio, fim - inicio, padrao, resultados);
+                }
+                return;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r")) {
+                for (int indice : linhas) {
+                    long inicio = inicioLinhas[a][indice];
+                    byte[] bytes = new byte[(int) (fimLinha(a, indice) - inicio)];
+                    raf.seek(inicio);
+                    raf.readFully(bytes);
+                    confirmar(nome, indice + 1, bytes, 0, bytes.length, padrao, resultados);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + arquivo.getName());
+        }
+    }
+
+    private long fimLinha(int a, int indice) {
+        return indice + 1 < inicioLinhas[a].length ? inicioLinhas[a][indice + 1] : tamanhos[a];
+    }
+
+    private static void confirmar(String nome, int numero, byte[] bytes, int inicio, int tamanho, MyersAproximado padrao,
+                                  List<ResultadoBusca> resultados) {
+        if (tamanho > 0 && bytes[inicio + tamanho - 1] == '\n') tamanho--;
+        if (tamanho > 0 && bytes[inicio + tamanho - 1] == '\r') tamanho--;
+        String linha = new String(bytes, inicio, tamanho, StandardCharsets.UTF_8);
+        int distancia = padrao.distancia(linha);
+        if (distancia >= 0) resultados.add(new ResultadoAproximado(nome, numero, linha, distancia));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Construção">
+
+    private void construir() {
+        List<File> listados = PercursoArquivos.listar(diretorio, filtro);
+        Map<File, File> novosRepresentantes = DeduplicacaoArquivos.representantes(listados);
+        List<File> unicos = DeduplicacaoArquivos.unicos(novosRepresentantes);
+
+        Map<Long, ListaIds> porTrigrama = new HashMap<>();
+        long[][] inicios = new long[unicos.size()][];
+        long[] tamanhosLidos = new long[unicos.size()];
+        int[] primeiras = new int[unicos.size()];
+        int linhas = 0;
+        for (int a = 0; a < unicos.size(); a++) {
+            primeiras[a] = linhas;
+            try {
+                byte[] bytes = Files.readAllBytes(unicos.get(a).toPath());
+                tamanhosLidos[a] = bytes.length;
+                inicios[a] = indexarArquivo(bytes, linhas, porTrigrama);
+            } catch (IOException e) {
+                System.err.println("Erro ao indexar: " + unicos.get(a).getName());
+                inicios[a] = new long[0];
+            }
+            linhas += inicios[a].length;
+        }
+
+        Map<Long, int[]> novasPostings = new HashMap<>(porTrigrama.size() * 2);
+        for (Map.Entry<Long, ListaIds> e : porTrigrama.entrySet()) {
+            novasPostings.put(e.getKey(), Arrays.copyOf(e.getValue().valores, e.getValue().quantidade));
+        }
+
+        representantes = novosRepresentantes;
+        arquivos = unicos.toArray(new File[0]);
+        inicioLinhas = inicios;
+        tamanhos = tamanhosLidos;
+        primeiraLinha = primeiras;
+        totalLinhas = linhas;
+        postings = novasPostings;
+    }
+
+    // Quebra as linhas como o BufferedReader.readLine() e registra os trigramas distintos de cada uma
+    private static long[] indexarArquivo(byte[] bytes, int primeiroId, Map<Long, ListaIds> porTrigrama) {
+        long[] inicios = new long[16];
+        int quantidade = 0;
+        long[] daLinha = new long[64];
+
+        int inicio = 0;
+        while (inicio < bytes.length) {
+            int fim = inicio;
+            while (fim < bytes.length && bytes[fim] != '\n' && bytes[fim] != '\r') fim++;
+            if (quantidade == inicios.length) inicios = Arrays.copyOf(inicios, quantidade * 2);
+            int id = primeiroId + quantidade;
+            inicios[quantidade++] = inicio;
+
+            String linha = DOBRAMENTO.dobrar(new String(bytes, inicio, fim - inicio, StandardCharsets.UTF_8));
+            int n = Math.max(0, linha.length() - Q + 1);
+            if (n > daLinha.length) daLinha = new long[n];
+            for (int i = 0; i < n; i++) daLinha[i] = trigrama(linha, i);
+            Arrays.sort(daLinha, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (i > 0 && daLinha[i] == daLinha[i - 1]) continue;
+                porTrigrama.computeIfAbsent(daLinha[i], t -> new ListaIds()).adicionar(id);
+            }
+
+            if (fim < bytes.length && bytes[fim] == '\r') fim++;
+            if (fim < bytes.length && bytes[fim] == '\n') fim++;
+            inicio = fim;
+        }
+        return Arrays.copyOf(inicios, quantidade);
+    }
+
+    private static long trigrama(String texto, int i) {
+        return ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+    }
+
+    private static final class ListaIds {
+        int[] valores = new int[4];
+        int quantidade;
+
+        void adicionar(int id) {
+            if (quantidade == valores.length) valores = Arrays.copyOf(valores, quantidade * 2);
+            valores[quantidade++] = id;
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,250 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Percurso da árvore de um diretório compartilhado por todas as buscas. Cada subdiretório vira uma
+// tarefa de um ForkJoinPool próprio (listar é espera por metadados, não CPU), lido com um
+// DirectoryStream e um stat por entrada. Links para arquivos entram; links para diretórios não são
+// seguidos (evita ciclos). A ordem final é determinística: os arquivos de um diretório na ordem do
+// DirectoryStream (a mesma do listFiles), seguidos dos de cada subdiretório, na ordem em que apareceram.
+public final class PercursoArquivos {
+
+    // Marca o fim da listagem na fila
+    private static final Object FIM = new Object();
+    // Nas chaves (ver chaves()), separa os subdiretórios dos arquivos, que vêm antes
+    private static final long DIRETORIO = 1L << 32;
+
+    private PercursoArquivos() {
+    }
+
+    // Criado na primeira listagem; as threads do ForkJoinPool são daemon
+    private static final class Pool {
+        static final ForkJoinPool INSTANCIA = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Um arquivo aceito pelo filtro, com os atributos lidos na listagem (só o caminho quando listado para uma Fila)
+    static final class Arquivo {
+        final Path caminho;
+        final Path relativo;
+        final BasicFileAttributes atributos;
+        final long[] chave;
+
+        Arquivo(Path caminho, Path relativo, BasicFileAttributes atributos, long[] chave) {
+            this.caminho = caminho;
+            this.relativo = relativo;
+            this.atributos = atributos;
+            this.chave = chave;
+        }
+    }
+
+    // Todos os arquivos aceitos, na ordem do percurso (lista vazia se a raiz não puder ser listada)
+    public static List<File> listar(File raiz, FiltroArquivos filtro) {
+        List<Arquivo> encontrados = listarComAtributos(raiz, filtro);
+        List<File> arquivos = new ArrayList<>(encontrados.size());
+        for (Arquivo a : encontrados) arquivos.add(a.caminho.toFile());
+        return arquivos;
+    }
+
+    static List<Arquivo> listarComAtributos(File raiz, FiltroArquivos filtro) {
+        if (raiz == null || !raiz.isDirectory()) return new ArrayList<>();
+        return Pool.INSTANCIA.invoke(new ListarDiretorio(raiz.toPath(), null, 1, new long[0], filtro, null));
+    }
+
+    // Chave de cada arquivo aceito (pelo nome relativo com '/') que ordena como o percurso, com
+    // Arrays.compare: a posição de cada diretório do caminho e do arquivo no DirectoryStream do pai.
+    // Não depende do filtro: as chaves de fragmentos diferentes do mesmo diretório se intercalam na
+    // ordem do percurso do diretório inteiro.
+    public static Map<String, long[]> chaves(File raiz, FiltroArquivos filtro) {
+        List<Arquivo> encontrados = listarComAtributos(raiz, filtro);
+        Map<String, long[]> chaves = new HashMap<>(encontrados.size() * 2);
+        for (Arquivo a : encontrados) chaves.put(a.relativo.toString().replace(File.separatorChar, '/'), a.chave);
+        return chaves;
+    }
+
+    // Começa a listar em segundo plano e devolve na hora: os arquivos chegam pela fila limitada
+    // enquanto os diretórios ainda estão sendo lidos, então a leitura começa antes da listagem acabar.
+    // Cheia, a fila segura a listagem: os arquivos à espera de leitura ficam limitados à capacidade. A
+    // ordem final (Fila.ordem(), usada na deduplicação e na junção) ainda guarda um caminho por arquivo
+    // aceito, então a memória cresce com o número de arquivos; atributos e chaves não são guardados.
+    public static Fila percorrer(File raiz, FiltroArquivos filtro, int capacidade) {
+        Fila fila = new Fila(capacidade);
+        if (raiz == null || !raiz.isDirectory()) {
+            Callable<List<Arquivo>> vazia = ArrayList::new;
+            fila.tarefa = ForkJoinTask.adapt(vazia);
+            fila.tarefa.invoke();
+            fila.fila.add(FIM);
+            return fila;
+        }
+        ListarDiretorio listagem = new ListarDiretorio(raiz.toPath(), null, 1, new long[0], filtro, fila);
+        fila.tarefa = Pool.INSTANCIA.submit(ForkJoinTask.adapt(() -> {
+            try {
+                return listagem.invoke();
+            } finally {
+                fila.nanosListagem = System.nanoTime() - fila.inicio;
+                fila.colocar(FIM);
+            }
+        }));
+        return fila;
+    }
+
+    // Caminho de cada arquivo relativo à raiz, com '/' (o próprio nome para os arquivos da raiz)
+    public static Function<File, String> nomes(File raiz) {
+        Path base = raiz.toPath();
+        return arquivo -> {
+            Path caminho = arquivo.toPath();
+            if (base.equals(caminho.getParent())) return arquivo.getName();
+            return base.relativize(caminho).toString().replace(File.separatorChar, '/');
+        };
+    }
+
+    // Fila limitada entre a listagem e quem lê os arquivos; pode ser consumida por várias threads
+    public static final class Fila {
+        private final ArrayBlockingQueue<Object> fila;
+        private final long inicio = System.nanoTime();
+        private ForkJoinTask<List<Arquivo>> tarefa;
+        private volatile boolean cancelada;
+        private volatile long nanosListagem;
+
+        private Fila(int capacidade) {
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+        }
+
+        // Próximo arquivo listado, esperando a listagem se preciso; null quando ela acabou
+        public File proximo() throws InterruptedException {
+            Object item = fila.take();
+            if (item == FIM) {
+                // Devolve o marcador para as outras threads que consomem a fila
+                fila.offer(FIM);
+                return null;
+            }
+            return (File) item;
+        }
+
+        // Todos os arquivos na ordem determinística do percurso; espera a listagem terminar
+        public List<File> ordem() {
+            List<File> arquivos = new ArrayList<>();
+            for (Arquivo a : tarefa.join()) arquivos.add(a.caminho.toFile());
+            return arquivos;
+        }
+
+        // Quem consome desistiu: a listagem para e não fica presa na fila cheia
+        public void cancelar() {
+            cancelada = true;
+            fila.clear();
+        }
+
+        public boolean isCancelada() {
+            return cancelada;
+        }
+
+        // Duração da listagem (parcial, enquanto ela não termina)
+        public long getNanosListagem() {
+            long nanos = nanosListagem;
+            return nanos > 0 ? nanos : System.nanoTime() - inicio;
+        }
+
+        private void colocar(Object item) {
+            try {
+                while (!cancelada && !fila.offer(item, 50, TimeUnit.MILLISECONDS)) {
+                    // Fila cheia: espera quem consome, conferindo de tempos em tempos se desistiram
+                }
+            } catch (InterruptedException e) {
+                cancelada = true;
+                Thread.currentThread().interrupt();
+            }
+            if (cancelada && item == FIM) fila.offer(FIM);
+        }
+    }
+
+    // Lista um diretório; os subdiretórios são disparados assim que aparecem e juntados na ordem
+    private static final class ListarDiretorio extends RecursiveTask<List<Arquivo>> {
+        private final Path diretorio;
+        private final Path relativo;
+        private final int profundidade;
+        private final long[] chave;
+        private final FiltroArquivos filtro;
+        private final Fila fila;
+
+        ListarDiretorio(Path diretorio, Path relativo, int profundidade, long[] chave, FiltroArquivos filtro, Fila fila) {
+            this.diretorio = diretorio;
+            this.relativo = relativo;
+            this.profundidade = profundidade;
+            this.chave = chave;
+            this.filtro = filtro;
+            this.fila = fila;
+        }
+
+        @Override
+        protected List<Arquivo> compute() {
+            List<Arquivo> arquivos = new ArrayList<>();
+            List<ListarDiretorio> subdiretorios = new ArrayList<>();
+            try (DirectoryStream<Path> conteudo = Files.newDirectoryStream(diretorio)) {
+                long posicao = -1;
+                for (Path caminho : conteudo) {
+                    if (fila != null && fila.cancelada) break;
+                    posicao++;
+                    Path nome = caminho.getFileName();
+                    Path relativoEntrada = relativo == null ? nome : relativo.resolve(nome);
+                    BasicFileAttributes atributos = atributos(caminho);
+                    if (atributos == null) continue;
+                    if (atributos.isDirectory()) {
+                        if (!filtro.desceDiretorio(relativoEntrada, profundidade)) continue;
+                        ListarDiretorio sub = new ListarDiretorio(caminho, relativoEntrada, profundidade + 1,
+                                estender(DIRETORIO | posicao), filtro, fila);
+                        sub.fork();
+                        subdiretorios.add(sub);
+                    } else if (atributos.isRegularFile() && filtro.aceitaArquivo(relativoEntrada, profundidade)) {
+                        if (fila == null) {
+                            arquivos.add(new Arquivo(caminho, relativoEntrada, atributos, estender(posicao)));
+                        } else {
+                            // O ordem() só precisa do caminho
+                            arquivos.add(new Arquivo(caminho, null, null, null));
+                            fila.colocar(caminho.toFile());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao listar: " + diretorio);
+            }
+            for (ListarDiretorio sub : subdiretorios) arquivos.addAll(sub.join());
+            return arquivos;
+        }
+
+        private long[] estender(long posicao) {
+            long[] estendida = Arrays.copyOf(chave, chave.length + 1);
+            estendida[chave.length] = posicao;
+            return estendida;
+        }
+
+        // Links simbólicos: o atributo do alvo, mas diretórios apontados por link ficam de fora
+        private static BasicFileAttributes atributos(Path caminho) {
+            try {
+                BasicFileAttributes atributos = Files.readAttributes(caminho, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (!atributos.isSymbolicLink()) return atributos;
+                BasicFileAttributes alvo = Files.readAttributes(caminho, BasicFileAttributes.class);
+                return alvo.isRegularFile() ? alvo : null;
+            } catch (IOException e) {
+                // Apagado durante a listagem ou link quebrado
+                return null;
+            }
+        }
+    }
+}
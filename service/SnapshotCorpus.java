@@ -0,0 +1,964 @@
+package service;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.ResultadoBusca;
+import model.ResultadosCompactos;
+import strategy.PadraoCompilado;
+
+// Fotografia binária do corpus de um diretório, gravada ao lado dele em segmentos mapeados em memória:
+// abrir é só ler os cabeçalhos, e o heap não cresce com o tamanho do corpus. Serve o autocomplete
+// (chaves ordenadas, busca binária pelo prefixo) e a busca "snapshot" (cada linha distinta é comparada
+// uma vez só, os acertos são lidos do próprio segmento).
+//
+// Segmentos: uma base (.<diretorio>.snapshot.<geração>) e deltas (.<diretorio>.snapshot.<geração>.<n>)
+// com só os arquivos que mudaram desde o anterior; um arquivo apagado vira um registro sem linhas. Na
+// consulta, o registro mais novo de cada nome vale; os arquivos novos são encaixados entre os da base
+// pelas chaves do percurso (PercursoArquivos.chaves, uma listagem sem leitura na primeira busca). Com
+// deltas demais (ou grandes demais) a base é regravada em segundo plano numa geração nova. A geração anterior fica no disco até a compactação seguinte:
+// resultados já devolvidos (e os do cache) continuam lendo as linhas dos segmentos em que estão.
+//
+// Formato de cada segmento (inteiros big-endian; posições absolutas no arquivo, abaixo de 2 GB):
+//   cabeçalho   MAGICO, VERSAO, arquivos, textos, chaves, linhas, início de cada seção, tamanho,
+//               geração e número do delta (0 na base)
+//   textos      cada linha distinta do segmento (bytes originais) seguida de '\n'
+//   posicoes    int[textos]: início de cada texto
+//   chaves      int[chaves]: textos cujo nome (a linha sem espaços nas pontas) não é vazio, um por
+//               nome sem diferenciar maiúsculas (a primeira grafia vista), em ordem alfabética
+//   arquivos    por arquivo, na ordem do percurso: nome, tamanho, data, hash, primeira linha e total
+//               (primeira linha -1: arquivo apagado)
+//   nomes       caminhos relativos à raiz, com '/'
+//   linhas      int[linhas]: o texto de cada linha de cada arquivo (cópias idênticas dividem o trecho)
+public final class SnapshotCorpus {
+
+    private static final int MAGICO = 0x534E4150;  // "SNAP"
+    private static final int VERSAO = 2;
+    private static final int CABECALHO = 64;
+    private static final int REGISTRO_ARQUIVO = 40;
+    private static final int APAGADO = -1;
+
+    // Compacta com mais deltas que isso, ou quando as linhas deles passam de 1/FRACAO_DELTAS das da base
+    private static final int MAX_DELTAS = 8;
+    private static final int FRACAO_DELTAS = 4;
+
+    // Estado de cada diretório e filtro; criado sem IO, que fica sob o monitor do próprio Estado
+    private static final Map<String, Estado> ESTADOS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService COMPACTACAO = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "compactacao-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+    // [0] é a base, os outros são os deltas em ordem
+    private final Segmento[] segmentos;
+    // Registro mais novo de cada nome que aparece nos deltas: {segmento, registro}
+    private final Map<String, int[]> ultimos = new HashMap<>();
+    // Registros da base trocados por um delta, e os nomes que a base não tem, na ordem em que apareceram
+    private final Map<Integer, int[]> substitutos = new HashMap<>();
+    private final List<int[]> novos = new ArrayList<>();
+    private final int arquivos;
+    // Por segmento, textos que só aparecem em registros trocados ou apagados (montado no primeiro sugerir)
+    private BitSet[] mortos;
+    // Os 'novos' na ordem do percurso: {segmento, registro, registro da base antes do qual entra}
+    // (montado na primeira busca)
+    private int[][] encaixados;
+
+    // O overlay custa O(registros dos deltas); o mapa de nomes da base só é montado quando há deltas
+    private SnapshotCorpus(File diretorio, FiltroArquivos filtro, Segmento[] segmentos) {
+        this.diretorio = diretorio;
+        this.filtro = filtro;
+        this.segmentos = segmentos;
+        Map<String, int[]> emOrdem = new LinkedHashMap<>();
+        for (int s = 1; s < segmentos.length; s++) {
+            for (int a = 0; a < segmentos[s].arquivos; a++) emOrdem.put(segmentos[s].nome(a), new int[]{s, a});
+        }
+        ultimos.putAll(emOrdem);
+        Map<String, Integer> daBase = emOrdem.isEmpty() ? Map.of() : segmentos[0].registros();
+        int vivos = segmentos[0].arquivos;
+        for (Map.Entry<String, int[]> e : emOrdem.entrySet()) {
+            Integer registro = daBase.get(e.getKey());
+            boolean vivo = vivo(e.getValue());
+            if (registro != null) {
+                substitutos.put(registro, e.getValue());
+                if (!vivo) vivos--;
+            } else if (vivo) {
+                novos.add(e.getValue());
+                vivos++;
+            }
+        }
+        this.arquivos = vivos;
+    }
+
+    public static SnapshotCorpus obter(File diretorio) {
+        return obter(diretorio, FiltroArquivos.PADRAO);
+    }
+
+    // A fotografia em dia com a árvore. Se o VigiaDiretorios não viu mudança desde a última conferência,
+    // devolve a atual sem IO e sem trava. Senão grava um delta só com os arquivos que mudaram (os
+    // citados pelo vigia ou, sem ele, os que a listagem mostra diferentes). null se não deu para gravar.
+    public static SnapshotCorpus obter(File diretorio, FiltroArquivos filtro) {
+        if (diretorio == null) return null;
+        Estado estado = estado(diretorio, filtro);
+        long versao = VigiaDiretorios.versao(diretorio);
+        // Nessa ordem: o Estado troca a fotografia antes da versão
+        long conferida = estado.versao;
+        SnapshotCorpus atual = estado.atual;
+        if (versao >= 0 && versao == conferida && atual != null) return atual;
+        if (!diretorio.isDirectory()) return null;
+        return estado.conferir(versao);
+    }
+
+    // A última fotografia gravada, sem conferir a árvore (nem listar): para subir na hora e deixar
+    // o obter() para depois, fora da thread de quem chamou. null se ainda não existe.
+    public static SnapshotCorpus ultimo(File diretorio, FiltroArquivos filtro) {
+        if (diretorio == null || !diretorio.isDirectory()) return null;
+        return estado(diretorio, filtro).carregar();
+    }
+
+    private static Estado estado(File diretorio, FiltroArquivos filtro) {
+        String chave = diretorio.getAbsoluteFile().toPath().normalize() + "|" + filtro;
+        return ESTADOS.computeIfAbsent(chave, c -> new Estado(diretorio, filtro));
+    }
+
+    // Mesmo esquema de nomes do IndiceInvertido: filtros diferentes do padrão ganham o hash no nome
+    private static String prefixo(File diretorio, FiltroArquivos filtro) {
+        String sufixo = filtro.equals(FiltroArquivos.PADRAO) ? "" : "." + Integer.toHexString(filtro.hashCode());
+        return "." + diretorio.getName() + sufixo + ".snapshot";
+    }
+
+    private static File arquivoSegmento(File diretorio, FiltroArquivos filtro, int geracao, int sequencia) {
+        String nome = prefixo(diretorio, filtro) + "." + geracao + (sequencia == 0 ? "" : "." + sequencia);
+        return new File(diretorio.getAbsoluteFile().getParentFile(), nome);
+    }
+
+    public File getDiretorio() {
+        return diretorio;
+    }
+
+    public FiltroArquivos getFiltro() {
+        return filtro;
+    }
+
+    // A base; os deltas ficam ao lado dela
+    public File getArquivo() {
+        return segmentos[0].arquivo;
+    }
+
+    // Deltas ainda não compactados
+    public int getDeltas() {
+        return segmentos.length - 1;
+    }
+
+    public int getArquivos() {
+        return arquivos;
+    }
+
+    // Linhas guardadas em todos os segmentos (cópias idênticas contam uma vez por segmento)
+    public int getLinhas() {
+        int total = 0;
+        for (Segmento s : segmentos) total += s.linhas;
+        return total;
+    }
+
+    // Linhas distintas de cada segmento, somadas
+    public int getTextos() {
+        int total = 0;
+        for (Segmento s : segmentos) total += s.textos;
+        return total;
+    }
+
+    // Nomes do autocomplete em todos os segmentos (o mesmo nome pode estar em mais de um)
+    public int getChaves() {
+        int total = 0;
+        for (Segmento s : segmentos) total += s.chaves;
+        return total;
+    }
+
+    // <editor-fold desc="Consulta">
+
+    // Até 'limite' nomes que começam com o prefixo, em ordem alfabética (sem diferenciar maiúsculas):
+    // acha o primeiro de cada segmento por busca binária e junta as listas enquanto
+    // o prefixo casar, pulando os nomes de linhas que já saíram do corpus.
+    public List<String> sugerir(String prefixo, int limite) {
+        List<String> sugestoes = new ArrayList<>();
+        if (limite <= 0) return sugestoes;
+        String alvo = dobrar(prefixo);
+        BitSet[] mortos = mortos();
+        int[] proximos = new int[segmentos.length];
+        for (int s = 0; s < segmentos.length; s++) proximos[s] = segmentos[s].primeiraChave(alvo);
+
+        String ultimo = null;
+        while (sugestoes.size() < limite) {
+            int melhor = -1;
+            String menor = null;
+            for (int s = 0; s < segmentos.length; s++) {
+                if (proximos[s] >= segmentos[s].chaves) continue;
+                String dobrado = dobrar(segmentos[s].chave(proximos[s]));
+                if (!dobrado.startsWith(alvo)) {
+                    proximos[s] = segmentos[s].chaves;
+                    continue;
+                }
+                if (menor == null || dobrado.compareTo(menor) < 0) {
+                    menor = dobrado;
+                    melhor = s;
+                }
+            }
+            if (melhor < 0) break;
+            int chave = proximos[melhor]++;
+            if (mortos[melhor].get(segmentos[melhor].idChave(chave))) continue;
+            // O mesmo nome em mais de um segmento: vale a grafia do primeiro
+            if (!menor.equals(ultimo)) sugestoes.add(segmentos[melhor].chave(chave));
+            ultimo = menor;
+        }
+        return sugestoes;
+    }
+
+    // Suspeitos são os textos dos registros trocados ou apagados; os que ainda aparecem num registro
+    // valendo são liberados. Sem deltas não há nada a conferir; com eles, a base é percorrida uma vez
+    // (só os ids das linhas, do mapeamento) se algum registro dela foi trocado.
+    private synchronized BitSet[] mortos() {
+        if (mortos != null) return mortos;
+        BitSet[] suspeitos = new BitSet[segmentos.length];
+        for (int s = 0; s < segmentos.length; s++) suspeitos[s] = new BitSet();
+        for (int a : substitutos.keySet()) marcar(0, a, suspeitos[0], true);
+        for (int s = 1; s < segmentos.length; s++) {
+            for (int a = 0; a < segmentos[s].arquivos; a++) {
+                // Um delta mais novo trocou este registro
+                if (ultimos.get(segmentos[s].nome(a))[0] != s) marcar(s, a, suspeitos[s], true);
+            }
+        }
+        if (!suspeitos[0].isEmpty()) {
+            for (int a = 0; a < segmentos[0].arquivos; a++) {
+                if (!substitutos.containsKey(a)) marcar(0, a, suspeitos[0], false);
+            }
+        }
+        for (int[] registro : ultimos.values()) {
+            if (!suspeitos[registro[0]].isEmpty()) marcar(registro[0], registro[1], suspeitos[registro[0]], false);
+        }
+        mortos = suspeitos;
+        return mortos;
+    }
+
+    private void marcar(int s, int registro, BitSet textos, boolean valor) {
+        Segmento segmento = segmentos[s];
+        int primeira = segmento.primeira(registro);
+        if (primeira == APAGADO) return;
+        int total = segmento.total(registro);
+        for (int l = 0; l < total; l++) textos.set(segmento.texto(primeira + l), valor);
+    }
+
+    // As linhas que casam, na ordem do percurso. Cada texto distinto de cada segmento é comparado uma
+    // vez; os resultados guardam só a linha e a posição do texto no segmento, de onde o conteúdo é lido
+    // se alguém pedir.
+    public List<ResultadoBusca> buscar(PadraoCompilado padrao) {
+        BitSet[] casam = new BitSet[segmentos.length];
+        boolean algum = false;
+        for (int s = 0; s < segmentos.length; s++) {
+            casam[s] = segmentos[s].casam(padrao);
+            algum |= !casam[s].isEmpty();
+        }
+
+        ResultadosCompactos resultados = new ResultadosCompactos();
+        if (!algum) return resultados;
+        Segmento base = segmentos[0];
+        int[][] encaixe = novos.isEmpty() ? new int[0][] : encaixados();
+        int proximo = 0;
+        for (int a = 0; a < base.arquivos; a++) {
+            while (proximo < encaixe.length && encaixe[proximo][2] == a) {
+                emitir(encaixe[proximo][0], encaixe[proximo][1], casam, resultados);
+                proximo++;
+            }
+            int[] substituto = substitutos.isEmpty() ? null : substitutos.get(a);
+            if (substituto == null) emitir(0, a, casam, resultados);
+            else emitir(substituto[0], substituto[1], casam, resultados);
+        }
+        for (; proximo < encaixe.length; proximo++) emitir(encaixe[proximo][0], encaixe[proximo][1], casam, resultados);
+        return resultados;
+    }
+
+    // A base está na ordem do percurso: cada novo entra antes do primeiro registro da base com chave
+    // maior. Registros da base que saíram da árvore (sem chave) não servem de referência; um novo que
+    // sumiu desde a gravação vai para o fim (não tem linhas para emitir de qualquer jeito).
+    private synchronized int[][] encaixados() {
+        if (encaixados != null) return encaixados;
+        Map<String, long[]> chaves = PercursoArquivos.chaves(diretorio, filtro);
+        long[] fim = {Long.MAX_VALUE};
+        int[][] emOrdem = new int[novos.size()][];
+        long[][] chavesNovos = new long[novos.size()][];
+        Integer[] indices = new Integer[novos.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+            chavesNovos[i] = chaves.getOrDefault(segmentos[novos.get(i)[0]].nome(novos.get(i)[1]), fim);
+        }
+        Arrays.sort(indices, (x, y) -> Arrays.compare(chavesNovos[x], chavesNovos[y]));
+
+        Segmento base = segmentos[0];
+        int a = 0;
+        for (int i = 0; i < indices.length; i++) {
+            long[] chave = chavesNovos[indices[i]];
+            while (a < base.arquivos) {
+                long[] daBase = chaves.get(base.nome(a));
+                if (daBase != null && Arrays.compare(daBase, chave) > 0) break;
+                a++;
+            }
+            int[] novo = novos.get(indices[i]);
+            emOrdem[i] = new int[]{novo[0], novo[1], a};
+        }
+        encaixados = emOrdem;
+        return encaixados;
+    }
+
+    private void emitir(int s, int registro, BitSet[] casam, ResultadosCompactos resultados) {
+        Segmento segmento = segmentos[s];
+        int primeira = segmento.primeira(registro);
+        if (primeira == APAGADO || casam[s].isEmpty()) return;
+        int total = segmento.total(registro);
+        boolean novo = true;
+        for (int l = 0; l < total; l++) {
+            int id = segmento.texto(primeira + l);
+            if (!casam[s].get(id)) continue;
+            if (novo) {
+                resultados.novoArquivo(segmento.nome(registro), segmento.arquivo);
+                novo = false;
+            }
+            resultados.adicionar(l + 1, segmento.posicao(id));
+        }
+    }
+
+    // {segmento, registro} do nome, ou null se a fotografia nunca o viu
+    private int[] localizar(String nome) {
+        int[] registro = ultimos.get(nome);
+        if (registro != null) return registro;
+        Integer daBase = segmentos[0].registros().get(nome);
+        return daBase != null ? new int[]{0, daBase} : null;
+    }
+
+    private boolean vivo(int[] registro) {
+        return registro != null && segmentos[registro[0]].primeira(registro[1]) != APAGADO;
+    }
+
+    private boolean mesmo(int[] registro, long tamanho, long modificado) {
+        if (!vivo(registro)) return false;
+        Segmento segmento = segmentos[registro[0]];
+        return segmento.tamanho(registro[1]) == tamanho && segmento.modificado(registro[1]) == modificado;
+    }
+
+    // Nomes dos arquivos presentes na fotografia
+    private Set<String> nomes() {
+        Set<String> nomes = new HashSet<>();
+        Segmento base = segmentos[0];
+        for (int a = 0; a < base.arquivos; a++) {
+            if (!substitutos.containsKey(a)) nomes.add(base.nome(a));
+        }
+        for (Map.Entry<String, int[]> e : ultimos.entrySet()) {
+            if (vivo(e.getValue())) nomes.add(e.getKey());
+        }
+        return nomes;
+    }
+
+    // Mesma regra do String.CASE_INSENSITIVE_ORDER
+    private static String dobrar(String texto) {
+        char[] dobrado = new char[texto.length()];
+        for (int i = 0; i < dobrado.length; i++) {
+            dobrado[i] = Character.toLowerCase(Character.toUpperCase(texto.charAt(i)));
+        }
+        return new String(dobrado);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Estado e atualização">
+
+    // Fotografia atual de um diretório e filtro e a versão do vigia com que ela foi conferida
+    private static final class Estado {
+        private final File diretorio;
+        private final FiltroArquivos filtro;
+        private volatile SnapshotCorpus atual;
+        private volatile long versao = -1;
+        private boolean carregado;
+        private boolean compactando;
+
+        Estado(File diretorio, FiltroArquivos filtro) {
+            this.diretorio = diretorio;
+            this.filtro = filtro;
+        }
+
+        synchronized SnapshotCorpus carregar() {
+            if (!carregado) {
+                atual = abrirUltima(diretorio, filtro);
+                carregado = true;
+            }
+            return atual;
+        }
+
+        // 'versao' lida antes de conferir: o que mudar durante a conferência fica para a próxima
+        synchronized SnapshotCorpus conferir(long versao) {
+            SnapshotCorpus anterior = carregar();
+            if (versao >= 0 && versao == this.versao && anterior != null) return anterior;
+            Set<String> mudancas = anterior != null && versao >= 0 && this.versao >= 0
+                    ? VigiaDiretorios.mudancasDesde(diretorio, this.versao) : null;
+            SnapshotCorpus novo = mudancas != null ? aplicar(anterior, mudancas) : reconciliar(anterior);
+            if (novo == null) return anterior;
+            atual = novo;
+            this.versao = versao;
+            agendarCompactacao(novo);
+            return novo;
+        }
+
+        // Só os nomes citados pelo vigia: um stat por nome, nada de listar a árvore
+        private SnapshotCorpus aplicar(SnapshotCorpus anterior, Set<String> mudancas) {
+            List<Entrada> entradas = new ArrayList<>();
+            for (String nome : mudancas) {
+                if (!filtro.aceitaNome(nome)) continue;
+                File arquivo = new File(diretorio, nome);
+                int[] registro = anterior.localizar(nome);
+                if (arquivo.isFile()) {
+                    long tamanho = arquivo.length();
+                    long modificado = arquivo.lastModified();
+                    if (!anterior.mesmo(registro, tamanho, modificado)) {
+                        entradas.add(Entrada.lida(nome, arquivo.toPath(), tamanho, modificado));
+                    }
+                } else if (anterior.vivo(registro)) {
+                    entradas.add(Entrada.apagada(nome));
+                }
+            }
+            return gravarDelta(anterior, entradas);
+        }
+
+        // Sem fotografia, ou sem saber o que mudou: lista a árvore e compara com a fotografia
+        private SnapshotCorpus reconciliar(SnapshotCorpus anterior) {
+            List<PercursoArquivos.Arquivo> listagem = PercursoArquivos.listarComAtributos(diretorio, filtro);
+            if (anterior == null) {
+                List<Entrada> entradas = new ArrayList<>();
+                for (PercursoArquivos.Arquivo a : listagem) entradas.add(Entrada.lida(a));
+                int geracao = proximaGeracao(diretorio, filtro);
+                Segmento base = gravar(arquivoSegmento(diretorio, filtro, geracao, 0), entradas, geracao, 0);
+                return base == null ? null : new SnapshotCorpus(diretorio, filtro, new Segmento[]{base});
+            }
+
+            List<Entrada> entradas = new ArrayList<>();
+            Set<String> presentes = new HashSet<>();
+            for (PercursoArquivos.Arquivo a : listagem) {
+                String nome = nomeRelativo(a);
+                presentes.add(nome);
+                if (!anterior.mesmo(anterior.localizar(nome), a.atributos.size(), a.atributos.lastModifiedTime().toMillis())) {
+                    entradas.add(Entrada.lida(a));
+                }
+            }
+            for (String nome : anterior.nomes()) {
+                if (!presentes.contains(nome)) entradas.add(Entrada.apagada(nome));
+            }
+            return gravarDelta(anterior, entradas);
+        }
+
+        private SnapshotCorpus gravarDelta(SnapshotCorpus anterior, List<Entrada> entradas) {
+            if (entradas.isEmpty()) return anterior;
+            int geracao = anterior.segmentos[0].geracao;
+            int sequencia = anterior.segmentos.length;
+            Segmento delta = gravar(arquivoSegmento(diretorio, filtro, geracao, sequencia), entradas, geracao, sequencia);
+            if (delta == null) return null;
+            Segmento[] segmentos = Arrays.copyOf(anterior.segmentos, sequencia + 1);
+            segmentos[sequencia] = delta;
+            return new SnapshotCorpus(diretorio, filtro, segmentos);
+        }
+
+        private void agendarCompactacao(SnapshotCorpus fotografia) {
+            if (compactando || !fotografia.precisaCompactar()) return;
+            compactando = true;
+            COMPACTACAO.execute(this::compactar);
+        }
+
+        // Regrava a base fora do monitor: só a troca no fim segura as consultas que precisam conferir
+        private void compactar() {
+            SnapshotCorpus origem;
+            synchronized (this) {
+                origem = atual;
+            }
+            Segmento base = null;
+            int geracao = origem.segmentos[0].geracao + 1;
+            try {
+                List<Entrada> entradas = new ArrayList<>();
+                for (PercursoArquivos.Arquivo a : PercursoArquivos.listarComAtributos(diretorio, filtro)) {
+                    int[] registro = origem.localizar(nomeRelativo(a));
+                    // Não mudou: as linhas vêm do segmento, sem reler o arquivo
+                    if (origem.mesmo(registro, a.atributos.size(), a.atributos.lastModifiedTime().toMillis())) {
+                        entradas.add(Entrada.copiada(nomeRelativo(a), origem.segmentos[registro[0]], registro[1]));
+                    } else {
+                        entradas.add(Entrada.lida(a));
+                    }
+                }
+                base = gravar(arquivoSegmento(diretorio, filtro, geracao, 0), entradas, geracao, 0);
+            } finally {
+                synchronized (this) {
+                    compactando = false;
+                    if (base != null) trocarBase(origem, base);
+                }
+            }
+        }
+
+        // Deltas gravados durante a compactação: os nomes deles são conferidos de novo sobre a base nova
+        private void trocarBase(SnapshotCorpus origem, Segmento base) {
+            SnapshotCorpus antes = atual;
+            SnapshotCorpus compactado = new SnapshotCorpus(diretorio, filtro, new Segmento[]{base});
+            Set<String> depois = new LinkedHashSet<>();
+            if (antes.segmentos[0] == origem.segmentos[0]) {
+                for (int s = origem.segmentos.length; s < antes.segmentos.length; s++) {
+                    Segmento delta = antes.segmentos[s];
+                    for (int a = 0; a < delta.arquivos; a++) depois.add(delta.nome(a));
+                }
+            }
+            SnapshotCorpus aplicado = depois.isEmpty() ? compactado : aplicar(compactado, depois);
+            atual = aplicado != null ? aplicado : compactado;
+            apagarAntigos(diretorio, filtro, base.geracao);
+        }
+    }
+
+    private boolean precisaCompactar() {
+        if (segmentos.length == 1) return false;
+        if (segmentos.length > MAX_DELTAS) return true;
+        long linhasDeltas = 0;
+        for (int s = 1; s < segmentos.length; s++) linhasDeltas += segmentos[s].linhas;
+        return linhasDeltas * FRACAO_DELTAS > segmentos[0].linhas;
+    }
+
+    // Um arquivo a gravar: lido do disco, copiado de um segmento anterior ou apagado
+    private static final class Entrada {
+        final String nome;
+        final Path caminho;
+        final long tamanho;
+        final long modificado;
+        final Segmento origem;
+        final int registro;
+
+        private Entrada(String nome, Path caminho, long tamanho, long modificado, Segmento origem, int registro) {
+            this.nome = nome;
+            this.caminho = caminho;
+            this.tamanho = tamanho;
+            this.modificado = modificado;
+            this.origem = origem;
+            this.registro = registro;
+        }
+
+        static Entrada lida(PercursoArquivos.Arquivo a) {
+            return lida(nomeRelativo(a), a.caminho, a.atributos.size(), a.atributos.lastModifiedTime().toMillis());
+        }
+
+        static Entrada lida(String nome, Path caminho, long tamanho, long modificado) {
+            return new Entrada(nome, caminho, tamanho, modificado, null, 0);
+        }
+
+        static Entrada copiada(String nome, Segmento origem, int registro) {
+            return new Entrada(nome, null, origem.tamanho(registro), origem.modificado(registro), origem, registro);
+        }
+
+        static Entrada apagada(String nome) {
+            return new Entrada(nome, null, 0, 0, null, 0);
+        }
+
+        boolean isApagada() {
+            return caminho == null && origem == null;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Segmentos no disco">
+
+    // A base de maior geração que abre e os deltas dela em sequência, parando no primeiro que faltar ou
+    // não abrir (gravação interrompida). Apaga o que não serve mais: gerações velhas, deltas órfãos,
+    // temporários e o arquivo do formato antigo.
+    private static SnapshotCorpus abrirUltima(File diretorio, FiltroArquivos filtro) {
+        File pasta = diretorio.getAbsoluteFile().getParentFile();
+        String prefixo = prefixo(diretorio, filtro);
+        new File(pasta, prefixo).delete();
+        File[] encontrados = pasta.listFiles((d, nome) -> nome.startsWith(prefixo + "."));
+        if (encontrados == null) return null;
+
+        TreeMap<Integer, TreeMap<Integer, File>> porGeracao = new TreeMap<>(Comparator.reverseOrder());
+        for (File f : encontrados) {
+            int[] numeros = numeros(f.getName().substring(prefixo.length() + 1));
+            if (numeros == null) {
+                f.delete();
+                continue;
+            }
+            porGeracao.computeIfAbsent(numeros[0], g -> new TreeMap<>()).put(numeros[1], f);
+        }
+        for (Map.Entry<Integer, TreeMap<Integer, File>> g : porGeracao.entrySet()) {
+            int geracao = g.getKey();
+            File arquivoBase = g.getValue().get(0);
+            Segmento base = arquivoBase == null ? null : Segmento.abrir(arquivoBase, geracao, 0);
+            if (base == null) continue;
+            List<Segmento> segmentos = new ArrayList<>();
+            segmentos.add(base);
+            for (Map.Entry<Integer, File> d : g.getValue().tailMap(1).entrySet()) {
+                Segmento delta = d.getKey() == segmentos.size() ? Segmento.abrir(d.getValue(), geracao, d.getKey()) : null;
+                if (delta == null) {
+                    d.getValue().delete();
+                    continue;
+                }
+                segmentos.add(delta);
+            }
+            apagarAntigos(diretorio, filtro, geracao);
+            return new SnapshotCorpus(diretorio, filtro, segmentos.toArray(new Segmento[0]));
+        }
+        return null;
+    }
+
+    // "<geração>" ou "<geração>.<delta>"; null para o resto (ex.: temporários)
+    private static int[] numeros(String sufixo) {
+        String[] partes = sufixo.split("\\.");
+        try {
+            if (partes.length == 1) return new int[]{Integer.parseInt(partes[0]), 0};
+            if (partes.length == 2) return new int[]{Integer.parseInt(partes[0]), Integer.parseInt(partes[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static int proximaGeracao(File diretorio, FiltroArquivos filtro) {
+        String prefixo = prefixo(diretorio, filtro);
+        File[] encontrados = diretorio.getAbsoluteFile().getParentFile().listFiles((d, nome) -> nome.startsWith(prefixo + "."));
+        int maior = 0;
+        if (encontrados != null) {
+            for (File f : encontrados) {
+                int[] numeros = numeros(f.getName().substring(prefixo.length() + 1));
+                if (numeros != null) maior = Math.max(maior, numeros[0]);
+            }
+        }
+        return maior + 1;
+    }
+
+    // Guarda a geração atual e a anterior (ainda lida por resultados devolvidos antes da compactação)
+    private static void apagarAntigos(File diretorio, FiltroArquivos filtro, int geracao) {
+        String prefixo = prefixo(diretorio, filtro);
+        File[] encontrados = diretorio.getAbsoluteFile().getParentFile().listFiles((d, nome) -> nome.startsWith(prefixo + "."));
+        if (encontrados == null) return;
+        for (File f : encontrados) {
+            int[] numeros = numeros(f.getName().substring(prefixo.length() + 1));
+            if (numeros != null && numeros[0] < geracao - 1) f.delete();
+        }
+    }
+
+    private static String nomeRelativo(PercursoArquivos.Arquivo arquivo) {
+        return arquivo.relativo.toString().replace(File.separatorChar, '/');
+    }
+
+    // Um arquivo de segmento mapeado inteiro; o canal pode ser fechado, o mapeamento continua valendo
+    private static final class Segmento {
+        final File arquivo;
+        final MappedByteBuffer buf;
+        final int arquivos;
+        final int textos;
+        final int chaves;
+        final int linhas;
+        final int inicioPosicoes;
+        final int inicioChaves;
+        final int inicioArquivos;
+        final int inicioLinhas;
+        final int geracao;
+        // Nome -> registro, montado na primeira vez que um delta precisa dele
+        private Map<String, Integer> registros;
+
+        private Segmento(File arquivo, MappedByteBuffer buf) {
+            this.arquivo = arquivo;
+            this.buf = buf;
+            this.arquivos = buf.getInt(8);
+            this.textos = buf.getInt(12);
+            this.chaves = buf.getInt(16);
+            this.linhas = buf.getInt(20);
+            this.inicioPosicoes = buf.getInt(28);
+            this.inicioChaves = buf.getInt(32);
+            this.inicioArquivos = buf.getInt(36);
+            this.inicioLinhas = buf.getInt(44);
+            this.geracao = buf.getInt(52);
+        }
+
+        static Segmento abrir(File arquivo, int geracao, int sequencia) {
+            if (!arquivo.isFile()) return null;
+            try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+                long tamanho = canal.size();
+                if (tamanho < CABECALHO || tamanho > Integer.MAX_VALUE) return null;
+                MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+                // Versão antiga ou gravação interrompida: é descartado
+                if (buf.getInt(0) != MAGICO || buf.getInt(4) != VERSAO || buf.getInt(48) != tamanho
+                        || buf.getInt(52) != geracao || buf.getInt(56) != sequencia) {
+                    return null;
+                }
+                return new Segmento(arquivo, buf);
+            } catch (IOException e) {
+                System.err.println("Erro ao abrir snapshot: " + arquivo.getPath());
+                return null;
+            }
+        }
+
+        synchronized Map<String, Integer> registros() {
+            if (registros == null) {
+                Map<String, Integer> mapa = new HashMap<>(arquivos * 2);
+                for (int a = 0; a < arquivos; a++) mapa.put(nome(a), a);
+                registros = mapa;
+            }
+            return registros;
+        }
+
+        BitSet casam(PadraoCompilado padrao) {
+            BitSet casam = new BitSet(textos);
+            byte[] bytes = new byte[256];
+            for (int id = 0; id < textos; id++) {
+                int inicio = posicao(id);
+                int tamanho = fimTexto(id) - inicio;
+                if (tamanho > bytes.length) bytes = new byte[Math.max(tamanho, bytes.length * 2)];
+                buf.get(inicio, bytes, 0, tamanho);
+                if (padrao.contem(new String(bytes, 0, tamanho, StandardCharsets.UTF_8))) casam.set(id);
+            }
+            return casam;
+        }
+
+        // Primeira chave >= alvo (já dobrado)
+        int primeiraChave(String alvo) {
+            int de = 0;
+            int ate = chaves;
+            while (de < ate) {
+                int meio = (de + ate) >>> 1;
+                if (dobrar(chave(meio)).compareTo(alvo) < 0) de = meio + 1;
+                else ate = meio;
+            }
+            return de;
+        }
+
+        int posicao(int id) {
+            return buf.getInt(inicioPosicoes + id * 4);
+        }
+
+        // Antes do '\n' que encerra o texto
+        int fimTexto(int id) {
+            return (id + 1 < textos ? posicao(id + 1) : inicioPosicoes) - 1;
+        }
+
+        String textoEm(int id) {
+            int inicio = posicao(id);
+            byte[] bytes = new byte[fimTexto(id) - inicio];
+            buf.get(inicio, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String chave(int i) {
+            return textoEm(idChave(i)).trim();
+        }
+
+        int idChave(int i) {
+            return buf.getInt(inicioChaves + i * 4);
+        }
+
+        // Id do texto da linha 'linha' (contada na seção de linhas do segmento)
+        int texto(int linha) {
+            return buf.getInt(inicioLinhas + linha * 4);
+        }
+
+        String nome(int a) {
+            int registro = inicioArquivos + a * REGISTRO_ARQUIVO;
+            byte[] bytes = new byte[buf.getInt(registro + 4)];
+            buf.get(buf.getInt(registro), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long tamanho(int a) {
+            return buf.getLong(inicioArquivos + a * REGISTRO_ARQUIVO + 8);
+        }
+
+        long modificado(int a) {
+            return buf.getLong(inicioArquivos + a * REGISTRO_ARQUIVO + 16);
+        }
+
+        long hash(int a) {
+            return buf.getLong(inicioArquivos + a * REGISTRO_ARQUIVO + 24);
+        }
+
+        int primeira(int a) {
+            return buf.getInt(inicioArquivos + a * REGISTRO_ARQUIVO + 32);
+        }
+
+        int total(int a) {
+            return buf.getInt(inicioArquivos + a * REGISTRO_ARQUIVO + 36);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Gravação">
+
+    // Grava num temporário e renomeia: um segmento nunca é regravado com o mesmo nome
+    private static Segmento gravar(File destino, List<Entrada> entradas, int geracao, int sequencia) {
+        File temporario = new File(destino.getPath() + ".tmp");
+        try {
+            new Gravacao(temporario).gravar(entradas, geracao, sequencia);
+            Files.move(temporario.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar snapshot: " + e.getMessage());
+            temporario.delete();
+            return null;
+        }
+        return Segmento.abrir(destino, geracao, sequencia);
+    }
+
+    // Os textos vão direto para o arquivo conforme aparecem; ficam em memória só o dicionário de textos
+    // distintos e o texto de cada linha das entradas gravadas (num delta, só as dos arquivos alterados)
+    private static final class Gravacao {
+        private final File arquivo;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final TreeMap<String, Integer> chaves = new TreeMap<>();
+        private final Map<String, int[]> trechosPorConteudo = new HashMap<>();
+        private int[] posicoes = new int[1024];
+        private int[] linhas = new int[1024];
+        private int textos;
+        private int totalLinhas;
+        private long escrito = CABECALHO;
+        private DataOutputStream saida;
+
+        Gravacao(File arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        void gravar(List<Entrada> entradas, int geracao, int sequencia) throws IOException {
+            int n = entradas.size();
+            byte[][] nomes = new byte[n][];
+            long[] tamanhos = new long[n];
+            long[] modificados = new long[n];
+            long[] hashes = new long[n];
+            int[] primeiras = new int[n];
+            int[] totais = new int[n];
+            int[] cabecalho;
+
+            try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo), 1 << 16))) {
+                this.saida = saida;
+                saida.write(new byte[CABECALHO]);
+
+                for (int a = 0; a < n; a++) {
+                    Entrada entrada = entradas.get(a);
+                    nomes[a] = entrada.nome.getBytes(StandardCharsets.UTF_8);
+                    if (entrada.isApagada()) {
+                        primeiras[a] = APAGADO;
+                        continue;
+                    }
+                    byte[] bytes = null;
+                    modificados[a] = entrada.modificado;
+                    if (entrada.origem != null) {
+                        tamanhos[a] = entrada.tamanho;
+                        hashes[a] = entrada.origem.hash(entrada.registro);
+                    } else {
+                        bytes = Files.readAllBytes(entrada.caminho);
+                        tamanhos[a] = bytes.length;
+                        hashes[a] = ImpressaoDigital.calcular(bytes, 0, bytes.length);
+                    }
+
+                    String conteudo = tamanhos[a] + ":" + hashes[a];
+                    int[] trecho = trechosPorConteudo.get(conteudo);
+                    if (trecho == null) {
+                        int inicio = totalLinhas;
+                        // Não mudou: as linhas vêm do segmento anterior, sem reler o arquivo
+                        if (entrada.origem != null) copiarLinhas(entrada.origem, entrada.registro);
+                        else lerLinhas(bytes);
+                        trecho = new int[]{inicio, totalLinhas - inicio};
+                        trechosPorConteudo.put(conteudo, trecho);
+                    }
+                    primeiras[a] = trecho[0];
+                    totais[a] = trecho[1];
+                }
+
+                long inicioPosicoes = escrito;
+                for (int i = 0; i < textos; i++) saida.writeInt(posicoes[i]);
+                long inicioChaves = inicioPosicoes + textos * 4L;
+                for (int id : chaves.values()) saida.writeInt(id);
+                long inicioArquivos = inicioChaves + chaves.size() * 4L;
+                long inicioNomes = inicioArquivos + (long) n * REGISTRO_ARQUIVO;
+                long nome = inicioNomes;
+                for (int a = 0; a < n; a++) {
+                    saida.writeInt((int) nome);
+                    saida.writeInt(nomes[a].length);
+                    saida.writeLong(tamanhos[a]);
+                    saida.writeLong(modificados[a]);
+                    saida.writeLong(hashes[a]);
+                    saida.writeInt(primeiras[a]);
+                    saida.writeInt(totais[a]);
+                    nome += nomes[a].length;
+                }
+                for (byte[] b : nomes) saida.write(b);
+                long inicioLinhas = nome;
+                for (int i = 0; i < totalLinhas; i++) saida.writeInt(linhas[i]);
+                long tamanho = inicioLinhas + totalLinhas * 4L;
+                if (tamanho > Integer.MAX_VALUE) throw new IOException("corpus grande demais para um snapshot (" + tamanho + " bytes)");
+                cabecalho = new int[]{MAGICO, VERSAO, n, textos, chaves.size(), totalLinhas, CABECALHO, (int) inicioPosicoes,
+                        (int) inicioChaves, (int) inicioArquivos, (int) inicioNomes, (int) inicioLinhas, (int) tamanho,
+                        geracao, sequencia};
+            }
+
+            // Por último: um arquivo interrompido no meio fica sem o MAGICO e é descartado ao abrir
+            try (RandomAccessFile saida = new RandomAccessFile(arquivo, "rw")) {
+                for (int valor : cabecalho) saida.writeInt(valor);
+            }
+        }
+
+        // Quebra as linhas como o BufferedReader.readLine(): "\n", "\r\n" ou "\r"; a última só conta se não for vazia
+        private void lerLinhas(byte[] bytes) throws IOException {
+            int inicio = 0;
+            int i = 0;
+            while (i < bytes.length) {
+                byte b = bytes[i];
+                if (b != '\n' && b != '\r') {
+                    i++;
+                    continue;
+                }
+                adicionarLinha(bytes, inicio, i - inicio);
+                i += b == '\r' && i + 1 < bytes.length && bytes[i + 1] == '\n' ? 2 : 1;
+                inicio = i;
+            }
+            if (inicio < bytes.length) adicionarLinha(bytes, inicio, bytes.length - inicio);
+        }
+
+        private void copiarLinhas(Segmento origem, int registro) throws IOException {
+            int primeira = origem.primeira(registro);
+            int total = origem.total(registro);
+            byte[] bytes = new byte[256];
+            for (int l = 0; l < total; l++) {
+                int id = origem.texto(primeira + l);
+                int inicio = origem.posicao(id);
+                int tamanho = origem.fimTexto(id) - inicio;
+                if (tamanho > bytes.length) bytes = new byte[Math.max(tamanho, bytes.length * 2)];
+                origem.buf.get(inicio, bytes, 0, tamanho);
+                adicionarLinha(bytes, 0, tamanho);
+            }
+        }
+
+        private void adicionarLinha(byte[] bytes, int inicio, int tamanho) throws IOException {
+            // ISO-8859-1: um char por byte, sem perder nada (e sem decodificar o UTF-8 de cada linha)
+            String chave = new String(bytes, inicio, tamanho, StandardCharsets.ISO_8859_1);
+            Integer id = ids.get(chave);
+            if (id == null) {
+                id = textos;
+                if (escrito + tamanho + 1 > Integer.MAX_VALUE) {
+                    throw new IOException("corpus grande demais para um snapshot");
+                }
+                if (textos == posicoes.length) posicoes = Arrays.copyOf(posicoes, textos * 2);
+                posicoes[textos++] = (int) escrito;
+                saida.write(bytes, inicio, tamanho);
+                saida.write('\n');
+                escrito += tamanho + 1;
+                ids.put(chave, id);
+
+                String nome = new String(bytes, inicio, tamanho, StandardCharsets.UTF_8).trim();
+                if (!nome.isEmpty()) chaves.putIfAbsent(dobrar(nome), id);
+            }
+            if (totalLinhas == linhas.length) linhas = Arrays.copyOf(linhas, totalLinhas * 2);
+            linhas[totalLinhas++] = id;
+        }
+    }
+    // </editor-fold>
+}
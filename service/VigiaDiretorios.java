@@ -0,0 +1,243 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Um WatchService por diretório raiz, compartilhado por quem precisa saber se a árvore mudou (cache de
+// resultados, índices, snapshot) sem listá-la a cada consulta. Observa a raiz e todos os subdiretórios
+// (sem seguir links), independente do filtro: uma mudança num arquivo que o filtro ignora também conta.
+// Cada evento avança a versão do diretório; as versões vêm de um relógio único e nunca se repetem,
+// nem quando o diretório deixa de ser observado e volta.
+//
+// A mudança só é vista quando o evento chega do sistema de arquivos (alguns milissegundos depois da
+// escrita). Mudanças que não geram eventos (sistemas de arquivos remotos, o destino de um link para
+// arquivo) não são vistas; sem WatchService (limite de observações, diretório inexistente) versao()
+// devolve -1 e quem chamou confere a árvore por conta própria.
+public final class VigiaDiretorios {
+
+    // Nomes lembrados para mudancasDesde(); além disso quem pergunta precisa reconciliar a árvore inteira
+    private static final int MAX_MUDANCAS = 10_000;
+
+    private static final AtomicLong RELOGIO = new AtomicLong();
+    private static final Map<Path, Vigia> VIGIAS = new ConcurrentHashMap<>();
+
+    private VigiaDiretorios() {
+    }
+
+    // Versão atual da árvore, ou -1 se ela não puder ser observada. Na primeira chamada registra os
+    // diretórios (um percurso só de diretórios); depois é só uma leitura.
+    public static long versao(File diretorio) {
+        return vigia(diretorio).versao();
+    }
+
+    // Arquivos criados, alterados ou apagados depois de 'versao' (caminhos relativos com '/'), ou null
+    // quando não dá para saber só pelos eventos: eventos perdidos, diretório criado ou apagado, versão
+    // esquecida ou de antes de a árvore ser observada. Com null, reconcilie a árvore inteira.
+    public static Set<String> mudancasDesde(File diretorio, long versao) {
+        return vigia(diretorio).mudancasDesde(versao);
+    }
+
+    // Bloqueia até a versão passar de 'versao' ou 'prazoMs' acabar; devolve a versão atual, ou -1 se a
+    // árvore não puder (ou deixar de poder) ser observada
+    public static long esperarMudanca(File diretorio, long versao, long prazoMs) throws InterruptedException {
+        return vigia(diretorio).esperar(versao, prazoMs);
+    }
+
+    private static Vigia vigia(File diretorio) {
+        Path raiz = diretorio.getAbsoluteFile().toPath().normalize();
+        // Nada de IO dentro do computeIfAbsent: o registro acontece em Vigia.iniciar()
+        return VIGIAS.computeIfAbsent(raiz, Vigia::new);
+    }
+
+    private static final class Mudanca {
+        final long versao;
+        final String nome;
+
+        Mudanca(long versao, String nome) {
+            this.versao = versao;
+            this.nome = nome;
+        }
+    }
+
+    private static final class Vigia {
+        private final Path raiz;
+        // Diretório de cada chave do WatchService (os eventos trazem o nome relativo a ele)
+        private final Map<WatchKey, Path> observados = new ConcurrentHashMap<>();
+        private final Set<Path> diretorios = ConcurrentHashMap.newKeySet();
+        private final ArrayDeque<Mudanca> mudancas = new ArrayDeque<>();
+
+        private volatile boolean iniciado;
+        private volatile boolean disponivel;
+        private volatile long versao;
+        // Versões menores que esta não têm as mudanças seguintes na lista
+        private long esquecidasAte;
+        private WatchService servico;
+
+        Vigia(Path raiz) {
+            this.raiz = raiz;
+        }
+
+        long versao() {
+            if (!iniciado) iniciar();
+            return disponivel ? versao : -1;
+        }
+
+        synchronized Set<String> mudancasDesde(long desde) {
+            if (!iniciado) iniciar();
+            if (!disponivel || desde < esquecidasAte) return null;
+            Set<String> nomes = new LinkedHashSet<>();
+            Iterator<Mudanca> recentes = mudancas.descendingIterator();
+            while (recentes.hasNext()) {
+                Mudanca m = recentes.next();
+                if (m.versao <= desde) break;
+                nomes.add(m.nome);
+            }
+            return nomes;
+        }
+
+        synchronized long esperar(long desde, long prazoMs) throws InterruptedException {
+            if (!iniciado) iniciar();
+            long limite = System.currentTimeMillis() + prazoMs;
+            long restante;
+            while (disponivel && versao == desde && (restante = limite - System.currentTimeMillis()) > 0) {
+                wait(restante);
+            }
+            return disponivel ? versao : -1;
+        }
+
+        private synchronized void iniciar() {
+            if (iniciado) return;
+            try {
+                servico = FileSystems.getDefault().newWatchService();
+                observar(raiz);
+            } catch (IOException e) {
+                // Tenta de novo na próxima consulta (ex.: o diretório ainda não existe)
+                if (Files.isDirectory(raiz)) System.err.println("Não foi possível observar o diretório: " + raiz);
+                fecharServico();
+                VIGIAS.remove(raiz, this);
+                iniciado = true;
+                return;
+            }
+            versao = RELOGIO.incrementAndGet();
+            esquecidasAte = versao;
+            disponivel = true;
+            iniciado = true;
+
+            Thread thread = new Thread(this::executar, "vigia-" + raiz.getFileName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void executar() {
+            try {
+                while (true) {
+                    WatchKey chave = servico.take();
+                    Path dir = observados.get(chave);
+                    List<Path> novos = new ArrayList<>();
+                    synchronized (this) {
+                        for (WatchEvent<?> evento : chave.pollEvents()) {
+                            if (evento.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                                esquecer();
+                                continue;
+                            }
+                            Path caminho = dir.resolve((Path) evento.context());
+                            if (evento.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                    && Files.isDirectory(caminho, LinkOption.NOFOLLOW_LINKS)) {
+                                novos.add(caminho);
+                            } else if (diretorios.contains(caminho)) {
+                                // Diretório apagado ou movido: os arquivos dele não geraram eventos
+                                esquecer();
+                            } else {
+                                registrar(caminho);
+                            }
+                        }
+                    }
+                    if (!chave.reset()) {
+                        // Fica em 'diretorios': o evento do diretório pai, que reconhece o apagado, pode vir depois
+                        observados.remove(chave);
+                        if (raiz.equals(dir)) {
+                            // A raiz saiu: a próxima consulta tenta observá-la de novo
+                            parar();
+                            return;
+                        }
+                    }
+                    if (novos.isEmpty()) continue;
+                    // O que foi criado dentro antes do registro não gerou eventos: a versão avança
+                    // depois de registrar, e quem tinha uma versão anterior reconcilia
+                    for (Path novo : novos) {
+                        try {
+                            observar(novo);
+                        } catch (IOException e) {
+                            System.err.println("Não foi possível observar o diretório: " + novo);
+                        }
+                    }
+                    synchronized (this) {
+                        esquecer();
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                parar();
+            }
+        }
+
+        // Registra o diretório e os subdiretórios, sem seguir links
+        private void observar(Path inicio) throws IOException {
+            Files.walkFileTree(inicio, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes atributos) throws IOException {
+                    WatchKey chave = dir.register(servico,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    observados.put(chave, dir);
+                    diretorios.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path arquivo, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        // Chamados com o monitor do Vigia
+        private void registrar(Path caminho) {
+            long nova = RELOGIO.incrementAndGet();
+            mudancas.addLast(new Mudanca(nova, raiz.relativize(caminho).toString().replace(File.separatorChar, '/')));
+            if (mudancas.size() > MAX_MUDANCAS) esquecidasAte = mudancas.removeFirst().versao;
+            versao = nova;
+            notifyAll();
+        }
+
+        private void esquecer() {
+            versao = RELOGIO.incrementAndGet();
+            esquecidasAte = versao;
+            mudancas.clear();
+            notifyAll();
+        }
+
+        private void parar() {
+            synchronized (this) {
+                esquecer();
+                disponivel = false;
+            }
+            VIGIAS.remove(raiz, this);
+            fecharServico();
+        }
+
+        private void fecharServico() {
+            if (servico == null) return;
+            try {
+                servico.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar observador: " + raiz);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package strategy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.ResultadoBusca;
+
+// Fica entre muitos clientes simultâneos e um BuscasService compartilhado:
+//  - consultas idênticas em andamento (diretório, método, modo e termo) esperam a mesma busca;
+//  - consultas diferentes que chegam dentro da janela, para o mesmo diretório, método e modo, viram
+//    um lote atendido numa única passada pelos arquivos (BuscasService.buscarLote);
+//  - no máximo 'maxVarreduras' buscas (ou lotes) rodam ao mesmo tempo; quem espera mais que
+//    'esperaMaximaMs' por uma vaga é recusado com RejectedExecutionException.
+// As chamadas bloqueiam a thread de quem pede: feito para ser chamado de threads virtuais.
+public class AgendadorBuscas {
+
+    private final BuscasService service;
+    private final long janelaMs;
+    private final int maxLote;
+    private final long esperaMaximaMs;
+    private final Semaphore varreduras;
+    private final int maxVarreduras;
+
+    private final Map<String, CompletableFuture<List<ResultadoBusca>>> emAndamento = new ConcurrentHashMap<>();
+    // Lotes ainda na janela, por diretório + método + modo; protegidos pelo próprio agendador
+    private final Map<String, Lote> abertos = new HashMap<>();
+    private final ScheduledExecutorService relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "agendador-buscas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder coalescidas = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder consultasEmLote = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+
+    private static final class Lote {
+        final File diretorio;
+        final String metodo;
+        final ModoComparacao modo;
+        final Map<String, CompletableFuture<List<ResultadoBusca>>> termos = new HashMap<>();
+
+        Lote(File diretorio, String metodo, ModoComparacao modo) {
+            this.diretorio = diretorio;
+            this.metodo = metodo;
+            this.modo = modo;
+        }
+    }
+
+    // janelaMs 0 desliga os lotes (cada consulta é uma busca, ainda coalescida e limitada)
+    public AgendadorBuscas(BuscasService service, long janelaMs, int maxLote, int maxVarreduras, long esperaMaximaMs) {
+        if (janelaMs < 0 || maxLote < 1 || maxVarreduras < 1 || esperaMaximaMs < 0) {
+            throw new IllegalArgumentException("Parâmetros do agendador inválidos");
+        }
+        this.service = service;
+        this.janelaMs = janelaMs;
+        this.maxLote = maxLote;
+        this.maxVarreduras = maxVarreduras;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.varreduras = new Semaphore(maxVarreduras, true);
+    }
+
+    public BuscasService getService() {
+        return service;
+    }
+
+    // Mesma lista que o BuscasService.buscar() devolveria (não deve ser modificada)
+    public List<ResultadoBusca> buscar(File diretorio, String termo, String metodo, ModoComparacao modo)
+            throws InterruptedException {
+        consultas.increment();
+        String chave = diretorio.getAbsolutePath() + '\0' + metodo.toLowerCase() + '\0' + modo + '\0' + termo;
+        CompletableFuture<List<ResultadoBusca>> nova = new CompletableFuture<>();
+        CompletableFuture<List<ResultadoBusca>> existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            coalescidas.increment();
+            return aguardar(existente);
+        }
+        nova.whenComplete((r, e) -> emAndamento.remove(chave, nova));
+
+        if (janelaMs > 0 && BuscasService.aceitaLote(metodo) && !termo.isEmpty()) {
+            enfileirar(diretorio, termo, metodo, modo, nova);
+        } else {
+            executar(() -> nova.complete(service.buscar(diretorio, termo, metodo, modo)), List.of(nova));
+        }
+        return aguardar(nova);
+    }
+
+    private void enfileirar(File diretorio, String termo, String metodo, ModoComparacao modo,
+                            CompletableFuture<List<ResultadoBusca>> futuro) {
+        String grupo = diretorio.getAbsolutePath() + '\0' + metodo.toLowerCase() + '\0' + modo;
+        Lote cheio = null;
+        synchronized (this) {
+            Lote lote = abertos.get(grupo);
+            if (lote == null) {
+                lote = new Lote(diretorio, metodo, modo);
+                abertos.put(grupo, lote);
+                relogio.schedule(() -> despachar(grupo, null), janelaMs, TimeUnit.MILLISECONDS);
+            }
+            lote.termos.put(termo, futuro);
+            if (lote.termos.size() >= maxLote) {
+                abertos.remove(grupo);
+                cheio = lote;
+            }
+        }
+        // Lote cheio sai antes da janela acabar, na thread de quem completou
+        if (cheio != null) despachar(grupo, cheio);
+    }
+
+    // lote null: a janela acabou (o lote pode já ter saído cheio)
+    private void despachar(String grupo, Lote lote) {
+        if (lote == null) {
+            synchronized (this) {
+                lote = abertos.remove(grupo);
+            }
+            if (lote == null) return;
+            // A thread do relógio só marca o tempo: a busca roda numa thread virtual
+            Lote pronto = lote;
+            Thread.ofVirtual().name("lote-buscas").start(() -> despachar(grupo, pronto));
+            return;
+        }
+        Lote pronto = lote;
+        executar(() -> {
+            if (pronto.termos.size() > 1) {
+                lotes.increment();
+                consultasEmLote.add(pronto.termos.size());
+            }
+            Map<String, List<ResultadoBusca>> porTermo =
+                    service.buscarLote(pronto.diretorio, pronto.termos.keySet(), pronto.metodo, pronto.modo);
+            for (Map.Entry<String, CompletableFuture<List<ResultadoBusca>>> e : pronto.termos.entrySet()) {
+                e.getValue().complete(porTermo.get(e.getKey()));
+            }
+        }, new ArrayList<>(pronto.termos.values()));
+    }
+
+    // Controle de admissão: espera uma vaga; sem vaga no prazo (ou erro na busca), falha quem esperava
+    private void executar(Runnable busca, List<CompletableFuture<List<ResultadoBusca>>> futuros) {
+        boolean admitida = false;
+        try {
+            admitida = varreduras.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            if (!admitida) {
+                recusadas.add(futuros.size());
+                RejectedExecutionException recusa = new RejectedExecutionException(
+                        "Servidor ocupado: " + maxVarreduras + " buscas em andamento");
+                for (CompletableFuture<List<ResultadoBusca>> f : futuros) f.completeExceptionally(recusa);
+                return;
+            }
+            busca.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (CompletableFuture<List<ResultadoBusca>> f : futuros) f.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            for (CompletableFuture<List<ResultadoBusca>> f : futuros) f.completeExceptionally(e);
+        } finally {
+            if (admitida) varreduras.release();
+        }
+    }
+
+    // Devolve a exceção original (IllegalArgumentException, RejectedExecutionException...)
+    private static List<ResultadoBusca> aguardar(CompletableFuture<List<ResultadoBusca>> futuro) throws InterruptedException {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof InterruptedException i) throw i;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // <editor-fold desc="Contadores">
+
+    public long getConsultas() {
+        return consultas.sum();
+    }
+
+    // Consultas que pegaram carona numa busca idêntica já em andamento
+    public long getCoalescidas() {
+        return coalescidas.sum();
+    }
+
+    // Passadas que atenderam mais de uma consulta, e quantas consultas elas atenderam
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    public long getConsultasEmLote() {
+        return consultasEmLote.sum();
+    }
+
+    public long getRecusadas() {
+        return recusadas.sum();
+    }
+
+    public int getVarredurasEmAndamento() {
+        return maxVarreduras - varreduras.availablePermits();
+    }
+
+    public int getEsperandoVaga() {
+        return varreduras.getQueueLength();
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,179 @@
+package strategy;
+
+import java.util.*;
+
+// Autômato de Aho-Corasick: procura vários padrões de uma vez, numa única passada pelo texto.
+// O autômato é imutável depois de construído; cada thread usa o seu próprio Varredor.
+// Fora do modo exato, padrões e texto passam pela tabela de dobramento do modo.
+public final class AhoCorasick {
+
+    private static final int ASCII = 128;
+
+    private final List<String> padroes;
+    private final char[] tabela;
+    // Transições: tabela direta para ASCII e mapa para o resto
+    private final int[][] transicoesAscii;
+    private final Map<Integer, Integer>[] transicoesOutras;
+    private final int[] falha;
+    // Padrão que termina exatamente no estado (-1 se nenhum)
+    private final int[] padraoDoEstado;
+    // Próximo estado na cadeia de falhas que também termina um padrão
+    private final int[] proximaSaida;
+
+    public AhoCorasick(Collection<String> termos) {
+        this(termos, ModoComparacao.EXATO);
+    }
+
+    public AhoCorasick(Collection<String> termos, ModoComparacao modo) {
+        this.tabela = modo.tabela();
+        // Termos que ficam iguais depois de dobrados contam uma vez só (vale a primeira grafia)
+        Map<String, String> porDobrado = new LinkedHashMap<>();
+        for (String termo : termos) {
+            if (!termo.isEmpty()) porDobrado.putIfAbsent(modo.dobrar(termo), termo);
+        }
+        this.padroes = new ArrayList<>(porDobrado.values());
+        List<String> dobrados = new ArrayList<>(porDobrado.keySet());
+
+        int maxEstados = 1;
+        for (String p : dobrados) maxEstados += p.length();
+
+        int[][] ascii = new int[maxEstados][];
+        // Vetor genérico não existe em Java: o tipo bruto fica só nesta criação
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<Integer, Integer>[] outras = new Map[maxEstados];
+        int[] terminal = new int[maxEstados];
+        Arrays.fill(terminal, -1);
+
+        int estados = 1;
+        for (int idx = 0; idx < padroes.size(); idx++) {
+            String p = dobrados.get(idx);
+            int estado = 0;
+            for (int i = 0; i < p.length(); i++) {
+                char c = p.charAt(i);
+                int proximo = transicao(ascii, outras, estado, c);
+                if (proximo < 0) {
+                    proximo = estados++;
+                    definir(ascii, outras, estado, c, proximo);
+                }
+                estado = proximo;
+            }
+            terminal[estado] = idx;
+        }
+
+        this.transicoesAscii = Arrays.copyOf(ascii, estados);
+        this.transicoesOutras = Arrays.copyOf(outras, estados);
+        this.padraoDoEstado = Arrays.copyOf(terminal, estados);
+        this.falha = new int[estados];
+        this.proximaSaida = new int[estados];
+        calcularFalhas();
+    }
+
+    private static int transicao(int[][] ascii, Map<Integer, Integer>[] outras, int estado, char c) {
+        if (c < ASCII) {
+            int[] t = ascii[estado];
+            return t == null ? -1 : t[c] - 1;
+        }
+        Map<Integer, Integer> m = outras[estado];
+        if (m == null) return -1;
+        Integer proximo = m.get((int) c);
+        return proximo == null ? -1 : proximo;
+    }
+
+    // A tabela ASCII guarda estado + 1 para que 0 signifique "sem transição"
+    private static void definir(int[][] ascii, Map<Integer, Integer>[] outras, int estado, char c, int proximo) {
+        if (c < ASCII) {
+            if (ascii[estado] == null) ascii[estado] = new int[ASCII];
+            ascii[estado][c] = proximo + 1;
+        } else {
+            if (outras[estado] == null) outras[estado] = new HashMap<>();
+            outras[estado].put((int) c, proximo);
+        }
+    }
+
+    // Busca em largura: a falha de cada estado é o maior sufixo próprio que também é prefixo
+    private void calcularFalhas() {
+        Deque<Integer> fila = new ArrayDeque<>();
+        proximaSaida[0] = -1;
+        for (int[] filhos : filhosDe(0)) {
+            falha[filhos[1]] = 0;
+            proximaSaida[filhos[1]] = -1;
+            fila.add(filhos[1]);
+        }
+        while (!fila.isEmpty()) {
+            int estado = fila.poll();
+            for (int[] filho : filhosDe(estado)) {
+                char c = (char) filho[0];
+                int f = falha[estado];
+                int destino;
+                while ((destino = transicao(transicoesAscii, transicoesOutras, f, c)) < 0 && f != 0) {
+                    f = falha[f];
+                }
+                int falhaFilho = destino >= 0 && destino != filho[1] ? destino : 0;
+                falha[filho[1]] = falhaFilho;
+                proximaSaida[filho[1]] = padraoDoEstado[falhaFilho] >= 0 ? falhaFilho : proximaSaida[falhaFilho];
+                fila.add(filho[1]);
+            }
+        }
+    }
+
+    private List<int[]> filhosDe(int estado) {
+        List<int[]> filhos = new ArrayList<>();
+        int[] t = transicoesAscii[estado];
+        if (t != null) {
+            for (int c = 0; c < ASCII; c++) {
+                if (t[c] != 0) filhos.add(new int[]{c, t[c] - 1});
+            }
+        }
+        Map<Integer, Integer> m = transicoesOutras[estado];
+        if (m != null) {
+            for (Map.Entry<Integer, Integer> e : m.entrySet()) filhos.add(new int[]{e.getKey(), e.getValue()});
+        }
+        return filhos;
+    }
+
+    public List<String> getPadroes() {
+        return Collections.unmodifiableList(padroes);
+    }
+
+    public Varredor novoVarredor() {
+        return new Varredor();
+    }
+
+    // Estado de trabalho de uma thread: reaproveitado entre linhas para não alocar
+    public final class Varredor {
+        private final int[] encontrados = new int[padroes.size()];
+        private final int[] vistoNaPassada = new int[padroes.size()];
+        private int passada = 0;
+
+        // Preenche encontrados() com os índices (ordenados) dos padrões presentes no texto
+        public int encontrar(CharSequence texto) {
+            passada++;
+            int quantidade = 0;
+            int estado = 0;
+            for (int i = 0; i < texto.length(); i++) {
+                char c = tabela == null ? texto.charAt(i) : tabela[texto.charAt(i)];
+                int proximo;
+                while ((proximo = transicao(transicoesAscii, transicoesOutras, estado, c)) < 0 && estado != 0) {
+                    estado = falha[estado];
+                }
+                estado = Math.max(proximo, 0);
+
+                int saida = padraoDoEstado[estado] >= 0 ? estado : proximaSaida[estado];
+                while (saida > 0) {
+                    int idx = padraoDoEstado[saida];
+                    if (vistoNaPassada[idx] != passada) {
+                        vistoNaPassada[idx] = passada;
+                        encontrados[quantidade++] = idx;
+                    }
+                    saida = proximaSaida[saida];
+                }
+            }
+            Arrays.sort(encontrados, 0, quantidade);
+            return quantidade;
+        }
+
+        public int[] encontrados() {
+            return encontrados;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package strategy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+
+// contem() tolerante a erros de digitação: a linha casa se algum trecho dela estiver a até
+// maxDistancia edições do padrão (Myers). maxDistancia < 0 usa MyersAproximado.distanciaPadrao.
+public class BuscaAproximada implements BuscaTexto {
+
+    private final int maxDistancia;
+    private final ModoComparacao modo;
+
+    public BuscaAproximada() {
+        this(-1, ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public BuscaAproximada(int maxDistancia, ModoComparacao modo) {
+        this.maxDistancia = maxDistancia;
+        this.modo = modo;
+    }
+
+    @Override
+    public boolean contem(String texto, String padrao) {
+        return compilar(padrao).contem(texto);
+    }
+
+    @Override
+    public MyersAproximado compilar(String padrao) {
+        int k = maxDistancia >= 0 ? maxDistancia : MyersAproximado.distanciaPadrao(padrao);
+        return MyersAproximado.compilar(padrao, k, modo);
+    }
+
+    // Resultados com a distância, da menor para a maior
+    @Override
+    public List<ResultadoBusca> buscarEmArquivo(File arquivo, String padrao) throws IOException {
+        MyersAproximado compilado = compilar(padrao);
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                int distancia = compilado.distancia(linha);
+                if (distancia >= 0) resultados.add(new ResultadoAproximado(arquivo.getName(), numeroLinha, linha, distancia));
+            }
+        }
+        resultados.sort(Comparator.comparingInt(r -> ((ResultadoAproximado) r).getDistancia()));
+        return resultados;
+    }
+}
@@ -2,38 +2,24 @@ package strategy;
 
 public class BuscaBoyerMoore implements BuscaTexto {
 
-    @Override
-    public boolean contem(String texto, String padrao) {
-        return boyerMooreSearch(texto.toLowerCase(), padrao.toLowerCase());
+    private final ModoComparacao modo;
+
+    public BuscaBoyerMoore() {
+        this(ModoComparacao.IGNORAR_MAIUSCULAS);
     }
 
-    private boolean boyerMooreSearch(String texto, String padrao) {
-        int[] badCharTable = buildBadCharTable(padrao);
-        int n = texto.length();
-        int m = padrao.length();
-        int shift = 0;
+    public BuscaBoyerMoore(ModoComparacao modo) {
+        this.modo = modo;
+    }
 
-        while (shift <= (n - m)) {
-            int j = m - 1;
-            while (j >= 0 && padrao.charAt(j) == texto.charAt(shift + j)) {
-                j--;
-            }
-            if (j < 0) {
-                return true;
-            } else {
-                char badChar = texto.charAt(shift + j);
-                int deslocamento = Math.max(1, j - badCharTable[badChar]);
-                shift += deslocamento;
-            }
-        }
-        return false;
+    @Override
+    public boolean contem(String texto, String padrao) {
+        return compilar(padrao).contem(texto);
     }
 
-    private int[] buildBadCharTable(String padrao) {
-        final int TAM_ALFABETO = 256;
-        int[] tabela = new int[TAM_ALFABETO];
-        for (int i = 0; i < TAM_ALFABETO; i++) tabela[i] = -1;
-        for (int i = 0; i < padrao.length(); i++) tabela[padrao.charAt(i)] = i;
-        return tabela;
+    // Tabela de saltos montada uma vez; as linhas são comparadas sem criar cópias em minúsculas
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return Horspool.compilar(padrao, modo);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.ResultadoBusca;
+import model.ResultadosCompactos;
+
+// Varre o arquivo mapeado em memória comparando bytes UTF-8 (Horspool), contando
+// as quebras de linha no caminho. Os acertos saem como ResultadosCompactos (linha e posição).
+// Quando o modo de comparação não cabe em bytes (ex.: acentos), decodifica linha a linha num
+// buffer de char reaproveitado e compara com Horspool, dobrando os caracteres pela tabela do modo.
+public class BuscaMapeada implements BuscaTexto {
+
+    private static final int JANELA = 64 * 1024 * 1024;
+
+    private final ModoComparacao modo;
+
+    public BuscaMapeada(boolean diferenciarMaiusculas) {
+        this(diferenciarMaiusculas ? ModoComparacao.EXATO : ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public BuscaMapeada(ModoComparacao modo) {
+        this.modo = modo;
+    }
+
+    // Bytes do padrão (já normalizados) e a tabela de saltos, prontos para várias regiões/threads;
+    // ou, se o padrão precisa ser comparado em caracteres, o Horspool já compilado
+    static final class PadraoBytes {
+        final byte[] p;
+        final int[] salto;
+        final Horspool caracteres;
+
+        private PadraoBytes(byte[] p) {
+            this.p = p;
+            this.salto = tabelaSaltos(p);
+            this.caracteres = null;
+        }
+
+        private PadraoBytes(Horspool caracteres) {
+            this.p = null;
+            this.salto = null;
+            this.caracteres = caracteres;
+        }
+    }
+
+    @Override
+    public boolean contem(String texto, String padrao) {
+        return compilar(padrao).contem(texto);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return PadraoCompilado.literal(padrao, modo);
+    }
+
+    PadraoBytes compilarBytes(String padrao) {
+        if (!modo.comparavelEmBytes(padrao)) return new PadraoBytes(Horspool.compilar(padrao, modo));
+        byte[] p = padrao.getBytes(StandardCharsets.UTF_8);
+        if (modo != ModoComparacao.EXATO) {
+            for (int i = 0; i < p.length; i++) p[i] = dobrar(p[i]);
+        }
+        return new PadraoBytes(p);
+    }
+
+    @Override
+    public List<ResultadoBusca> buscarEmArquivo(File arquivo, String padrao) throws IOException {
+        if (atravessaLinhas(padrao)) return new ArrayList<>();
+        if (padrao.isEmpty()) return BuscaTexto.super.buscarEmArquivo(arquivo, padrao);
+
+        PadraoBytes compilado = compilarBytes(padrao);
+
+        ResultadosCompactos resultados = new ResultadosCompactos();
+        resultados.novoArquivo(arquivo.getName(), arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long posicao = 0;
+            int linhasAnteriores = 0;
+            while (posicao < tamanho) {
+                long janela = Math.min(tamanho - posicao, JANELA);
+                MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, posicao, janela);
+                int limite = (int) janela;
+                // Corta a janela na última quebra de linha para nenhuma linha ficar dividida
+                while (posicao + limite < tamanho) {
+                    int k = limite - 1;
+                    while (k >= 0 && buf.get(k) != '\n') k--;
+                    if (k >= 0) {
+                        limite = k + 1;
+                        break;
+                    }
+                    if (janela >= Integer.MAX_VALUE / 2) break;
+                    janela = Math.min(tamanho - posicao, janela * 2);
+                    buf = canal.map(FileChannel.MapMode.READ_ONLY, posicao, janela);
+                    limite = (int) janela;
+                }
+                linhasAnteriores = varrer(buf, limite, compilado, linhasAnteriores, posicao, resultados);
+                posicao += limite;
+            }
+        }
+        return resultados;
+    }
+
+    // Um termo com quebra de linha nunca casa numa linha só: quem busca por região confere antes
+    static boolean atravessaLinhas(String padrao) {
+        return padrao.indexOf('\n') >= 0 || padrao.indexOf('\r') >= 0;
+    }
+
+    // Varre apenas [inicio, fim) do arquivo, numerando as linhas a partir de 1 dentro da região.
+    // A região deve começar no início de uma linha e terminar após uma quebra (ou no fim do arquivo).
+    // Retorna quantas linhas terminaram dentro dela.
+    // O padrão vem de compilarBytes desta mesma instância; os acertos vão para o trecho atual de 'resultados'.
+    int buscarEmRegiao(FileChannel canal, long inicio, long fim, PadraoBytes padrao,
+                       ResultadosCompactos resultados) throws IOException {
+        MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+        return varrer(buf, (int) (fim - inicio), padrao, 0, inicio, resultados);
+    }
+
+    // Retorna o total de linhas terminadas até o fim da janela. 'base' é a posição da janela no arquivo.
+    private int varrer(MappedByteBuffer buf, int limite, PadraoBytes padrao, int linhasAnteriores,
+                       long base, ResultadosCompactos resultados) {
+        if (padrao.caracteres != null) return varrerLinhas(buf, limite, padrao.caracteres, linhasAnteriores, base, resultados);
+        byte[] p = padrao.p;
+        int[] salto = padrao.salto;
+        int m = p.length;
+        int linhaAtual = linhasAnteriores + 1;
+        int inicioLinha = 0;
+        int contado = 0;
+        int i = 0;
+
+        while (i <= limite - m) {
+            int j = m - 1;
+            while (j >= 0 && ler(buf, i + j) == p[j]) j--;
+            if (j >= 0) {
+                i += salto[ler(buf, i + m - 1) & 0xFF];
+                continue;
+            }
+
+            // Achou: atualiza o número da linha só agora, até a posição do acerto
+            for (int k = contado; k < i; k++) {
+                if (terminaLinha(buf, k, limite)) {
+                    linhaAtual++;
+                    inicioLinha = k + 1;
+                }
+            }
+            // Só a posição é guardada; o texto da linha é lido se alguém pedir
+            resultados.adicionar(linhaAtual, base + inicioLinha);
+
+            int fim = i + m;
+            while (fim < limite && buf.get(fim) != '\n' && buf.get(fim) != '\r') fim++;
+
+            // O restante da linha não interessa mais (um resultado por linha)
+            contado = fim;
+            i = fim;
+        }
+
+        for (int k = contado; k < limite; k++) {
+            if (terminaLinha(buf, k, limite)) linhaAtual++;
+        }
+        return linhaAtual - 1;
+    }
+
+    // Decodifica cada linha (UTF-8, sequências inválidas viram U+FFFD como no FileReader) num
+    // buffer de char reaproveitado; linhas só com ASCII são copiadas direto, sem decodificador
+    private int varrerLinhas(MappedByteBuffer buf, int limite, Horspool padrao, int linhasAnteriores,
+                             long base, ResultadosCompactos resultados) {
+        CharsetDecoder decodificador = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        char[] linha = new char[256];
+        int terminadas = 0;
+        int inicio = 0;
+        while (inicio < limite) {
+            int fim = inicio;
+            while (fim < limite && buf.get(fim) != '\n' && buf.get(fim) != '\r') fim++;
+
+            int tamanho = fim - inicio;
+            if (tamanho > linha.length) linha = new char[Math.max(tamanho, linha.length * 2)];
+            int n = 0;
+            while (n < tamanho) {
+                byte b = buf.get(inicio + n);
+                if (b < 0) break;
+                linha[n++] = (char) b;
+            }
+            if (n < tamanho) {
+                CharBuffer saida = CharBuffer.wrap(linha);
+                decodificador.reset();
+                decodificador.decode(buf.slice(inicio, tamanho), saida, true);
+                decodificador.flush(saida);
+                n = saida.position();
+            }
+            if (padrao.indiceEm(linha, 0, n) >= 0) {
+                resultados.adicionar(linhasAnteriores + terminadas + 1, base + inicio);
+            }
+
+            if (fim == limite) break;
+            terminadas++;
+            inicio = fim + (buf.get(fim) == '\r' && fim + 1 < limite && buf.get(fim + 1) == '\n' ? 2 : 1);
+        }
+        return linhasAnteriores + terminadas;
+    }
+
+    // "\n", "\r\n" e "\r" sozinho encerram a linha, como no BufferedReader.readLine()
+    private static boolean terminaLinha(MappedByteBuffer buf, int k, int limite) {
+        byte b = buf.get(k);
+        if (b == '\n') return true;
+        return b == '\r' && (k + 1 >= limite || buf.get(k + 1) != '\n');
+    }
+
+    private byte ler(MappedByteBuffer buf, int i) {
+        byte b = buf.get(i);
+        return modo == ModoComparacao.EXATO ? b : dobrar(b);
+    }
+
+    private static byte dobrar(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static int[] tabelaSaltos(byte[] p) {
+        int m = p.length;
+        int[] salto = new int[256];
+        Arrays.fill(salto, m);
+        for (int i = 0; i < m - 1; i++) {
+            salto[p[i] & 0xFF] = m - 1 - i;
+        }
+        return salto;
+    }
+}
@@ -0,0 +1,25 @@
+package strategy;
+
+// O termo é uma expressão regular (java.util.regex); ver PadraoRegex para o pré-filtro e o cache
+public class BuscaRegex implements BuscaTexto {
+
+    private final ModoComparacao modo;
+
+    public BuscaRegex() {
+        this(ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public BuscaRegex(ModoComparacao modo) {
+        this.modo = modo;
+    }
+
+    @Override
+    public boolean contem(String texto, String padrao) {
+        return compilar(padrao).contem(texto);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return PadraoRegex.compilar(padrao, modo);
+    }
+}
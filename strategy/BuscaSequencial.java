@@ -1,8 +1,37 @@
 package strategy;
 
 public class BuscaSequencial implements BuscaTexto {
+
+    private final ModoComparacao modo;
+
+    public BuscaSequencial() {
+        this(ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public BuscaSequencial(ModoComparacao modo) {
+        this.modo = modo;
+    }
+
     @Override
     public boolean contem(String texto, String padrao) {
-        return texto.toLowerCase().contains(padrao.toLowerCase());
+        return compilar(padrao).contem(texto);
+    }
+
+    // Comparação ingênua (cada posição do texto contra o padrão inteiro), dobrando os
+    // caracteres pela tabela do modo em vez de criar uma cópia da linha em minúsculas
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        char[] tabela = modo.tabela();
+        char[] p = modo.dobrar(padrao).toCharArray();
+        if (tabela == null) return texto -> texto.contains(padrao);
+        return texto -> {
+            int n = texto.length() - p.length;
+            for (int i = 0; i <= n; i++) {
+                int j = 0;
+                while (j < p.length && tabela[texto.charAt(i + j)] == p[j]) j++;
+                if (j == p.length) return true;
+            }
+            return false;
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,40 @@
 package strategy;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.ResultadoBusca;
+
 public interface BuscaTexto {
     boolean contem(String texto, String padrao);
-}
\ No newline at end of file
+
+    // Prepara o padrão uma vez para ser testado contra muitas linhas (e por várias threads).
+    // Implementações com tabelas ou normalização sobrescrevem para não refazer o trabalho a cada linha.
+    default PadraoCompilado compilar(String padrao) {
+        return texto -> contem(texto, padrao);
+    }
+
+    // Busca linha a linha; implementações que leem o arquivo de outra forma sobrescrevem
+    default List<ResultadoBusca> buscarEmArquivo(File arquivo, String padrao) throws IOException {
+        return buscarEmArquivo(arquivo, compilar(padrao));
+    }
+
+    default List<ResultadoBusca> buscarEmArquivo(File arquivo, PadraoCompilado padrao) throws IOException {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                if (padrao.contem(linha)) {
+                    resultados.add(new ResultadoBusca(arquivo.getName(), numeroLinha, linha));
+                }
+            }
+        }
+        return resultados;
+    }
+}
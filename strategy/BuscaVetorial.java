@@ -0,0 +1,171 @@
+package strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.ResultadoBusca;
+import model.ResultadosCompactos;
+
+// Varre os bytes UTF-8 do arquivo comparando vários bytes por instrução (Vector API): o primeiro
+// e o último byte do padrão são comparados em bloco e só os candidatos são conferidos por inteiro.
+// Sem o módulo jdk.incubator.vector (rodar com --add-modules jdk.incubator.vector) usa o mesmo
+// filtro byte a byte. Padrões que o modo de comparação não permite comparar em bytes usam a leitura
+// por linhas do BuscaTexto com o Horspool do modo.
+public class BuscaVetorial implements BuscaTexto {
+
+    private static final int BLOCO = 1024 * 1024;
+    private static final VarreduraBytes VARREDURA = escolherVarredura();
+
+    private final ModoComparacao modo;
+
+    // Padrão em bytes (já normalizado) e as duas grafias aceitas no primeiro e no último byte
+    static final class PadraoBytes {
+        final byte[] p;
+        final boolean dobrar;
+        final byte primeiro;
+        final byte primeiroAlt;
+        final byte ultimo;
+        final byte ultimoAlt;
+
+        private PadraoBytes(byte[] p, boolean dobrar) {
+            this.p = p;
+            this.dobrar = dobrar;
+            this.primeiro = p[0];
+            this.primeiroAlt = dobrar ? maiuscula(p[0]) : p[0];
+            this.ultimo = p[p.length - 1];
+            this.ultimoAlt = dobrar ? maiuscula(p[p.length - 1]) : p[p.length - 1];
+        }
+
+        boolean confere(byte[] texto, int pos) {
+            for (int j = 0; j < p.length; j++) {
+                byte b = texto[pos + j];
+                if ((dobrar ? minuscula(b) : b) != p[j]) return false;
+            }
+            return true;
+        }
+    }
+
+    public BuscaVetorial(boolean diferenciarMaiusculas) {
+        this(diferenciarMaiusculas ? ModoComparacao.EXATO : ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public BuscaVetorial(ModoComparacao modo) {
+        this.modo = modo;
+    }
+
+    public static boolean isVetorialDisponivel() {
+        return !(VARREDURA instanceof VarreduraEscalar);
+    }
+
+    @Override
+    public boolean contem(String texto, String padrao) {
+        return compilar(padrao).contem(texto);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return PadraoCompilado.literal(padrao, modo);
+    }
+
+    @Override
+    public List<ResultadoBusca> buscarEmArquivo(File arquivo, String padrao) throws IOException {
+        if (padrao.indexOf('\n') >= 0 || padrao.indexOf('\r') >= 0) return new ArrayList<>();
+        // Mesmos limites da BuscaMapeada: só letras ASCII são dobradas byte a byte
+        if (padrao.isEmpty() || !modo.comparavelEmBytes(padrao)) {
+            return BuscaTexto.super.buscarEmArquivo(arquivo, padrao);
+        }
+
+        boolean dobrar = modo != ModoComparacao.EXATO;
+        byte[] p = padrao.getBytes(StandardCharsets.UTF_8);
+        if (dobrar) {
+            for (int i = 0; i < p.length; i++) p[i] = minuscula(p[i]);
+        }
+        PadraoBytes compilado = new PadraoBytes(p, dobrar);
+
+        ResultadosCompactos resultados = new ResultadosCompactos();
+        resultados.novoArquivo(arquivo.getName(), arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            byte[] buf = new byte[(int) Math.min(BLOCO, Math.max(canal.size(), 1))];
+            int cheio = 0;
+            int linhasAnteriores = 0;
+            long base = 0;  // posição de buf[0] no arquivo
+            boolean fimArquivo = false;
+            while (true) {
+                while (cheio < buf.length && !fimArquivo) {
+                    int lidos = canal.read(ByteBuffer.wrap(buf, cheio, buf.length - cheio));
+                    if (lidos < 0) fimArquivo = true;
+                    else cheio += lidos;
+                }
+                // Varre até a última quebra de linha; o resto vai para o começo do buffer
+                int corte = fimArquivo ? cheio : ultimaQuebra(buf, cheio) + 1;
+                if (corte == 0 && !fimArquivo) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);  // linha maior que o buffer
+                    continue;
+                }
+                linhasAnteriores = varrer(buf, corte, compilado, linhasAnteriores, base, resultados);
+                System.arraycopy(buf, corte, buf, 0, cheio - corte);
+                cheio -= corte;
+                base += corte;
+                if (fimArquivo) break;
+            }
+        }
+        return resultados;
+    }
+
+    // Retorna o total de linhas terminadas até 'limite'
+    private static int varrer(byte[] buf, int limite, PadraoBytes padrao, int linhasAnteriores, long base,
+                              ResultadosCompactos resultados) {
+        int linhaAtual = linhasAnteriores + 1;
+        int contado = 0;
+        int i = 0;
+        while ((i = VARREDURA.proximo(buf, i, limite, padrao)) >= 0) {
+            int inicioLinha = i;
+            while (inicioLinha > contado && buf[inicioLinha - 1] != '\n' && buf[inicioLinha - 1] != '\r') inicioLinha--;
+            linhaAtual += VARREDURA.contarLinhas(buf, contado, inicioLinha, limite);
+            resultados.adicionar(linhaAtual, base + inicioLinha);
+
+            int fim = i + padrao.p.length;
+            while (fim < limite && buf[fim] != '\n' && buf[fim] != '\r') fim++;
+
+            // O restante da linha não interessa mais (um resultado por linha)
+            contado = fim;
+            i = fim;
+        }
+        linhaAtual += VARREDURA.contarLinhas(buf, contado, limite, limite);
+        return linhaAtual - 1;
+    }
+
+    private static int ultimaQuebra(byte[] buf, int cheio) {
+        for (int k = cheio - 1; k >= 0; k--) {
+            if (buf[k] == '\n') return k;
+        }
+        return -1;
+    }
+
+    private static VarreduraBytes escolherVarredura() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Carregada por nome: sem o módulo a classe nem chega a ser resolvida
+                return (VarreduraBytes) Class.forName("strategy.VarreduraVetorial").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector API indisponível, usando varredura escalar: " + e);
+            }
+        }
+        return new VarreduraEscalar();
+    }
+
+    static byte minuscula(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte maiuscula(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+    }
+}
@@ -1,226 +1,1293 @@
 package strategy;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+import model.ResultadoAproximado;
 import model.ResultadoBusca;
+import model.ResultadoRanqueado;
+import model.ResultadosCompactos;
+import service.CacheResultados;
+import service.DeduplicacaoArquivos;
+import service.FiltroArquivos;
+import service.IndiceInvertido;
+import service.IndiceNGramas;
+import service.PercursoArquivos;
+import service.SnapshotCorpus;
 
-public class BuscasService {
+public class BuscasService implements AutoCloseable {
 
+    // Compartilhado por todas as instâncias criadas com o construtor padrão
+    private static final CacheResultados CACHE_COMPARTILHADO = new CacheResultados();
+
+    private final CacheResultados cache;
+    // Threads dos métodos paralelos; 0 deixa cada método escolher pelo número de núcleos
+    private volatile int paralelismo;
+    // Quais arquivos da árvore do diretório entram nas buscas (por padrão, todos os .txt, recursivamente)
+    private volatile FiltroArquivos filtro = FiltroArquivos.PADRAO;
+    // Pool do fork/join com o paralelismo fixado (sem ele, o commonPool); trocado quando o paralelismo muda
+    private ForkJoinPool poolForkJoin;
+
+    public BuscasService() {
+        this(CACHE_COMPARTILHADO);
+    }
+
+    // cache null desliga o cache (ex.: para medir a varredura)
+    public BuscasService(CacheResultados cache) {
+        this.cache = cache;
+    }
+
+    public CacheResultados getCache() {
+        return cache;
+    }
+
+    public int getParalelismo() {
+        return paralelismo;
+    }
+
+    public void setParalelismo(int paralelismo) {
+        if (paralelismo < 0) throw new IllegalArgumentException("Paralelismo inválido: " + paralelismo);
+        this.paralelismo = paralelismo;
+    }
+
+    public FiltroArquivos getFiltro() {
+        return filtro;
+    }
+
+    public void setFiltro(FiltroArquivos filtro) {
+        if (filtro == null) throw new IllegalArgumentException("Filtro de arquivos nulo");
+        this.filtro = filtro;
+    }
+
+    // Encerra o pool próprio do fork/join (as buscas em andamento terminam); o serviço continua
+    // utilizável e cria outro se precisar
+    @Override
+    public synchronized void close() {
+        if (poolForkJoin == null) return;
+        poolForkJoin.shutdown();
+        poolForkJoin = null;
+    }
+
+    // Tamanho do pool: o paralelismo pedido (ou o automático do método), nunca mais que as tarefas
+    private int numThreads(int automatico, int tarefas) {
+        return Math.max(1, Math.min(paralelismo > 0 ? paralelismo : automatico, tarefas));
+    }
+
+    // Todos os métodos enxergam os mesmos arquivos: a árvore percorrida em paralelo, pelo filtro
+    private List<File> listarArquivos(File diretorio) {
+        return PercursoArquivos.listar(diretorio, filtro);
+    }
+
+    // A lista devolvida pode vir do cache e não deve ser modificada
     public List<ResultadoBusca> buscar(File diretorio, String termo, String metodo) {
+        return buscar(diretorio, termo, metodo, ModoComparacao.EXATO);
+    }
+
+    // Todos os métodos devolvem as mesmas linhas para o mesmo modo de comparação.
+    // As buscas feitas por aqui (e pelo buscarEmFluxo) entram nas EstatisticasBuscas.
+    public List<ResultadoBusca> buscar(File diretorio, String termo, String metodo, ModoComparacao modo) {
+        MetricasBusca metricas = new MetricasBusca(metodo, termo, modo);
+        List<ResultadoBusca> resultados;
+        if (cache == null || diretorio == null || !diretorio.isDirectory()) {
+            resultados = buscarSemCache(diretorio, termo, metodo, modo, metricas);
+        } else {
+            resultados = cache.obterOuBuscar(diretorio, filtro, termo, metodo, modo,
+                    () -> buscarSemCache(diretorio, termo, metodo, modo, metricas));
+        }
+        metricas.concluir(resultados.size());
+        return resultados;
+    }
+
+    private List<ResultadoBusca> buscarSemCache(File diretorio, String termo, String metodo, ModoComparacao modo,
+                                                MetricasBusca metricas) {
+        metricas.varreu();
         switch (metodo.toLowerCase()) {
             case "boyer-moore" -> {
-                return buscaBoyerMoore(diretorio, termo);
+                return buscaBoyerMoore(diretorio, termo, modo, metricas);
             }
             case "sequencial" -> {
-                return buscaSequencial(diretorio, termo);
+                return buscaSequencial(diretorio, termo, modo, metricas);
             }
             case "paralelo" -> {
-                return buscarParalelo(diretorio, termo);
+                return buscarParalelo(diretorio, termo, modo);
             }
             case "paralelo otimizado" -> {
-                return buscarParaleloOtimizado(diretorio, termo);
+                return buscarParaleloOtimizado(diretorio, PadraoCompilado.literal(termo, modo), metricas);
+            }
+            case "indexado" -> {
+                return buscaIndexada(diretorio, termo, modo);
+            }
+            case "snapshot" -> {
+                return buscaSnapshot(diretorio, PadraoCompilado.literal(termo, modo), metricas);
+            }
+            case "mapeado" -> {
+                return buscaComAlgoritmo(diretorio, termo, new BuscaMapeada(modo));
+            }
+            case "fork/join" -> {
+                return buscarForkJoin(diretorio, termo, modo);
+            }
+            case "virtual threads" -> {
+                return buscarVirtual(diretorio, termo, modo);
+            }
+            case "aproximado" -> {
+                return buscarAproximado(diretorio, termo, MyersAproximado.distanciaPadrao(termo), modo, true);
+            }
+            case "ranqueado" -> {
+                return buscarRanqueado(diretorio, termo, K_PADRAO, modo, false, metricas);
+            }
+            case "ranqueado bm25" -> {
+                return buscarRanqueado(diretorio, termo, K_PADRAO, modo, true, metricas);
+            }
+            case "regex" -> {
+                if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+                return buscarParaleloOtimizado(diretorio, PadraoRegex.compilar(termo, modo), metricas);
+            }
+            default -> throw new IllegalArgumentException("Tipo de busca inválido: " + metodo);
+        }
+    }
+
+    // Vários termos de uma vez: cada arquivo é lido uma única vez para o lote inteiro
+    public List<ResultadoBusca> buscar(File diretorio, Collection<String> termos, String metodo) {
+        return buscar(diretorio, termos, metodo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscar(File diretorio, Collection<String> termos, String metodo, ModoComparacao modo) {
+        MetricasBusca metricas = new MetricasBusca(metodo, String.join(", ", termos), modo);
+        metricas.varreu();
+        List<ResultadoBusca> resultados = buscarVarios(diretorio, termos, metodo, modo, metricas);
+        metricas.concluir(resultados.size());
+        return resultados;
+    }
+
+    private List<ResultadoBusca> buscarVarios(File diretorio, Collection<String> termos, String metodo, ModoComparacao modo,
+                                              MetricasBusca metricas) {
+        AhoCorasick automato = new AhoCorasick(termos, modo);
+        switch (metodo.toLowerCase()) {
+            case "sequencial", "boyer-moore", "mapeado" -> {
+                return buscaMultipla(diretorio, automato, false, metricas);
+            }
+            case "paralelo", "paralelo otimizado" -> {
+                return buscaMultipla(diretorio, automato, true, metricas);
+            }
+            case "indexado" -> {
+                // O índice não relê os arquivos, então consultar termo a termo não custa uma varredura
+                List<ResultadoBusca> resultados = new ArrayList<>();
+                for (String padrao : automato.getPadroes()) {
+                    for (ResultadoBusca r : buscaIndexada(diretorio, padrao, modo)) {
+                        resultados.add(new ResultadoBusca(r.getCaminhoArquivo(), r.getLinha(), r.getConteudo(), padrao));
+                    }
+                }
+                return resultados;
             }
             default -> throw new IllegalArgumentException("Tipo de busca inválido: " + metodo);
         }
     }
 
+    // Métodos que sabem atender vários termos numa passada só (buscarVarios)
+    public static boolean aceitaLote(String metodo) {
+        return switch (metodo.toLowerCase()) {
+            case "sequencial", "boyer-moore", "mapeado", "paralelo", "paralelo otimizado", "indexado" -> true;
+            default -> false;
+        };
+    }
+
+    // Consultas independentes que chegaram juntas: o que está no cache sai dele, o resto é buscado numa
+    // única passada (Aho-Corasick) e separado por termo. Cada lista sai como o buscar() do termo sozinho
+    // a devolveria e entra no cache. Termos repetidos (ou iguais no modo) dividem a mesma lista.
+    public Map<String, List<ResultadoBusca>> buscarLote(File diretorio, Collection<String> termos, String metodo,
+                                                        ModoComparacao modo) {
+        Map<String, List<ResultadoBusca>> porTermo = new LinkedHashMap<>();
+        FiltroArquivos filtro = this.filtro;
+        Map<String, String> faltando = new LinkedHashMap<>();
+        for (String termo : termos) {
+            if (porTermo.containsKey(termo) || faltando.containsKey(termo)) continue;
+            List<ResultadoBusca> guardados = cache != null && diretorio != null && diretorio.isDirectory()
+                    ? cache.obter(diretorio, filtro, termo, metodo, modo, 0) : null;
+            if (guardados != null) {
+                porTermo.put(termo, guardados);
+            } else if (termo.isEmpty() || !aceitaLote(metodo)) {
+                // O autômato ignora o termo vazio
+                porTermo.put(termo, buscar(diretorio, termo, metodo, modo));
+            } else {
+                faltando.put(termo, modo.dobrar(termo));
+            }
+        }
+        if (faltando.size() == 1) {
+            String termo = faltando.keySet().iterator().next();
+            porTermo.put(termo, buscar(diretorio, termo, metodo, modo));
+        } else if (!faltando.isEmpty()) {
+            MetricasBusca metricas = new MetricasBusca(metodo + " (lote)", String.join(", ", faltando.keySet()), modo);
+            metricas.varreu();
+            CacheResultados.Versao versao = cache != null ? CacheResultados.fotografar(diretorio, filtro) : null;
+            List<ResultadoBusca> juntos = buscarVarios(diretorio, faltando.keySet(), metodo, modo, metricas);
+
+            // O autômato marca cada acerto com a primeira grafia do termo dobrado
+            Map<String, List<ResultadoBusca>> porDobrado = new HashMap<>();
+            for (String dobrado : faltando.values()) porDobrado.put(dobrado, new ArrayList<>());
+            for (ResultadoBusca r : juntos) {
+                porDobrado.get(modo.dobrar(r.getPadrao()))
+                        .add(new ResultadoBusca(r.getCaminhoArquivo(), r.getLinha(), r.getConteudo()));
+            }
+            for (Map.Entry<String, String> e : faltando.entrySet()) {
+                List<ResultadoBusca> doTermo = porDobrado.get(e.getValue());
+                if (cache != null) doTermo = cache.guardar(diretorio, filtro, e.getKey(), metodo, modo, versao, doTermo, true);
+                porTermo.put(e.getKey(), doTermo);
+            }
+            metricas.concluir(juntos.size());
+        }
+        return porTermo;
+    }
+
     // <editor-fold desc="Sequencial">
 
-    private List<ResultadoBusca> buscaSequencial(File diretorio, String termo) {
+    private List<ResultadoBusca> buscaSequencial(File diretorio, String termo, ModoComparacao modo) {
+        return buscaSequencial(diretorio, termo, modo, new MetricasBusca("sequencial", termo, modo));
+    }
+
+    private List<ResultadoBusca> buscaSequencial(File diretorio, String termo, ModoComparacao modo, MetricasBusca metricas) {
         List<ResultadoBusca> resultados = new ArrayList<>();
 
         if (diretorio == null || !diretorio.isDirectory()) {
-            System.out.println("Diretório inválido");
+            System.err.println("Diretório inválido");
             return resultados;
         }
 
-        File[] arquivos = diretorio.listFiles();
-        if (arquivos == null) return resultados;
+        long inicioListagem = System.nanoTime();
+        List<File> arquivos = listarArquivos(diretorio);
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
 
-        for (File arquivo : arquivos) {
-            if (arquivo.isFile()) {
-                try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
-                    String linha;
-                    int numeroLinha = 0;
-                    while ((linha = reader.readLine()) != null) {
-                        numeroLinha++;
-                        if (linha.contains(termo)) {  // se a linha contém o termo
-                            ResultadoBusca resultado = new ResultadoBusca(arquivo.getName(), numeroLinha, linha);
-                            resultados.add(resultado);
-                        }
-                    }
-                } catch (IOException e) {
-                    System.out.println("Erro lendo arquivo: " + arquivo.getName());
-                    e.printStackTrace();
+        // Cópias idênticas são lidas uma vez só
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        metricas.somarListagem(System.nanoTime() - inicioListagem);
+        PadraoCompilado padrao = PadraoCompilado.literal(termo, modo);
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            porArquivo.put(arquivo, lerSequencial(arquivo, nomes.apply(arquivo), padrao, metricas.arquivo()));
+        }
+        long inicioJuncao = System.nanoTime();
+        List<ResultadoBusca> juntos = DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+        metricas.somarJuncao(System.nanoTime() - inicioJuncao);
+        return juntos;
+    }
+
+    private List<ResultadoBusca> lerSequencial(File arquivo, String nome, PadraoCompilado padrao, MetricasBusca.Arquivo medicao) {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            medicao.aberto();
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                if (medicao.contem(padrao, linha)) {  // se a linha contém o termo
+                    ResultadoBusca resultado = new ResultadoBusca(nome, numeroLinha, linha);
+                    resultados.add(resultado);
                 }
             }
+        } catch (IOException e) {
+            System.err.println("Erro lendo arquivo: " + arquivo.getName());
+            e.printStackTrace();
         }
-
+        medicao.concluir(arquivo.length());
         return resultados;
     }
     // </editor-fold>
 
     // <editor-fold desc="Boyer-Moore">
-    private List<ResultadoBusca> buscaBoyerMoore(File diretorio, String termo) {
+    private List<ResultadoBusca> buscaBoyerMoore(File diretorio, String termo, ModoComparacao modo, MetricasBusca metricas) {
         List<ResultadoBusca> resultados = new ArrayList<>();
         if (diretorio == null || !diretorio.isDirectory()) return resultados;
 
-        for (File arquivo : diretorio.listFiles()) {
-            if (arquivo.isFile()) {
+        long inicioListagem = System.nanoTime();
+        List<File> arquivos = listarArquivos(diretorio);
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        metricas.somarListagem(System.nanoTime() - inicioListagem);
+        // Tabela de saltos montada uma vez para todas as linhas de todos os arquivos
+        Horspool padrao = Horspool.compilar(termo, modo);
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            porArquivo.put(arquivo, lerBoyerMoore(arquivo, nomes.apply(arquivo), padrao, metricas.arquivo()));
+        }
+        long inicioJuncao = System.nanoTime();
+        List<ResultadoBusca> juntos = DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+        metricas.somarJuncao(System.nanoTime() - inicioJuncao);
+        return juntos;
+    }
+
+    private List<ResultadoBusca> lerBoyerMoore(File arquivo, String nome, Horspool padrao, MetricasBusca.Arquivo medicao) {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            medicao.aberto();
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                if (medicao.contem(padrao, linha)) {
+                    ResultadoBusca resultado = new ResultadoBusca(nome, numeroLinha, linha);
+                    resultados.add(resultado);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        medicao.concluir(arquivo.length());
+        return resultados;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Paralelismo">
+
+    public List<ResultadoBusca> buscarParalelo(File diretorio, String termo) {
+        return buscarParalelo(diretorio, termo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscarParalelo(File diretorio, String termo, ModoComparacao modo) {
+        Map<File, List<ResultadoBusca>> porArquivo = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+
+        List<File> arquivos = listarArquivos(diretorio);
+
+        // Uma thread por conteúdo distinto, não por cópia
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        PadraoCompilado padrao = PadraoCompilado.literal(termo, modo);
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            Thread thread = new Thread(() -> {
+                List<ResultadoBusca> resultadosLocais = new ArrayList<>();
+                // Um caminho por arquivo, compartilhado por todos os acertos dele
+                String caminho = arquivo.getAbsolutePath();
+                int numeroLinha = 0;
+                // Mesmas quebras de linha e decodificação dos outros métodos (o Scanner parava no primeiro byte inválido)
                 try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
                     String linha;
-                    int numeroLinha = 0;
                     while ((linha = reader.readLine()) != null) {
                         numeroLinha++;
-                        if (containsBoyerMoore(linha, termo)) {
-                            ResultadoBusca resultado = new ResultadoBusca(arquivo.getName(), numeroLinha, linha);
-                            resultados.add(resultado);
+                        if (padrao.contem(linha)) {
+                            resultadosLocais.add(new ResultadoBusca(caminho, numeroLinha, linha));
                         }
                     }
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    System.err.println("Erro ao ler o arquivo: " + arquivo.getAbsolutePath());
+                }
+                // Publica os resultados locais uma única vez
+                if (!resultadosLocais.isEmpty()) {
+                    porArquivo.put(arquivo, resultadosLocais);
                 }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Espera todas as threads terminarem
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
             }
         }
 
-        return resultados;
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, File::getAbsolutePath);
     }
 
-    // Implementação do Boyer-Moore simples
-    private boolean containsBoyerMoore(String texto, String padrao) {
-        int[] badChar = buildBadCharTable(padrao);
-        int n = texto.length();
-        int m = padrao.length();
-        int shift = 0;
+    // </editor-fold>
 
-        while (shift <= n - m) {
-            int j = m - 1;
-            while (j >= 0 && padrao.charAt(j) == texto.charAt(shift + j)) {
-                j--;
+    public List<ResultadoBusca> buscarParaleloOtimizado(File diretorio, String termo) {
+        return buscarParaleloOtimizado(diretorio, termo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscarParaleloOtimizado(File diretorio, String termo, ModoComparacao modo) {
+        // Compila o termo uma vez; todas as threads usam o mesmo objeto
+        return buscarParaleloOtimizado(diretorio, PadraoCompilado.literal(termo, modo), new MetricasBusca("paralelo otimizado", termo, modo));
+    }
+
+    private List<ResultadoBusca> buscarParaleloOtimizado(File diretorio, PadraoCompilado padrao, MetricasBusca metricas) {
+        // Usa um pool fixo; as threads leem enquanto a árvore ainda está sendo listada
+        int numThreads = numThreads(Runtime.getRuntime().availableProcessors() * 2, Integer.MAX_VALUE);
+        return varrerEmParalelo(diretorio, numThreads, (arquivo, nome) -> {
+            MetricasBusca.Arquivo medicao = metricas.arquivo();
+            List<ResultadoBusca> resultadosLocais = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+                medicao.aberto();
+                String linha;
+                int numeroLinha = 0;
+                while ((linha = reader.readLine()) != null) {
+                    numeroLinha++;
+                    if (medicao.contem(padrao, linha)) {
+                        resultadosLocais.add(new ResultadoBusca(nome, numeroLinha, linha));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao ler: " + nome);
+            }
+            medicao.concluir(arquivo.length());
+            return resultadosLocais;
+        }, metricas);
+    }
+
+    // <editor-fold desc="Percurso e leitura sobrepostos">
+
+    // Arquivos listados e ainda não pegos por nenhuma thread: segura a listagem de árvores enormes
+    private static final int CAPACIDADE_FILA = 1024;
+
+    // As threads do pool consomem a fila do percurso enquanto a árvore ainda está sendo listada, então a
+    // leitura começa com o primeiro diretório. Cada conteúdo é lido uma vez: o primeiro arquivo de cada
+    // tamanho sai na hora, os de tamanho repetido (possíveis cópias) esperam o fim da listagem.
+    // Os resultados voltam na ordem do percurso, como nos métodos que listam antes de ler.
+    private List<ResultadoBusca> varrerEmParalelo(File diretorio, int numThreads,
+                                                  BiFunction<File, String, List<ResultadoBusca>> leitura,
+                                                  MetricasBusca metricas) {
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+        PercursoArquivos.Fila fila = PercursoArquivos.percorrer(diretorio, filtro, CAPACIDADE_FILA);
+        DeduplicacaoArquivos.Incremental dedup = new DeduplicacaoArquivos.Incremental();
+        Map<File, List<ResultadoBusca>> porArquivo = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    while (true) {
+                        // Esperando a listagem trazer o próximo arquivo
+                        long antes = System.nanoTime();
+                        File arquivo = fila.proximo();
+                        metricas.somarEsperaFila(System.nanoTime() - antes);
+                        if (arquivo == null) return null;
+                        if (dedup.lerAgora(arquivo)) porArquivo.put(arquivo, leitura.apply(arquivo, nomes.apply(arquivo)));
+                    }
+                }));
             }
-            if (j < 0) return true; // achou o padrão
-            else {
-                char c = texto.charAt(shift + j);
-                int bcShift = badChar[c];
-                shift += Math.max(1, j - bcShift);
+            if (!esperar(futures, fila)) return new ArrayList<>();
+            metricas.somarListagem(fila.getNanosListagem());
+
+            futures.clear();
+            for (File arquivo : dedup.resolver(fila.ordem())) {
+                futures.add(executor.submit(() -> porArquivo.put(arquivo, leitura.apply(arquivo, nomes.apply(arquivo)))));
             }
+            if (!esperar(futures, fila)) return new ArrayList<>();
+        } finally {
+            executor.shutdownNow();
         }
-        return false;
+
+        long inicioJuncao = System.nanoTime();
+        List<ResultadoBusca> juntos = DeduplicacaoArquivos.replicar(dedup.representantes(), porArquivo, nomes);
+        metricas.somarJuncao(System.nanoTime() - inicioJuncao);
+        return juntos;
     }
 
-    private int[] buildBadCharTable(String padrao) {
-        final int ASCII_SIZE = 256;
-        int[] table = new int[ASCII_SIZE];
-        for (int i = 0; i < table.length; i++) table[i] = -1;
-        for (int i = 0; i < padrao.length(); i++) {
-            table[padrao.charAt(i)] = i;
+    // false se quem chamou foi interrompido (a listagem é cancelada)
+    private static boolean esperar(List<Future<?>> futures, PercursoArquivos.Fila fila) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                fila.cancelar();
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                // Sem essa thread a fila pode não esvaziar: para a listagem em vez de ficar preso
+                fila.cancelar();
+                e.printStackTrace();
+            }
         }
-        return table;
+        return true;
     }
     // </editor-fold>
 
-    // <editor-fold desc="Paralelismo">
+    // <editor-fold desc="Em fluxo">
 
-    public List<ResultadoBusca> buscarParalelo(File diretorio, String termo) {
-        List<ResultadoBusca> resultados = Collections.synchronizedList(new ArrayList<>());
-        List<Thread> threads = new ArrayList<>();
+    // Controla o limite e a parada antecipada de uma busca em fluxo (pode ser chamada de várias threads)
+    private static final class Entrega {
+        private final int limite;
+        private final Predicate<ResultadoBusca> receptor;
+        private final ProgressoBusca progresso;
+        private final MetricasBusca metricas;
+        private int entregues;
+        private volatile boolean encerrada;
+
+        Entrega(int limite, Predicate<ResultadoBusca> receptor, ProgressoBusca progresso, MetricasBusca metricas) {
+            this.limite = limite;
+            this.receptor = receptor;
+            this.progresso = progresso;
+            this.metricas = metricas;
+        }
+
+        synchronized boolean entregar(ResultadoBusca resultado) {
+            if (encerrada) return false;
+            entregues++;
+            if (!receptor.test(resultado) || (limite > 0 && entregues >= limite)) encerrada = true;
+            return !encerrada;
+        }
+
+        boolean encerrada() {
+            return encerrada || Thread.currentThread().isInterrupted();
+        }
+
+        void encerrar() {
+            encerrada = true;
+        }
+
+        synchronized int entregues() {
+            return entregues;
+        }
+    }
+
+    // Entrega cada resultado ao receptor assim que é encontrado, sem montar a lista inteira.
+    // O receptor devolve false para encerrar; limite <= 0 significa sem limite.
+    // Retorna quantos resultados foram entregues.
+    public int buscarEmFluxo(File diretorio, String termo, String metodo, int limite, Predicate<ResultadoBusca> receptor) {
+        return buscarEmFluxo(diretorio, termo, metodo, limite, receptor, new ProgressoBusca());
+    }
+
+    // Igual à anterior, mas vai atualizando os contadores de progresso (arquivos e bytes lidos)
+    public int buscarEmFluxo(File diretorio, String termo, String metodo, int limite, Predicate<ResultadoBusca> receptor,
+                             ProgressoBusca progresso) {
+        return buscarEmFluxo(diretorio, termo, metodo, ModoComparacao.EXATO, limite, receptor, progresso);
+    }
+
+    public int buscarEmFluxo(File diretorio, String termo, String metodo, ModoComparacao modo, int limite,
+                             Predicate<ResultadoBusca> receptor, ProgressoBusca progresso) {
+        if (diretorio == null || !diretorio.isDirectory()) return 0;
+
+        // A ordem de chegada do fluxo difere da lista do buscar(): os dois ficam em entradas separadas
+        String metodoFluxo = metodo + " (fluxo)";
+        MetricasBusca metricas = new MetricasBusca(metodoFluxo, termo, modo);
+        FiltroArquivos filtro = this.filtro;
+        if (cache != null) {
+            List<ResultadoBusca> guardados = cache.obter(diretorio, filtro, termo, metodoFluxo, modo, limite);
+            if (guardados != null) {
+                Entrega entrega = new Entrega(limite, receptor, progresso, metricas);
+                for (ResultadoBusca r : guardados) {
+                    if (!entrega.entregar(r)) break;
+                }
+                metricas.concluir(entrega.entregues());
+                return entrega.entregues();
+            }
+        }
+
+        metricas.varreu();
+        CacheResultados.Versao versao = cache != null ? CacheResultados.fotografar(diretorio, filtro) : null;
+        List<ResultadoBusca> entregues = new ArrayList<>();
+        // Entrega.entregar é sincronizado: a lista só é tocada por uma thread de cada vez
+        Entrega entrega = new Entrega(limite, cache == null ? receptor : r -> {
+            entregues.add(r);
+            return receptor.test(r);
+        }, progresso, metricas);
+
+        switch (metodo.toLowerCase()) {
+            case "sequencial", "mapeado" -> fluxoSequencial(diretorio, PadraoCompilado.literal(termo, modo), entrega);
+            case "boyer-moore" -> fluxoSequencial(diretorio, Horspool.compilar(termo, modo), entrega);
+            case "paralelo" -> fluxoParalelo(diretorio, PadraoCompilado.literal(termo, modo), File::getAbsolutePath, entrega);
+            case "paralelo otimizado", "fork/join", "virtual threads" ->
+                    fluxoParalelo(diretorio, PadraoCompilado.literal(termo, modo), PercursoArquivos.nomes(diretorio), entrega);
+            case "indexado" -> {
+                // O índice já devolve só as linhas que casam; aqui só se respeita o limite
+                for (ResultadoBusca r : buscaIndexada(diretorio, termo, modo)) {
+                    if (!entrega.entregar(r)) break;
+                }
+            }
+            case "snapshot" -> {
+                for (ResultadoBusca r : buscaSnapshot(diretorio, PadraoCompilado.literal(termo, modo), entrega.metricas)) {
+                    if (!entrega.entregar(r)) break;
+                }
+            }
+            case "regex" -> fluxoParalelo(diretorio, PadraoRegex.compilar(termo, modo), PercursoArquivos.nomes(diretorio), entrega);
+            case "ranqueado", "ranqueado bm25" -> {
+                // Os k melhores só são conhecidos no fim da varredura
+                boolean bm25 = metodo.equalsIgnoreCase("ranqueado bm25");
+                for (ResultadoBusca r : buscarRanqueado(diretorio, termo, K_PADRAO, modo, bm25, entrega.metricas)) {
+                    if (!entrega.entregar(r)) break;
+                }
+            }
+            case "aproximado" -> {
+                // A ordem por distância só existe com todas as linhas conferidas
+                for (ResultadoBusca r : buscarAproximado(diretorio, termo, MyersAproximado.distanciaPadrao(termo), modo, true)) {
+                    if (!entrega.entregar(r)) break;
+                }
+            }
+            default -> throw new IllegalArgumentException("Tipo de busca inválido: " + metodo);
+        }
+
+        // Encerrada antes do fim (limite, receptor ou interrupção): guarda só como os primeiros resultados
+        if (cache != null) cache.guardar(diretorio, filtro, termo, metodoFluxo, modo, versao, entregues, !entrega.encerrada());
+        metricas.concluir(entrega.entregues());
+        return entrega.entregues();
+    }
+
+    // Mantém a ordem dos arquivos; o resultado de um conteúdo só é guardado enquanto houver cópias por vir
+    private void fluxoSequencial(File diretorio, PadraoCompilado padrao, Entrega entrega) {
+        long inicioListagem = System.nanoTime();
+        List<File> arquivos = listarArquivos(diretorio);
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+        entrega.progresso.definirTotalArquivos(arquivos.size());
+
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        entrega.metricas.somarListagem(System.nanoTime() - inicioListagem);
+        Map<File, Integer> copiasPendentes = new HashMap<>();
+        for (Map.Entry<File, File> e : representantes.entrySet()) {
+            if (e.getKey() != e.getValue()) copiasPendentes.merge(e.getValue(), 1, Integer::sum);
+        }
+
+        Map<File, List<ResultadoBusca>> guardados = new HashMap<>();
+        for (Map.Entry<File, File> e : representantes.entrySet()) {
+            if (entrega.encerrada()) return;
+            File arquivo = e.getKey();
+            File representante = e.getValue();
+
+            if (arquivo == representante) {
+                List<ResultadoBusca> guardar = copiasPendentes.containsKey(arquivo) ? new ArrayList<>() : null;
+                lerEmFluxo(arquivo, padrao, nomes, entrega, r -> {
+                    if (guardar != null) guardar.add(r);
+                    return entrega.entregar(r);
+                });
+                if (guardar != null) guardados.put(arquivo, guardar);
+            } else {
+                for (ResultadoBusca r : guardados.getOrDefault(representante, List.of())) {
+                    if (!entrega.entregar(new ResultadoBusca(nomes.apply(arquivo), r.getLinha(), r.getConteudo()))) return;
+                }
+                if (copiasPendentes.merge(representante, -1, Integer::sum) == 0) guardados.remove(representante);
+            }
+            entrega.progresso.arquivoConcluido();
+        }
+    }
 
-        File[] arquivos = diretorio.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
-
-        if (arquivos != null) {
-            for (File arquivo : arquivos) {
-                Thread thread = new Thread(() -> {
-                    List<ResultadoBusca> resultadosLocais = new ArrayList<>();
-                    int numeroLinha = 0;
-                    try (Scanner scanner = new Scanner(arquivo)) {
-                        while (scanner.hasNextLine()) {
-                            String linha = scanner.nextLine();
-                            numeroLinha++;
-                            if (linha.contains(termo)) {
-                                resultadosLocais.add(new ResultadoBusca(arquivo.getAbsolutePath(), numeroLinha, linha));
+    // Ordem de chegada; cada acerto já sai também para as cópias do arquivo. Lista a árvore inteira
+    // antes de ler: para replicar um acerto na hora, as cópias de cada arquivo precisam ser conhecidas.
+    private void fluxoParalelo(File diretorio, PadraoCompilado padrao, Function<File, String> caminho, Entrega entrega) {
+        long inicioListagem = System.nanoTime();
+        List<File> arquivos = listarArquivos(diretorio);
+        if (arquivos.isEmpty()) return;
+        entrega.progresso.definirTotalArquivos(arquivos.size());
+
+        Map<File, List<File>> copias = new LinkedHashMap<>();
+        for (Map.Entry<File, File> e : DeduplicacaoArquivos.representantes(arquivos).entrySet()) {
+            copias.computeIfAbsent(e.getValue(), f -> new ArrayList<>());
+            if (e.getKey() != e.getValue()) copias.get(e.getValue()).add(e.getKey());
+        }
+        entrega.metricas.somarListagem(System.nanoTime() - inicioListagem);
+
+        Semaphore arquivosAbertos = new Semaphore(numThreads(MAX_ARQUIVOS_ABERTOS, MAX_ARQUIVOS_ABERTOS));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<File, List<File>> e : copias.entrySet()) {
+                long enfileirado = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    arquivosAbertos.acquire();
+                    entrega.metricas.somarEsperaFila(System.nanoTime() - enfileirado);
+                    try {
+                        lerEmFluxo(e.getKey(), padrao, caminho, entrega, r -> {
+                            if (!entrega.entregar(r)) return false;
+                            for (File copia : e.getValue()) {
+                                if (!entrega.entregar(new ResultadoBusca(caminho.apply(copia), r.getLinha(), r.getConteudo()))) {
+                                    return false;
+                                }
                             }
-                        }
-                    } catch (FileNotFoundException e) {
-                        System.err.println("Erro ao ler o arquivo: " + arquivo.getAbsolutePath());
+                            return true;
+                        });
+                    } finally {
+                        arquivosAbertos.release();
                     }
-                    // Junta os resultados locais na lista compartilhada uma única vez
-                    if (!resultadosLocais.isEmpty()) {
-                        synchronized (resultados) {
-                            resultados.addAll(resultadosLocais);
-                        }
+                    for (int i = 0; i <= e.getValue().size(); i++) entrega.progresso.arquivoConcluido();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    entrega.encerrar();
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void lerEmFluxo(File arquivo, PadraoCompilado padrao, Function<File, String> caminho, Entrega entrega,
+                            Predicate<ResultadoBusca> saida) {
+        // Bytes contados por linha (aproximado) e acertados com o tamanho real no fim do arquivo
+        String nomeArquivo = caminho.apply(arquivo);
+        MetricasBusca.Arquivo medicao = entrega.metricas.arquivo();
+        long contados = 0;
+        long pendentes = 0;
+        boolean completo = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            medicao.aberto();
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                if (entrega.encerrada()) return;
+                numeroLinha++;
+                pendentes += linha.length() + 1;
+                if (pendentes >= 64 * 1024) {
+                    entrega.progresso.somarBytes(pendentes);
+                    contados += pendentes;
+                    pendentes = 0;
+                }
+                if (medicao.contem(padrao, linha) && !saida.test(new ResultadoBusca(nomeArquivo, numeroLinha, linha))) {
+                    return;
+                }
+            }
+            entrega.progresso.somarBytes(Math.max(0, arquivo.length() - contados));
+            completo = true;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + nomeArquivo);
+        } finally {
+            // Parado no meio (limite ou cancelamento): conta só o que chegou a ser lido
+            medicao.concluir(completo ? arquivo.length() : contados + pendentes);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Virtual threads">
+
+    // Limita os arquivos abertos ao mesmo tempo, não o número de threads
+    private static final int MAX_ARQUIVOS_ABERTOS = 256;
+
+    public List<ResultadoBusca> buscarVirtual(File diretorio, String termo) {
+        return buscarVirtual(diretorio, termo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscarVirtual(File diretorio, String termo, ModoComparacao modo) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+
+        List<File> arquivos = listarArquivos(diretorio);
+        if (arquivos.isEmpty()) return new ArrayList<>();
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        Map<File, List<ResultadoBusca>> porArquivo = new ConcurrentHashMap<>();
+        Semaphore arquivosAbertos = new Semaphore(numThreads(MAX_ARQUIVOS_ABERTOS, MAX_ARQUIVOS_ABERTOS));
+        PadraoCompilado padrao = PadraoCompilado.literal(termo, modo);
+
+        // O close() do executor espera todas as tarefas: nenhuma sobrevive ao método
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+                futures.add(executor.submit(() -> {
+                    arquivosAbertos.acquire();
+                    try {
+                        List<ResultadoBusca> resultadosLocais = lerInterrompivel(arquivo, nomes.apply(arquivo), padrao);
+                        if (!resultadosLocais.isEmpty()) porArquivo.put(arquivo, resultadosLocais);
+                    } finally {
+                        arquivosAbertos.release();
                     }
-                });
-                threads.add(thread);
-                thread.start();
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    // Quem chamou desistiu: interrompe as tarefas que ainda estão rodando
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    return new ArrayList<>();
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    throw new IllegalStateException("Falha na busca com virtual threads", e.getCause());
+                }
+            }
+        }
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+    }
+
+    private List<ResultadoBusca> lerInterrompivel(File arquivo, String nome, PadraoCompilado padrao) throws InterruptedException {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                numeroLinha++;
+                if (padrao.contem(linha)) {
+                    resultados.add(new ResultadoBusca(nome, numeroLinha, linha));
+                }
             }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + nome);
         }
+        return resultados;
+    }
+    // </editor-fold>
 
-        // Espera todas as threads terminarem
-        for (Thread thread : threads) {
+    // <editor-fold desc="Fork/Join">
+
+    private static final long TAMANHO_BLOCO = 1024 * 1024;
+
+    // Pedaço de um arquivo; dono das linhas que começam em [inicioNominal, fimNominal)
+    private static final class Bloco {
+        final File arquivo;
+        final String nome;
+        final long inicioNominal;
+        final long fimNominal;
+        final ResultadosCompactos resultados = new ResultadosCompactos();
+        int linhas;
+
+        Bloco(File arquivo, String nome, long inicioNominal, long fimNominal) {
+            this.arquivo = arquivo;
+            this.nome = nome;
+            this.inicioNominal = inicioNominal;
+            this.fimNominal = fimNominal;
+        }
+    }
+
+    // Divide a lista de blocos ao meio até sobrar um; o ForkJoinPool rouba metades ociosas
+    private static final class TarefaBlocos extends RecursiveAction {
+        private final List<Bloco> blocos;
+        private final int de;
+        private final int ate;
+        private final BuscaMapeada mapeada;
+        private final BuscaMapeada.PadraoBytes padrao;
+
+        TarefaBlocos(List<Bloco> blocos, int de, int ate, BuscaMapeada mapeada, BuscaMapeada.PadraoBytes padrao) {
+            this.blocos = blocos;
+            this.de = de;
+            this.ate = ate;
+            this.mapeada = mapeada;
+            this.padrao = padrao;
+        }
+
+        @Override
+        protected void compute() {
+            if (ate - de == 1) {
+                varrerBloco(blocos.get(de), mapeada, padrao);
+                return;
+            }
+            int meio = (de + ate) >>> 1;
+            invokeAll(new TarefaBlocos(blocos, de, meio, mapeada, padrao),
+                    new TarefaBlocos(blocos, meio, ate, mapeada, padrao));
+        }
+    }
+
+    public List<ResultadoBusca> buscarForkJoin(File diretorio, String termo) {
+        return buscarForkJoin(diretorio, termo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscarForkJoin(File diretorio, String termo, ModoComparacao modo) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+        if (termo.isEmpty()) return buscaSequencial(diretorio, termo, modo);
+        if (BuscaMapeada.atravessaLinhas(termo)) return new ArrayList<>();
+
+        List<File> arquivos = listarArquivos(diretorio);
+        if (arquivos.isEmpty()) return new ArrayList<>();
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        List<Bloco> blocos = new ArrayList<>();
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            long tamanho = arquivo.length();
+            String nome = nomes.apply(arquivo);
+            long inicio = 0;
+            do {
+                long fim = Math.min(tamanho, inicio + TAMANHO_BLOCO);
+                blocos.add(new Bloco(arquivo, nome, inicio, fim));
+                inicio = fim;
+            } while (inicio < tamanho);
+        }
+
+        // Um padrão compilado para todos os blocos
+        BuscaMapeada mapeada = new BuscaMapeada(modo);
+        TarefaBlocos tarefa = new TarefaBlocos(blocos, 0, blocos.size(), mapeada, mapeada.compilarBytes(termo));
+        int fixado = paralelismo;
+        if (fixado == 0) {
+            ForkJoinPool.commonPool().invoke(tarefa);
+        } else {
             try {
-                thread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                poolForkJoin(fixado).invoke(tarefa);
+            } catch (RejectedExecutionException e) {
+                // O pool foi trocado ou fechado entre pegar e usar: um só desta chamada
+                ForkJoinPool pool = new ForkJoinPool(fixado);
+                try {
+                    pool.invoke(tarefa);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        // Cada bloco numerou as linhas a partir de 1: soma as linhas dos blocos anteriores do mesmo arquivo
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        File anterior = null;
+        int base = 0;
+        for (Bloco bloco : blocos) {
+            if (bloco.arquivo != anterior) {
+                anterior = bloco.arquivo;
+                base = 0;
+            }
+            ResultadosCompactos doArquivo = (ResultadosCompactos) porArquivo.computeIfAbsent(bloco.arquivo, f -> new ResultadosCompactos());
+            doArquivo.anexar(bloco.resultados, null, base);
+            base += bloco.linhas;
+        }
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+    }
+
+    private synchronized ForkJoinPool poolForkJoin(int paralelismo) {
+        if (poolForkJoin == null || poolForkJoin.getParallelism() != paralelismo) {
+            if (poolForkJoin != null) poolForkJoin.shutdown();
+            poolForkJoin = new ForkJoinPool(paralelismo);
+        }
+        return poolForkJoin;
+    }
+
+    private static void varrerBloco(Bloco bloco, BuscaMapeada mapeada, BuscaMapeada.PadraoBytes padrao) {
+        try (FileChannel canal = FileChannel.open(bloco.arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long inicio = inicioDeLinha(canal, bloco.inicioNominal, tamanho);
+            long fim = inicioDeLinha(canal, bloco.fimNominal, tamanho);
+            if (inicio >= fim) return;
+            bloco.resultados.novoArquivo(bloco.nome, bloco.arquivo);
+            bloco.linhas = mapeada.buscarEmRegiao(canal, inicio, fim, padrao, bloco.resultados);
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + bloco.nome);
+        }
+    }
+
+    // Primeira posição >= pos que começa uma linha (logo após um '\n'), ou o fim do arquivo
+    private static long inicioDeLinha(FileChannel canal, long pos, long tamanho) throws IOException {
+        if (pos <= 0) return 0;
+        if (pos >= tamanho) return tamanho;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long atual = pos - 1;
+        while (atual < tamanho) {
+            buffer.clear();
+            int lidos = canal.read(buffer, atual);
+            if (lidos <= 0) break;
+            for (int i = 0; i < lidos; i++) {
+                if (buffer.get(i) == '\n') return atual + i + 1;
             }
+            atual += lidos;
         }
+        return tamanho;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Vários termos">
+
+    private List<ResultadoBusca> buscaMultipla(File diretorio, AhoCorasick automato, boolean paralelo, MetricasBusca metricas) {
+        if (diretorio == null || !diretorio.isDirectory() || automato.getPadroes().isEmpty()) return new ArrayList<>();
+
+        if (paralelo) {
+            int numThreads = numThreads(Runtime.getRuntime().availableProcessors() * 2, Integer.MAX_VALUE);
+            return varrerEmParalelo(diretorio, numThreads, (arquivo, nome) -> lerMultiplo(arquivo, nome, automato), metricas);
+        }
+
+        List<File> arquivos = listarArquivos(diretorio);
+        if (arquivos.isEmpty()) return new ArrayList<>();
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
 
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            porArquivo.put(arquivo, lerMultiplo(arquivo, nomes.apply(arquivo), automato));
+        }
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+    }
+
+    // Um resultado por (linha, termo), marcado com o termo que casou
+    private List<ResultadoBusca> lerMultiplo(File arquivo, String nome, AhoCorasick automato) {
+        List<ResultadoBusca> resultados = new ArrayList<>();
+        List<String> padroes = automato.getPadroes();
+        AhoCorasick.Varredor varredor = automato.novoVarredor();
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                int encontrados = varredor.encontrar(linha);
+                for (int i = 0; i < encontrados; i++) {
+                    String padrao = padroes.get(varredor.encontrados()[i]);
+                    resultados.add(new ResultadoBusca(nome, numeroLinha, linha, padrao));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + nome);
+        }
         return resultados;
     }
+    // </editor-fold>
 
+    // <editor-fold desc="Regex">
+
+    // Linhas em que a expressão regular acha um trecho (Matcher.find). O Pattern compilado fica em
+    // cache entre consultas, e só as linhas que passam pelo pré-filtro literal chegam ao Matcher.
+    public List<ResultadoBusca> buscarRegex(File diretorio, String regex, ModoComparacao modo) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+        return buscarParaleloOtimizado(diretorio, PadraoRegex.compilar(regex, modo), new MetricasBusca("regex", regex, modo));
+    }
     // </editor-fold>
 
-    public List<ResultadoBusca> buscarParaleloOtimizado(File diretorio, String termo) {
+    // <editor-fold desc="Aproximada">
+
+    // Linhas com algum trecho a até maxDistancia edições do termo, da menor distância para a maior
+    // (empates na ordem dos arquivos). Com usarIndice, o índice de trigramas descarta antes as linhas
+    // que não têm como chegar lá; sem ele (ou com termo curto demais para filtrar), varre tudo com o Myers.
+    public List<ResultadoBusca> buscarAproximado(File diretorio, String termo, int maxDistancia, ModoComparacao modo,
+                                                 boolean usarIndice) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+
+        MyersAproximado padrao = MyersAproximado.compilar(termo, maxDistancia, modo);
+        List<ResultadoBusca> resultados = usarIndice ? IndiceNGramas.obter(diretorio, filtro).buscar(padrao) : null;
+        if (resultados == null) resultados = varrerAproximado(diretorio, padrao, modo);
+
+        List<ResultadoBusca> ordenados = new ArrayList<>(resultados);
+        ordenados.sort(Comparator.comparingInt(r -> ((ResultadoAproximado) r).getDistancia()));
+        return ordenados;
+    }
+
+    private List<ResultadoBusca> varrerAproximado(File diretorio, MyersAproximado padrao, ModoComparacao modo) {
+        // Cada linha custa uma passada pelo Myers: vale dividir os arquivos entre os núcleos
+        int numThreads = numThreads(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE);
+        return varrerEmParalelo(diretorio, numThreads, (arquivo, nome) -> lerAproximado(arquivo, nome, padrao),
+                new MetricasBusca("aproximado", padrao.getPadrao(), modo));
+    }
+
+    private List<ResultadoBusca> lerAproximado(File arquivo, String nome, MyersAproximado padrao) {
         List<ResultadoBusca> resultados = new ArrayList<>();
-        File[] arquivos = diretorio.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
-        if (arquivos == null || arquivos.length == 0) return resultados;
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                int distancia = padrao.distancia(linha);
+                if (distancia >= 0) resultados.add(new ResultadoAproximado(nome, numeroLinha, linha, distancia));
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + nome);
+        }
+        return resultados;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Ranqueada">
+
+    // Quantos resultados os métodos "ranqueado" devolvem quando chamados pelo nome
+    public static final int K_PADRAO = 100;
+
+    // Os k acertos mais relevantes (ver Relevancia), do melhor para o pior. Com bm25, os tokens do termo
+    // também pesam pelas frequências do índice invertido do diretório (construído na primeira vez).
+    public List<ResultadoBusca> buscarRanqueado(File diretorio, String termo, int k, ModoComparacao modo, boolean bm25) {
+        return buscarRanqueado(diretorio, termo, k, modo, bm25, new MetricasBusca(bm25 ? "ranqueado bm25" : "ranqueado", termo, modo));
+    }
+
+    // Mesma sobreposição de percurso e leitura do varrerEmParalelo, mas cada thread guarda só os seus k
+    // melhores num heap limitado, e no fim os heaps das threads são juntados. As cópias recebem os k
+    // melhores do seu conteúdo: a lista de um arquivo só é guardada quando outro do mesmo tamanho já foi
+    // adiado (pode ter cópias); o representante que ganha cópias depois de lido é relido na segunda fase.
+    // Memória: k por thread, k por conteúdo que tem cópias e uma referência por arquivo com acertos.
+    private List<ResultadoBusca> buscarRanqueado(File diretorio, String termo, int k, ModoComparacao modo, boolean bm25,
+                                                 MetricasBusca metricas) {
+        if (k < 1) throw new IllegalArgumentException("Quantidade de resultados inválida: " + k);
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+
+        PadraoCompilado padrao = PadraoCompilado.literal(termo, modo);
+        IndiceInvertido.EstatisticasTokens estatisticas = bm25
+                ? IndiceInvertido.obter(diretorio, filtro).estatisticas(Relevancia.tokens(termo)) : null;
+        Relevancia relevancia = new Relevancia(termo, modo, estatisticas);
 
-        // Pré-processa o termo para evitar lowerCase repetido
-        final String termoFinal = termo;
+        int numThreads = numThreads(Runtime.getRuntime().availableProcessors() * 2, Integer.MAX_VALUE);
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
+        PercursoArquivos.Fila fila = PercursoArquivos.percorrer(diretorio, filtro, CAPACIDADE_FILA);
+        DeduplicacaoArquivos.Incremental dedup = new DeduplicacaoArquivos.Incremental();
+        // Os k melhores dos conteúdos lidos na primeira fase que podem ter cópias
+        Map<File, List<ResultadoRanqueado>> porArquivo = new ConcurrentHashMap<>();
+        // Lidos na primeira fase com acertos, sem a lista guardada: relidos se tiverem cópias
+        Set<File> semLista = ConcurrentHashMap.newKeySet();
+        // Um heap por thread, o mesmo nas duas fases (a segunda só começa depois do fim da primeira)
+        Relevancia.MelhoresK[] heaps = new Relevancia.MelhoresK[numThreads];
+        for (int i = 0; i < numThreads; i++) heaps[i] = new Relevancia.MelhoresK(k);
 
-        // Usa um pool fixo menor que o total de arquivos
-        int numThreads = Math.min(Runtime.getRuntime().availableProcessors() * 2, arquivos.length);
         ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                Relevancia.MelhoresK melhores = heaps[i];
+                futures.add(executor.submit(() -> {
+                    while (true) {
+                        long antes = System.nanoTime();
+                        File arquivo = fila.proximo();
+                        metricas.somarEsperaFila(System.nanoTime() - antes);
+                        if (arquivo == null) return null;
+                        if (!dedup.lerAgora(arquivo)) continue;
+                        List<ResultadoRanqueado> ordenados = ranquearArquivo(arquivo, nomes.apply(arquivo), padrao, relevancia, k, metricas);
+                        if (ordenados.isEmpty()) continue;
+                        oferecer(ordenados, null, melhores);
+                        if (dedup.tamanhoRepetido(arquivo)) porArquivo.put(arquivo, ordenados);
+                        else semLista.add(arquivo);
+                    }
+                }));
+            }
+            if (!esperar(futures, fila)) return new ArrayList<>();
+            metricas.somarListagem(fila.getNanosListagem());
 
-        List<Future<List<ResultadoBusca>>> futures = new ArrayList<>();
+            Queue<File> adiados = new ConcurrentLinkedQueue<>(dedup.resolver(fila.ordem()));
+            // Nomes das cópias de cada conteúdo que ainda não tem a lista guardada
+            Map<File, List<String>> copias = new HashMap<>();
+            for (Map.Entry<File, File> e : dedup.representantes().entrySet()) {
+                if (e.getKey().equals(e.getValue()) || porArquivo.containsKey(e.getValue())) continue;
+                copias.computeIfAbsent(e.getValue(), f -> new ArrayList<>()).add(nomes.apply(e.getKey()));
+            }
+            Queue<File> relidos = new ConcurrentLinkedQueue<>();
+            for (File representante : copias.keySet()) {
+                if (semLista.contains(representante)) relidos.add(representante);
+            }
+            semLista.clear();
 
-        for (File arquivo : arquivos) {
-            futures.add(executor.submit(() -> {
-                List<ResultadoBusca> resultadosLocais = new ArrayList<>();
-                try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
-                    String linha;
-                    int numeroLinha = 0;
-                    while ((linha = reader.readLine()) != null) {
-                        numeroLinha++;
-                        // Normaliza linha uma vez
-                        if (linha.contains(termoFinal)) {
-                            resultadosLocais.add(new ResultadoBusca(arquivo.getName(), numeroLinha, linha));
-                        }
+            futures.clear();
+            for (int i = 0; i < numThreads && !(adiados.isEmpty() && relidos.isEmpty()); i++) {
+                Relevancia.MelhoresK melhores = heaps[i];
+                futures.add(executor.submit(() -> {
+                    File arquivo;
+                    while ((arquivo = adiados.poll()) != null) {
+                        List<ResultadoRanqueado> ordenados = ranquearArquivo(arquivo, nomes.apply(arquivo), padrao, relevancia, k, metricas);
+                        oferecer(ordenados, null, melhores);
+                        for (String nome : copias.getOrDefault(arquivo, List.of())) oferecer(ordenados, nome, melhores);
                     }
-                } catch (IOException e) {
-                    System.err.println("Erro ao ler: " + arquivo.getName());
-                }
-                return resultadosLocais;
-            }));
+                    // O próprio representante já entrou nos heaps na primeira fase: só as cópias
+                    while ((arquivo = relidos.poll()) != null) {
+                        List<ResultadoRanqueado> ordenados = ranquearArquivo(arquivo, nomes.apply(arquivo), padrao, relevancia, k, metricas);
+                        for (String nome : copias.get(arquivo)) oferecer(ordenados, nome, melhores);
+                    }
+                    return null;
+                }));
+            }
+            if (!esperar(futures, fila)) return new ArrayList<>();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long inicioJuncao = System.nanoTime();
+        Relevancia.MelhoresK juntos = new Relevancia.MelhoresK(k);
+        for (Relevancia.MelhoresK melhores : heaps) juntos.juntar(melhores);
+        for (Map.Entry<File, File> e : dedup.representantes().entrySet()) {
+            if (e.getKey().equals(e.getValue())) continue;
+            List<ResultadoRanqueado> doConteudo = porArquivo.get(e.getValue());
+            if (doConteudo != null) oferecer(doConteudo, nomes.apply(e.getKey()), juntos);
+        }
+        List<ResultadoBusca> resultados = new ArrayList<>(juntos.ordenados());
+        metricas.somarJuncao(System.nanoTime() - inicioJuncao);
+        return resultados;
+    }
+
+    // Os k melhores do arquivo, do melhor para o pior
+    private static List<ResultadoRanqueado> ranquearArquivo(File arquivo, String nome, PadraoCompilado padrao,
+                                                            Relevancia relevancia, int k, MetricasBusca metricas) {
+        MetricasBusca.Arquivo medicao = metricas.arquivo();
+        Relevancia.MelhoresK doArquivo = new Relevancia.MelhoresK(k);
+        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
+            medicao.aberto();
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = reader.readLine()) != null) {
+                numeroLinha++;
+                if (!medicao.contem(padrao, linha)) continue;
+                double pontuacao = relevancia.pontuar(linha);
+                if (doArquivo.cabe(pontuacao)) doArquivo.oferecer(new ResultadoRanqueado(nome, numeroLinha, linha, pontuacao));
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler: " + nome);
+        }
+        medicao.concluir(arquivo.length());
+        return doArquivo.ordenados();
+    }
+
+    // 'ordenados' do melhor para o pior: o primeiro que não cabe encerra. Com 'nome', como resultados da cópia
+    private static void oferecer(List<ResultadoRanqueado> ordenados, String nome, Relevancia.MelhoresK melhores) {
+        for (ResultadoRanqueado r : ordenados) {
+            if (!melhores.cabe(r.getPontuacao())) break;
+            melhores.oferecer(nome == null ? r : (ResultadoRanqueado) r.comCaminho(nome));
         }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Por algoritmo">
+
+    // Delega a leitura de cada arquivo ao BuscaTexto (ex.: BuscaMapeada lê os bytes direto do mapeamento)
+    public List<ResultadoBusca> buscaComAlgoritmo(File diretorio, String termo, BuscaTexto algoritmo) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+
+        List<File> arquivos = listarArquivos(diretorio);
+        Function<File, String> nomes = PercursoArquivos.nomes(diretorio);
 
-        // Coleta os resultados de todas as threads
-        for (Future<List<ResultadoBusca>> future : futures) {
+        Map<File, File> representantes = DeduplicacaoArquivos.representantes(arquivos);
+        Map<File, List<ResultadoBusca>> porArquivo = new HashMap<>();
+        for (File arquivo : DeduplicacaoArquivos.unicos(representantes)) {
+            String nome = nomes.apply(arquivo);
             try {
-                resultados.addAll(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+                List<ResultadoBusca> doArquivo = algoritmo.buscarEmArquivo(arquivo, termo);
+                // O BuscaTexto só conhece o nome do arquivo: nos subdiretórios vale o caminho relativo
+                porArquivo.put(arquivo, nome.equals(arquivo.getName()) ? doArquivo : renomear(doArquivo, nome));
+            } catch (IOException e) {
+                System.err.println("Erro ao ler: " + nome);
             }
         }
+        return DeduplicacaoArquivos.replicar(representantes, porArquivo, nomes);
+    }
 
-        executor.shutdown();
-        return resultados;
+    private static List<ResultadoBusca> renomear(List<ResultadoBusca> resultados, String caminho) {
+        if (resultados instanceof ResultadosCompactos compactos) {
+            ResultadosCompactos renomeados = new ResultadosCompactos();
+            renomeados.anexar(compactos, caminho, 0);
+            return renomeados;
+        }
+        List<ResultadoBusca> renomeados = new ArrayList<>(resultados.size());
+        for (ResultadoBusca r : resultados) renomeados.add(r.comCaminho(caminho));
+        return renomeados;
     }
+    // </editor-fold>
+
+    // <editor-fold desc="Indexado">
+
+    // Consulta o índice invertido persistido do diretório (construído/atualizado sob demanda)
+    public List<ResultadoBusca> buscaIndexada(File diretorio, String termo) {
+        return buscaIndexada(diretorio, termo, ModoComparacao.EXATO);
+    }
+
+    public List<ResultadoBusca> buscaIndexada(File diretorio, String termo, ModoComparacao modo) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+        return IndiceInvertido.obter(diretorio, filtro).buscar(termo, modo);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Snapshot">
+
+    // Compara cada linha distinta do snapshot mapeado uma vez; sem snapshot (ex.: corpus grande demais
+    // para um), cai no paralelo otimizado
+    private List<ResultadoBusca> buscaSnapshot(File diretorio, PadraoCompilado padrao, MetricasBusca metricas) {
+        if (diretorio == null || !diretorio.isDirectory()) return new ArrayList<>();
+        long inicioListagem = System.nanoTime();
+        SnapshotCorpus snapshot = SnapshotCorpus.obter(diretorio, filtro);
+        metricas.somarListagem(System.nanoTime() - inicioListagem);
+        if (snapshot == null) return buscarParaleloOtimizado(diretorio, padrao, metricas);
+        return snapshot.buscar(padrao);
+    }
+    // </editor-fold>
 }
@@ -0,0 +1,53 @@
+package strategy;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.Function;
+
+import service.FiltroArquivos;
+import service.PercursoArquivos;
+import service.VigiaDiretorios;
+
+// Chaves de ordenação (PercursoArquivos.chaves) dos arquivos de um fragmento, para o coordenador
+// intercalar as respostas na ordem do diretório inteiro sem listá-lo. Refeitas só quando o
+// VigiaDiretorios avisa que a árvore mudou (ou a cada consulta, se ela não puder ser observada).
+final class ChavesPercurso {
+
+    // Arquivo fora da última listagem (criado depois dela): vai para o fim
+    static final long[] SEM_CHAVE = {Long.MAX_VALUE};
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+    private final Function<File, String> nomes;
+
+    private long versao = -1;
+    private Map<String, long[]> chaves;
+
+    ChavesPercurso(File diretorio, FiltroArquivos filtro) {
+        this.diretorio = diretorio.getAbsoluteFile();
+        this.filtro = filtro;
+        this.nomes = PercursoArquivos.nomes(this.diretorio);
+    }
+
+    // Os métodos ranqueados ordenam pela pontuação: dispensam as chaves
+    static boolean ordenaPorArquivo(String metodo) {
+        String nome = metodo.toLowerCase();
+        return !nome.equals("ranqueado") && !nome.equals("ranqueado bm25");
+    }
+
+    // Pelo caminho do resultado, relativo ou absoluto (o "paralelo" devolve caminhos absolutos)
+    long[] chave(Map<String, long[]> chaves, String caminho) {
+        File arquivo = new File(caminho);
+        long[] chave = chaves.get(arquivo.isAbsolute() ? nomes.apply(arquivo) : caminho);
+        return chave != null ? chave : SEM_CHAVE;
+    }
+
+    synchronized Map<String, long[]> chaves() {
+        long atual = VigiaDiretorios.versao(diretorio);
+        if (chaves == null || atual < 0 || atual != versao) {
+            chaves = PercursoArquivos.chaves(diretorio, filtro);
+            versao = atual;
+        }
+        return chaves;
+    }
+}
@@ -0,0 +1,465 @@
+package strategy;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+import model.ResultadoRanqueado;
+import service.FiltroArquivos;
+
+// Busca fragmentada: o diretório é dividido em N fragmentos (FiltroArquivos.fragmento) e cada um é
+// atendido por um processo JVM próprio (app.BuscaArquivosFragmento), com heap, índices e cache
+// separados. O coordenador espalha a consulta por sockets no loopback, junta as respostas na ordem
+// que o BuscasService.buscar() daria ao diretório inteiro (pelas chaves do percurso que vêm com cada
+// resultado, ver ChavesPercurso) e cobre os trabalhadores com problema:
+//  - fora do ar ou com erro: o fragmento é buscado aqui mesmo e o processo é reiniciado ao fundo;
+//  - sem resposta em 'prazoMs': a busca local começa em paralelo e vale a que terminar primeiro.
+// Cópias idênticas só são lidas uma vez dentro de cada fragmento, não entre fragmentos. No
+// "ranqueado bm25", cada fragmento pondera pelas frequências do seu próprio índice.
+public final class CoordenadorFragmentos implements Closeable {
+
+    // Tempo para um processo novo abrir o socket e avisar a porta
+    private static final long ESPERA_INICIO_MS = 30_000;
+    // Depois de uma falha ao subir, espera antes de tentar de novo (as consultas seguem com a busca local)
+    private static final long INTERVALO_REINICIO_MS = 5_000;
+
+    private final File diretorio;
+    private final FiltroArquivos filtro;
+    private final int threadsPorFragmento;
+    private final boolean cache;
+    private final long prazoMs;
+    private final List<String> opcoesJvm;
+    private final Trabalhador[] trabalhadores;
+    // Os mesmos fragmentos, buscados neste processo quando o trabalhador falha ou demora
+    private final BuscasService[] locais;
+    private final ChavesPercurso[] chavesLocais;
+
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "coordenador-fragmentos");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder lentas = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder locaisUsadas = new LongAdder();
+    private final LongAdder reinicios = new LongAdder();
+
+    private static final class Trabalhador {
+        final int indice;
+        Process processo;
+        // -1: fora do ar
+        volatile int porta = -1;
+        boolean subindo;
+        long proximaTentativa;
+
+        Trabalhador(int indice) {
+            this.indice = indice;
+        }
+    }
+
+    // threadsPorFragmento 0 deixa cada método escolher; prazoMs 0 nunca busca localmente por demora;
+    // opcoesJvm vão para cada trabalhador (ex.: "-Xmx512m")
+    public CoordenadorFragmentos(File diretorio, int fragmentos, FiltroArquivos filtro, int threadsPorFragmento,
+                                 boolean cache, long prazoMs, List<String> opcoesJvm) {
+        if (!diretorio.isDirectory()) throw new IllegalArgumentException("Diretório inválido: " + diretorio);
+        if (fragmentos < 1 || threadsPorFragmento < 0 || prazoMs < 0) {
+            throw new IllegalArgumentException("Parâmetros da busca fragmentada inválidos");
+        }
+        this.diretorio = diretorio;
+        this.filtro = filtro;
+        this.threadsPorFragmento = threadsPorFragmento;
+        this.cache = cache;
+        this.prazoMs = prazoMs;
+        this.opcoesJvm = List.copyOf(opcoesJvm);
+        this.trabalhadores = new Trabalhador[fragmentos];
+        this.locais = new BuscasService[fragmentos];
+        this.chavesLocais = new ChavesPercurso[fragmentos];
+        for (int i = 0; i < fragmentos; i++) {
+            trabalhadores[i] = new Trabalhador(i);
+            locais[i] = new BuscasService(null);
+            locais[i].setFiltro(filtro.fragmento(i, fragmentos));
+            locais[i].setParalelismo(threadsPorFragmento);
+            chavesLocais[i] = new ChavesPercurso(diretorio, locais[i].getFiltro());
+        }
+    }
+
+    public File getDiretorio() {
+        return diretorio;
+    }
+
+    public int getFragmentos() {
+        return trabalhadores.length;
+    }
+
+    // Sobe os processos em paralelo e espera todos avisarem a porta; devolve quantos subiram
+    // (os que falharam são buscados localmente até um reinício dar certo)
+    public int iniciar() throws InterruptedException {
+        List<Future<?>> subidas = new ArrayList<>();
+        for (Trabalhador t : trabalhadores) {
+            synchronized (t) {
+                t.subindo = true;
+            }
+            subidas.add(threads.submit(() -> subir(t)));
+        }
+        for (Future<?> subida : subidas) {
+            try {
+                subida.get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        int noAr = 0;
+        for (Trabalhador t : trabalhadores) if (t.porta >= 0) noAr++;
+        return noAr;
+    }
+
+    @Override
+    public void close() {
+        relogio.shutdownNow();
+        for (Trabalhador t : trabalhadores) {
+            Process processo;
+            synchronized (t) {
+                processo = t.processo;
+                t.processo = null;
+                t.porta = -1;
+            }
+            encerrar(processo);
+        }
+        for (BuscasService local : locais) local.close();
+        threads.shutdownNow();
+    }
+
+    // Mesmos resultados (e ordem) que o BuscasService.buscar() no diretório inteiro, a menos das
+    // cópias entre fragmentos no ranqueado. A lista pode ser modificada.
+    public List<ResultadoBusca> buscar(String termo, String metodo, ModoComparacao modo) throws InterruptedException {
+        consultas.increment();
+        MetricasBusca metricas = new MetricasBusca(metodo + " (" + trabalhadores.length + " fragmentos)", termo, modo);
+        metricas.varreu();
+
+        List<CompletableFuture<Resposta>> partes = new ArrayList<>();
+        for (Trabalhador t : trabalhadores) partes.add(consultar(t, termo, metodo, modo));
+        List<Resposta> respostas = new ArrayList<>();
+        try {
+            for (CompletableFuture<Resposta> parte : partes) respostas.add(aguardar(parte));
+        } finally {
+            // Consulta inválida ou interrompida: larga as outras partes (fecha os sockets)
+            for (CompletableFuture<Resposta> parte : partes) parte.cancel(false);
+        }
+
+        long inicioJuncao = System.nanoTime();
+        List<ResultadoBusca> resultados = juntar(respostas, metodo);
+        metricas.somarJuncao(System.nanoTime() - inicioJuncao);
+        metricas.concluir(resultados.size());
+        return resultados;
+    }
+
+    // <editor-fold desc="Espalhar e juntar">
+
+    // Os resultados de um fragmento e a chave do arquivo de cada um no percurso (vazias nos ranqueados)
+    private static final class Resposta {
+        final List<ResultadoBusca> resultados = new ArrayList<>();
+        final List<long[]> chaves = new ArrayList<>();
+    }
+
+    private CompletableFuture<Resposta> consultar(Trabalhador t, String termo, String metodo, ModoComparacao modo) {
+        CompletableFuture<Resposta> resposta = new CompletableFuture<>();
+        AtomicBoolean local = new AtomicBoolean();
+        Runnable buscarLocal = () -> {
+            if (!local.compareAndSet(false, true)) return;
+            locaisUsadas.increment();
+            threads.submit(() -> {
+                try {
+                    resposta.complete(buscarLocal(t.indice, termo, metodo, modo));
+                } catch (RuntimeException e) {
+                    resposta.completeExceptionally(e);
+                }
+            });
+        };
+
+        int porta = disponivel(t);
+        if (porta < 0) {
+            buscarLocal.run();
+            return resposta;
+        }
+        Socket socket = new Socket();
+        threads.submit(() -> {
+            try {
+                resposta.complete(pedir(socket, porta, termo, metodo, modo));
+            } catch (IllegalArgumentException e) {
+                resposta.completeExceptionally(e);
+            } catch (IOException e) {
+                // Já respondido: o socket foi fechado porque a busca local ganhou
+                if (resposta.isDone()) return;
+                falhas.increment();
+                System.err.println("Fragmento " + t.indice + " falhou: " + e.getMessage());
+                verificar(t, porta, e);
+                buscarLocal.run();
+            }
+        });
+        if (prazoMs > 0) {
+            ScheduledFuture<?> prazo = relogio.schedule(() -> {
+                if (resposta.isDone()) return;
+                lentas.increment();
+                buscarLocal.run();
+            }, prazoMs, TimeUnit.MILLISECONDS);
+            resposta.whenComplete((r, e) -> prazo.cancel(false));
+        }
+        resposta.whenComplete((r, e) -> fechar(socket));
+        return resposta;
+    }
+
+    private Resposta buscarLocal(int indice, String termo, String metodo, ModoComparacao modo) {
+        Resposta resposta = new Resposta();
+        resposta.resultados.addAll(locais[indice].buscar(diretorio, termo, metodo, modo));
+        Map<String, long[]> porNome = ChavesPercurso.ordenaPorArquivo(metodo) ? chavesLocais[indice].chaves() : null;
+        for (ResultadoBusca r : resposta.resultados) {
+            resposta.chaves.add(porNome == null ? null : chavesLocais[indice].chave(porNome, r.getCaminhoArquivo()));
+        }
+        return resposta;
+    }
+
+    private static Resposta pedir(Socket socket, int porta, String termo, String metodo, ModoComparacao modo)
+            throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta));
+        DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        TrabalhadorFragmento.escreverConsulta(saida, metodo, modo, termo);
+        saida.flush();
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        Resposta resposta = new Resposta();
+        ResultadoBusca r;
+        while ((r = TrabalhadorFragmento.lerResultado(entrada)) != null) {
+            resposta.resultados.add(r);
+            resposta.chaves.add(TrabalhadorFragmento.lerChave(entrada));
+        }
+        return resposta;
+    }
+
+    // Cada resposta já vem ordenada; a junção é uma intercalação pela mesma ordem
+    private static List<ResultadoBusca> juntar(List<Resposta> respostas, String metodo) {
+        boolean ranqueado = !ChavesPercurso.ordenaPorArquivo(metodo);
+        boolean aproximado = metodo.equalsIgnoreCase("aproximado");
+        // Cursores: {resposta, posição}
+        Comparator<int[]> ordem;
+        if (ranqueado) {
+            ordem = (a, b) -> Relevancia.ORDEM.compare((ResultadoRanqueado) resultado(respostas, a), (ResultadoRanqueado) resultado(respostas, b));
+        } else {
+            Comparator<int[]> porArquivo = (a, b) -> {
+                int c = Arrays.compare(respostas.get(a[0]).chaves.get(a[1]), respostas.get(b[0]).chaves.get(b[1]));
+                return c != 0 ? c : Integer.compare(resultado(respostas, a).getLinha(), resultado(respostas, b).getLinha());
+            };
+            // O aproximado vem da menor distância para a maior, empates na ordem dos arquivos
+            ordem = aproximado
+                    ? Comparator.comparingInt((int[] c) -> ((ResultadoAproximado) resultado(respostas, c)).getDistancia()).thenComparing(porArquivo)
+                    : porArquivo;
+        }
+
+        int total = 0;
+        for (Resposta resposta : respostas) total += resposta.resultados.size();
+        if (ranqueado) total = Math.min(total, BuscasService.K_PADRAO);
+        List<ResultadoBusca> juntos = new ArrayList<>(total);
+        PriorityQueue<int[]> cursores = new PriorityQueue<>(ordem);
+        for (int i = 0; i < respostas.size(); i++) {
+            if (!respostas.get(i).resultados.isEmpty()) cursores.add(new int[]{i, 0});
+        }
+        while (!cursores.isEmpty() && juntos.size() < total) {
+            int[] cursor = cursores.poll();
+            List<ResultadoBusca> resultados = respostas.get(cursor[0]).resultados;
+            juntos.add(resultados.get(cursor[1]));
+            if (++cursor[1] < resultados.size()) cursores.add(cursor);
+        }
+        return juntos;
+    }
+
+    private static ResultadoBusca resultado(List<Resposta> respostas, int[] cursor) {
+        return respostas.get(cursor[0]).resultados.get(cursor[1]);
+    }
+
+    // Devolve a exceção original (IllegalArgumentException...)
+    private static Resposta aguardar(CompletableFuture<Resposta> futuro) throws InterruptedException {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void fechar(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nada a fazer
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Processos">
+
+    // Porta do trabalhador, ou -1 se ele está fora do ar (e, passado o intervalo, manda subir de novo)
+    private int disponivel(Trabalhador t) {
+        int porta = t.porta;
+        if (porta >= 0) return porta;
+        synchronized (t) {
+            if (t.subindo || System.currentTimeMillis() < t.proximaTentativa) return -1;
+            t.subindo = true;
+        }
+        reinicios.increment();
+        threads.submit(() -> subir(t));
+        return -1;
+    }
+
+    // Conexão recusada ou processo morto: derruba o trabalhador para o próximo disponivel() subir outro.
+    // Outros erros (ex.: arquivo alterado durante a leitura) ficam só nesta consulta.
+    private void verificar(Trabalhador t, int porta, IOException erro) {
+        Process morto = null;
+        synchronized (t) {
+            if (t.porta != porta) return;
+            if (erro instanceof ConnectException || t.processo == null || !t.processo.isAlive()) {
+                morto = t.processo;
+                t.processo = null;
+                t.porta = -1;
+            }
+        }
+        encerrar(morto);
+    }
+
+    private void subir(Trabalhador t) {
+        Process processo = null;
+        int porta = -1;
+        try {
+            ProcessBuilder construtor = new ProcessBuilder(comando(t.indice));
+            construtor.redirectError(ProcessBuilder.Redirect.INHERIT);
+            processo = construtor.start();
+            BufferedReader saida = new BufferedReader(new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8));
+            Future<String> aviso = threads.submit(saida::readLine);
+            String linha = aviso.get(ESPERA_INICIO_MS, TimeUnit.MILLISECONDS);
+            if (linha == null || !linha.startsWith("PORTA ")) throw new IOException("Trabalhador não avisou a porta: " + linha);
+            porta = Integer.parseInt(linha.substring("PORTA ".length()).trim());
+            // Ninguém mais lê o stdout: com o pipe cheio, o trabalhador travaria numa escrita
+            threads.submit(() -> drenar(t.indice, saida));
+        } catch (IOException | ExecutionException | TimeoutException | NumberFormatException e) {
+            System.err.println("Erro ao subir o fragmento " + t.indice + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (porta < 0) {
+            encerrar(processo);
+            processo = null;
+        }
+        synchronized (t) {
+            t.processo = processo;
+            t.porta = porta;
+            t.subindo = false;
+            if (porta < 0) t.proximaTentativa = System.currentTimeMillis() + INTERVALO_REINICIO_MS;
+        }
+    }
+
+    // Repassa o que o trabalhador escrever no stdout para o stderr daqui, até o processo acabar
+    private static void drenar(int indice, BufferedReader saida) {
+        try (saida) {
+            String linha;
+            while ((linha = saida.readLine()) != null) System.err.println("[fragmento " + indice + "] " + linha);
+        } catch (IOException e) {
+            // Processo encerrado
+        }
+    }
+
+    private List<String> comando(int indice) {
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        comando.add("--add-modules");
+        comando.add("jdk.incubator.vector");
+        comando.addAll(opcoesJvm);
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add("app.BuscaArquivosFragmento");
+        comando.add("--dir");
+        comando.add(diretorio.getAbsolutePath());
+        comando.add("--fragmento");
+        comando.add(String.valueOf(indice));
+        comando.add("--fragmentos");
+        comando.add(String.valueOf(trabalhadores.length));
+        comando.add("--threads");
+        comando.add(String.valueOf(threadsPorFragmento));
+        if (!cache) comando.add("--sem-cache");
+        for (String glob : filtro.getIncluir()) {
+            comando.add("--incluir");
+            comando.add(glob);
+        }
+        for (String glob : filtro.getExcluir()) {
+            comando.add("--excluir");
+            comando.add(glob);
+        }
+        if (filtro.getProfundidadeMaxima() != FiltroArquivos.SEM_LIMITE) {
+            comando.add("--profundidade");
+            comando.add(String.valueOf(filtro.getProfundidadeMaxima()));
+        }
+        return comando;
+    }
+
+    // Fechar o stdin é o pedido para sair; quem não sai logo é derrubado
+    private static void encerrar(Process processo) {
+        if (processo == null) return;
+        try {
+            processo.getOutputStream().close();
+            if (!processo.waitFor(2, TimeUnit.SECONDS)) processo.destroyForcibly();
+        } catch (IOException e) {
+            processo.destroyForcibly();
+        } catch (InterruptedException e) {
+            processo.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Contadores">
+
+    public long getConsultas() {
+        return consultas.sum();
+    }
+
+    // Fragmentos que passaram do prazo
+    public long getLentas() {
+        return lentas.sum();
+    }
+
+    // Fragmentos cujo trabalhador deu erro ou caiu no meio da consulta
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    // Fragmentos buscados neste processo (trabalhador fora do ar, com erro ou lento)
+    public long getBuscasLocais() {
+        return locaisUsadas.sum();
+    }
+
+    public long getReinicios() {
+        return reinicios.sum();
+    }
+
+    public int getTrabalhadoresNoAr() {
+        int noAr = 0;
+        for (Trabalhador t : trabalhadores) if (t.porta >= 0) noAr++;
+        return noAr;
+    }
+    // </editor-fold>
+}
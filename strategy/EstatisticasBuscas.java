@@ -0,0 +1,219 @@
+package strategy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.ObjectName;
+
+// Métricas acumuladas de todas as buscas do processo e as últimas MAX_RECENTES, publicadas via JMX
+// como "busca:type=EstatisticasBuscas". Os beans de gerenciamento da JVM demoram a carregar (centenas de
+// ms), então nada aqui espera por eles: o registro JMX e a leitura das alocações ficam prontos numa
+// thread à parte, e até lá as alocações saem como -1.
+public final class EstatisticasBuscas implements EstatisticasBuscasMXBean {
+
+    public static final String NOME_JMX = "busca:type=EstatisticasBuscas";
+    private static final int MAX_RECENTES = 100;
+    private static final EstatisticasBuscas INSTANCIA = new EstatisticasBuscas();
+
+    private static volatile com.sun.management.ThreadMXBean threads;
+    private static volatile boolean carregandoThreads;
+    private static volatile boolean publicada;
+
+    private final LongAdder buscas = new LongAdder();
+    private final LongAdder buscasDoCache = new LongAdder();
+    private final LongAdder arquivos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder linhas = new LongAdder();
+    private final LongAdder resultados = new LongAdder();
+    private final LongAdder nanosTotal = new LongAdder();
+    private final LongAdder nanosListagem = new LongAdder();
+    private final LongAdder nanosAbertura = new LongAdder();
+    private final LongAdder nanosLeitura = new LongAdder();
+    private final LongAdder nanosComparacao = new LongAdder();
+    private final LongAdder nanosJuncao = new LongAdder();
+    private final LongAdder nanosEsperaFila = new LongAdder();
+    private final LongAdder bytesAlocados = new LongAdder();
+    private final ArrayDeque<MetricasBusca> recentes = new ArrayDeque<>();
+    private final List<Consumer<MetricasBusca>> ouvintes = new ArrayList<>();
+
+    private EstatisticasBuscas() {
+    }
+
+    public static EstatisticasBuscas instancia() {
+        return INSTANCIA;
+    }
+
+    // Registra o MBean no servidor da plataforma (numa thread à parte; chamadas repetidas não fazem nada)
+    public static synchronized void publicarJmx() {
+        if (publicada) return;
+        publicada = true;
+        Thread thread = new Thread(() -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCIA, new ObjectName(NOME_JMX));
+            } catch (Exception | LinkageError e) {
+                System.err.println("Não foi possível publicar as métricas via JMX: " + e);
+            }
+        }, "publicar-jmx");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Total alocado por todas as threads da JVM, ou -1 enquanto o ThreadMXBean não estiver pronto
+    static long totalAlocado() {
+        com.sun.management.ThreadMXBean bean = threads;
+        if (bean != null) return bean.getTotalThreadAllocatedBytes();
+        if (!carregandoThreads) carregarThreads();
+        return -1;
+    }
+
+    private static synchronized void carregarThreads() {
+        if (carregandoThreads) return;
+        carregandoThreads = true;
+        Thread thread = new Thread(() -> {
+            try {
+                if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean sun
+                        && sun.isThreadAllocatedMemorySupported()) {
+                    sun.setThreadAllocatedMemoryEnabled(true);
+                    threads = sun;
+                }
+            } catch (LinkageError e) {
+                // Sem java.management/jdk.management: as alocações ficam em -1
+            }
+        }, "carregar-thread-mxbean");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Avisado a cada busca concluída, na thread que a concluiu
+    public synchronized void adicionarOuvinte(Consumer<MetricasBusca> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    public synchronized void removerOuvinte(Consumer<MetricasBusca> ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    void registrar(MetricasBusca m) {
+        buscas.increment();
+        if (m.isDoCache()) buscasDoCache.increment();
+        arquivos.add(m.getArquivos());
+        bytes.add(m.getBytes());
+        linhas.add(m.getLinhas());
+        resultados.add(m.getResultados());
+        nanosTotal.add(Math.round(m.getTempoTotalMs() * 1e6));
+        nanosListagem.add(Math.round(m.getListagemMs() * 1e6));
+        nanosAbertura.add(Math.round(m.getAberturaMs() * 1e6));
+        nanosLeitura.add(Math.round(m.getLeituraMs() * 1e6));
+        nanosComparacao.add(Math.round(m.getComparacaoMs() * 1e6));
+        nanosJuncao.add(Math.round(m.getJuncaoMs() * 1e6));
+        nanosEsperaFila.add(Math.round(m.getEsperaFilaMs() * 1e6));
+        if (m.getBytesAlocados() > 0) bytesAlocados.add(m.getBytesAlocados());
+
+        List<Consumer<MetricasBusca>> avisar;
+        synchronized (this) {
+            recentes.addLast(m);
+            if (recentes.size() > MAX_RECENTES) recentes.removeFirst();
+            avisar = ouvintes.isEmpty() ? List.of() : new ArrayList<>(ouvintes);
+        }
+        for (Consumer<MetricasBusca> ouvinte : avisar) ouvinte.accept(m);
+    }
+
+    // <editor-fold desc="Atributos">
+
+    @Override
+    public long getBuscas() {
+        return buscas.sum();
+    }
+
+    @Override
+    public long getBuscasDoCache() {
+        return buscasDoCache.sum();
+    }
+
+    @Override
+    public long getArquivosLidos() {
+        return arquivos.sum();
+    }
+
+    @Override
+    public long getBytesLidos() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getLinhasLidas() {
+        return linhas.sum();
+    }
+
+    @Override
+    public long getResultados() {
+        return resultados.sum();
+    }
+
+    @Override
+    public double getTempoTotalMs() {
+        return nanosTotal.sum() / 1e6;
+    }
+
+    @Override
+    public double getListagemMs() {
+        return nanosListagem.sum() / 1e6;
+    }
+
+    @Override
+    public double getAberturaMs() {
+        return nanosAbertura.sum() / 1e6;
+    }
+
+    @Override
+    public double getLeituraMs() {
+        return nanosLeitura.sum() / 1e6;
+    }
+
+    @Override
+    public double getComparacaoMs() {
+        return nanosComparacao.sum() / 1e6;
+    }
+
+    @Override
+    public double getJuncaoMs() {
+        return nanosJuncao.sum() / 1e6;
+    }
+
+    @Override
+    public double getEsperaFilaMs() {
+        return nanosEsperaFila.sum() / 1e6;
+    }
+
+    @Override
+    public long getBytesAlocados() {
+        return bytesAlocados.sum();
+    }
+
+    // Vazão das buscas que leram arquivos, pelo tempo somado delas
+    @Override
+    public double getBytesPorSegundo() {
+        double segundos = nanosTotal.sum() / 1e9;
+        return segundos > 0 ? bytes.sum() / segundos : 0;
+    }
+
+    // Da mais antiga para a mais recente
+    @Override
+    public synchronized List<MetricasBusca> getUltimasBuscas() {
+        return new ArrayList<>(recentes);
+    }
+
+    @Override
+    public synchronized void zerar() {
+        for (LongAdder contador : List.of(buscas, buscasDoCache, arquivos, bytes, linhas, resultados, nanosTotal,
+                nanosListagem, nanosAbertura, nanosLeitura, nanosComparacao, nanosJuncao, nanosEsperaFila, bytesAlocados)) {
+            contador.reset();
+        }
+        recentes.clear();
+    }
+    // </editor-fold>
+}
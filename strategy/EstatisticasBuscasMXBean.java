@@ -0,0 +1,41 @@
+package strategy;
+
+import java.util.List;
+
+// Visão JMX (ex.: jconsole, VisualVM) das EstatisticasBuscas: totais desde o início (ou o último
+// zerar) e as últimas buscas com suas métricas
+public interface EstatisticasBuscasMXBean {
+    long getBuscas();
+
+    long getBuscasDoCache();
+
+    long getArquivosLidos();
+
+    long getBytesLidos();
+
+    long getLinhasLidas();
+
+    long getResultados();
+
+    double getTempoTotalMs();
+
+    double getListagemMs();
+
+    double getAberturaMs();
+
+    double getLeituraMs();
+
+    double getComparacaoMs();
+
+    double getJuncaoMs();
+
+    double getEsperaFilaMs();
+
+    long getBytesAlocados();
+
+    double getBytesPorSegundo();
+
+    List<MetricasBusca> getUltimasBuscas();
+
+    void zerar();
+}
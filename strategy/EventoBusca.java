@@ -0,0 +1,100 @@
+package strategy;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento do Flight Recorder com as métricas de cada busca. Só é gravado quando há uma gravação
+// ativa (ex.: -XX:StartFlightRecording=filename=buscas.jfr); fora disso não passa de um isEnabled().
+@Name("busca.Busca")
+@Label("Busca em arquivos")
+@Category("Busca")
+@Description("Uma busca do BuscasService, com o tempo de cada fase")
+@StackTrace(false)
+final class EventoBusca extends Event {
+
+    @Label("Método")
+    String metodo;
+
+    @Label("Termo")
+    String termo;
+
+    @Label("Modo")
+    String modo;
+
+    @Label("Do cache")
+    boolean doCache;
+
+    @Label("Resultados")
+    int resultados;
+
+    @Label("Arquivos")
+    long arquivos;
+
+    @Label("Bytes lidos")
+    @DataAmount
+    long bytes;
+
+    @Label("Linhas")
+    long linhas;
+
+    @Label("Listagem (ms)")
+    double listagemMs;
+
+    @Label("Abertura (ms)")
+    double aberturaMs;
+
+    @Label("Leitura (ms)")
+    double leituraMs;
+
+    @Label("Comparação (ms)")
+    double comparacaoMs;
+
+    @Label("Junção (ms)")
+    double juncaoMs;
+
+    @Label("Espera na fila (ms)")
+    double esperaFilaMs;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Bytes alocados")
+    @DataAmount
+    long bytesAlocados;
+
+    // Começa a contar a duração; null quando não há gravação ouvindo
+    static EventoBusca iniciar() {
+        EventoBusca evento = new EventoBusca();
+        if (!evento.isEnabled()) return null;
+        evento.begin();
+        return evento;
+    }
+
+    static void concluir(EventoBusca evento, MetricasBusca metricas) {
+        if (evento == null) return;
+        evento.end();
+        if (!evento.shouldCommit()) return;
+        evento.metodo = metricas.getMetodo();
+        evento.termo = metricas.getTermo();
+        evento.modo = metricas.getModo().name();
+        evento.doCache = metricas.isDoCache();
+        evento.resultados = metricas.getResultados();
+        evento.arquivos = metricas.getArquivos();
+        evento.bytes = metricas.getBytes();
+        evento.linhas = metricas.getLinhas();
+        evento.listagemMs = metricas.getListagemMs();
+        evento.aberturaMs = metricas.getAberturaMs();
+        evento.leituraMs = metricas.getLeituraMs();
+        evento.comparacaoMs = metricas.getComparacaoMs();
+        evento.juncaoMs = metricas.getJuncaoMs();
+        evento.esperaFilaMs = metricas.getEsperaFilaMs();
+        evento.threads = metricas.getThreads();
+        evento.bytesAlocados = metricas.getBytesAlocados();
+        evento.commit();
+    }
+}
@@ -0,0 +1,346 @@
+package strategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Lê a expressão regular (sintaxe do java.util.regex) e descobre trechos literais que toda linha
+// aceita precisa conter: "Stein.*DDS" exige "Stein" e "DDS"; "DDS|MD|PhD" exige um dos três.
+// Só serve de pré-filtro: na dúvida (flags embutidas, escapes desconhecidos) não exige nada.
+final class FatoresLiterais {
+
+    private static final int MAX_ALTERNATIVAS = 16;
+
+    private final String regex;
+    private int pos;
+
+    // O que se sabe de um pedaço da expressão: as strings exatas que ele aceita (null se forem
+    // muitas ou infinitas), com que strings o trecho aceito pode começar e terminar, e conjuntos
+    // de alternativas dos quais algum sempre aparece. "" num conjunto quer dizer "qualquer coisa".
+    private static final class Info {
+        final Set<String> exatos;
+        final Set<String> prefixos;
+        final Set<String> sufixos;
+        final List<Set<String>> fatores;
+
+        Info(Set<String> exatos, Set<String> prefixos, Set<String> sufixos, List<Set<String>> fatores) {
+            this.exatos = exatos;
+            this.prefixos = prefixos;
+            this.sufixos = sufixos;
+            this.fatores = fatores;
+        }
+
+        static Info literal(String s) {
+            Set<String> exatos = conjunto(s);
+            return new Info(exatos, exatos, exatos, new ArrayList<>());
+        }
+
+        static Info desconhecido() {
+            return new Info(null, conjunto(""), conjunto(""), new ArrayList<>());
+        }
+
+        // Todos os conjuntos obrigatórios: fatores, strings exatas, começos e finais
+        List<Set<String>> obrigatorios() {
+            List<Set<String>> todos = new ArrayList<>(fatores);
+            for (Set<String> conjunto : List.of(exatos != null ? exatos : conjunto(""), prefixos, sufixos)) {
+                if (!conjunto.contains("")) todos.add(conjunto);
+            }
+            return todos;
+        }
+    }
+
+    private static Set<String> conjunto(String s) {
+        Set<String> conjunto = new LinkedHashSet<>();
+        conjunto.add(s);
+        return conjunto;
+    }
+
+    // Todas as concatenações x + y, ou null se passar do limite de alternativas
+    private static Set<String> produto(Set<String> a, Set<String> b) {
+        if (a.size() * b.size() > MAX_ALTERNATIVAS) return null;
+        Set<String> produto = new LinkedHashSet<>();
+        for (String x : a) {
+            for (String y : b) produto.add(x + y);
+        }
+        return produto;
+    }
+
+    private static Set<String> uniao(Set<String> a, Set<String> b) {
+        if (a.size() + b.size() > MAX_ALTERNATIVAS) return null;
+        Set<String> uniao = new LinkedHashSet<>(a);
+        uniao.addAll(b);
+        return uniao;
+    }
+
+    // Sintaxe que este leitor não acompanha: desiste do pré-filtro
+    private static final class Desistir extends RuntimeException {
+        Desistir() {
+            super(null, null, false, false);
+        }
+    }
+
+    private FatoresLiterais(String regex) {
+        this.regex = regex;
+    }
+
+    // O conjunto mais seletivo (maior comprimento mínimo) do qual toda linha aceita contém
+    // pelo menos uma string; null se não houver nenhum
+    static Set<String> fatorMaisSeletivo(String regex) {
+        try {
+            FatoresLiterais leitor = new FatoresLiterais(regex);
+            Info info = leitor.alternativa();
+            if (leitor.pos != regex.length()) return null;
+            return melhor(info.obrigatorios());
+        } catch (Desistir e) {
+            return null;
+        }
+    }
+
+    private static Set<String> melhor(List<Set<String>> fatores) {
+        Set<String> melhor = null;
+        for (Set<String> fator : fatores) {
+            if (fator.contains("")) continue;
+            if (melhor == null || minimo(fator) > minimo(melhor)
+                    || (minimo(fator) == minimo(melhor) && fator.size() < melhor.size())) {
+                melhor = fator;
+            }
+        }
+        return melhor;
+    }
+
+    private static int minimo(Set<String> fator) {
+        int minimo = Integer.MAX_VALUE;
+        for (String s : fator) minimo = Math.min(minimo, s.length());
+        return minimo;
+    }
+
+    // <editor-fold desc="Leitura">
+
+    private Info alternativa() {
+        Info info = concatenacao();
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            info = ou(info, concatenacao());
+        }
+        return info;
+    }
+
+    private Info concatenacao() {
+        Info info = Info.literal("");
+        while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+            info = seguido(info, quantificado(atomo()));
+        }
+        return info;
+    }
+
+    private Info atomo() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case '.':
+                return Info.desconhecido();
+            case '^':
+            case '$':
+                return Info.literal("");
+            case '[':
+                pularClasse();
+                return Info.desconhecido();
+            case '(':
+                return grupo();
+            case '\\':
+                return escape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+            case ')':
+                throw new Desistir();
+            default:
+                return Info.literal(String.valueOf(c));
+        }
+    }
+
+    private Info grupo() {
+        boolean descartar = false;
+        if (regex.startsWith("?", pos)) {
+            pos++;
+            if (regex.startsWith(":", pos) || regex.startsWith(">", pos)) {
+                pos++;
+            } else if (regex.startsWith("=", pos) || regex.startsWith("!", pos)) {
+                pos++;
+                descartar = true;
+            } else if (regex.startsWith("<=", pos) || regex.startsWith("<!", pos)) {
+                pos += 2;
+                descartar = true;
+            } else if (regex.startsWith("<", pos)) {
+                int fim = regex.indexOf('>', pos);
+                if (fim < 0) throw new Desistir();
+                pos = fim + 1;
+            } else {
+                // Flags embutidas ((?i), (?x)...) mudam o significado dos literais
+                throw new Desistir();
+            }
+        }
+        Info dentro = alternativa();
+        if (pos >= regex.length() || regex.charAt(pos) != ')') throw new Desistir();
+        pos++;
+        // Lookarounds não consomem texto: não exigem nada da linha por aqui
+        return descartar ? Info.literal("") : dentro;
+    }
+
+    private Info escape() {
+        if (pos >= regex.length()) throw new Desistir();
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 't': return Info.literal("\t");
+            case 'n': return Info.literal("\n");
+            case 'r': return Info.literal("\r");
+            case 'f': return Info.literal("\f");
+            case 'a': return Info.literal("\u0007");
+            case 'e': return Info.literal("\u001B");
+            case 'b': case 'B': case 'A': case 'G': case 'Z': case 'z':
+                return Info.literal("");
+            case 'd': case 'D': case 's': case 'S': case 'w': case 'W':
+            case 'h': case 'H': case 'v': case 'V': case 'R': case 'X':
+                return Info.desconhecido();
+            case 'Q': {
+                int fim = regex.indexOf("\\E", pos);
+                String texto = regex.substring(pos, fim < 0 ? regex.length() : fim);
+                pos = fim < 0 ? regex.length() : fim + 2;
+                return Info.literal(texto);
+            }
+            case 'p': case 'P': case 'N': case 'k':
+                pularAte(pos < regex.length() && (regex.charAt(pos) == '{' || regex.charAt(pos) == '<')
+                        ? (regex.charAt(pos) == '{' ? '}' : '>') : 0);
+                return Info.desconhecido();
+            case 'x':
+                if (pos < regex.length() && regex.charAt(pos) == '{') pularAte('}');
+                else pos += 2;
+                return Info.desconhecido();
+            case 'u':
+                pos += 4;
+                return Info.desconhecido();
+            case 'c':
+                pos++;
+                return Info.desconhecido();
+            case '0':
+                while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '7') pos++;
+                return Info.desconhecido();
+            default:
+                if (c >= '1' && c <= '9') {
+                    // Referência a grupo: o texto depende do que o grupo casou
+                    while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) pos++;
+                    return Info.desconhecido();
+                }
+                if (Character.isLetterOrDigit(c)) throw new Desistir();
+                return Info.literal(String.valueOf(c));
+        }
+    }
+
+    // Sem fechamento ('fecha' == 0): consome um único caractere (ex.: \pL)
+    private void pularAte(char fecha) {
+        if (fecha == 0) {
+            pos++;
+            return;
+        }
+        int fim = regex.indexOf(fecha, pos);
+        if (fim < 0) throw new Desistir();
+        pos = fim + 1;
+    }
+
+    // Pula [...] inteiro, com classes aninhadas, escapes e ']' logo no começo
+    private void pularClasse() {
+        int profundidade = 1;
+        if (regex.startsWith("^", pos)) pos++;
+        if (regex.startsWith("]", pos)) pos++;
+        while (pos < regex.length() && profundidade > 0) {
+            char c = regex.charAt(pos++);
+            if (c == '\\') pos++;
+            else if (c == '[') profundidade++;
+            else if (c == ']') profundidade--;
+        }
+        if (profundidade > 0) throw new Desistir();
+    }
+
+    private Info quantificado(Info atomo) {
+        if (pos >= regex.length()) return atomo;
+        char c = regex.charAt(pos);
+        int minimo;
+        boolean umaVez = false;
+        if (c == '*' || c == '?') {
+            pos++;
+            minimo = 0;
+        } else if (c == '+') {
+            pos++;
+            minimo = 1;
+        } else if (c == '{') {
+            int fim = regex.indexOf('}', pos);
+            if (fim < 0) throw new Desistir();
+            String[] limites = regex.substring(pos + 1, fim).split(",", -1);
+            try {
+                minimo = Integer.parseInt(limites[0].trim());
+                umaVez = limites.length == 1 && minimo == 1;
+            } catch (NumberFormatException e) {
+                throw new Desistir();
+            }
+            pos = fim + 1;
+        } else {
+            return atomo;
+        }
+        // Modificadores preguiçoso/possessivo não mudam o que é aceito
+        if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) pos++;
+
+        if (umaVez) return atomo;
+        if (minimo == 0) {
+            // Opcional: não exige nada; com '?' as strings exatas continuam poucas (mais a vazia)
+            Set<String> exatos = c == '?' && atomo.exatos != null ? uniao(atomo.exatos, conjunto("")) : null;
+            if (exatos == null) return Info.desconhecido();
+            return new Info(exatos, exatos, exatos, new ArrayList<>());
+        }
+        // Pelo menos uma vez: começa e termina como o átomo, e o que ele exige continua exigido
+        return new Info(null, atomo.prefixos, atomo.sufixos, atomo.obrigatorios());
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Combinação">
+
+    // Como no índice de trigramas do Russ Cox: o final de 'a' emendado no começo de 'b' também é obrigatório
+    private static Info seguido(Info a, Info b) {
+        List<Set<String>> fatores = new ArrayList<>(a.fatores);
+        fatores.addAll(b.fatores);
+        Set<String> emenda = produto(a.sufixos, b.prefixos);
+        if (emenda != null) {
+            fatores.add(emenda);
+        } else {
+            fatores.add(a.sufixos);
+            fatores.add(b.prefixos);
+        }
+
+        Set<String> exatos = a.exatos != null && b.exatos != null ? produto(a.exatos, b.exatos) : null;
+        if (exatos != null) return new Info(exatos, exatos, exatos, fatores);
+        if (a.exatos != null) fatores.add(a.exatos);
+        if (b.exatos != null) fatores.add(b.exatos);
+
+        Set<String> prefixos = a.exatos != null ? produto(a.exatos, b.prefixos) : a.prefixos;
+        Set<String> sufixos = b.exatos != null ? produto(a.sufixos, b.exatos) : b.sufixos;
+        return new Info(null, prefixos != null ? prefixos : a.exatos, sufixos != null ? sufixos : b.exatos, fatores);
+    }
+
+    private static Info ou(Info a, Info b) {
+        Set<String> exatos = a.exatos != null && b.exatos != null ? uniao(a.exatos, b.exatos) : null;
+        if (exatos != null) return new Info(exatos, exatos, exatos, new ArrayList<>());
+
+        Set<String> prefixos = uniao(a.prefixos, b.prefixos);
+        Set<String> sufixos = uniao(a.sufixos, b.sufixos);
+        // Um dos lados aparece: serve a união do melhor fator de cada lado
+        List<Set<String>> fatores = new ArrayList<>();
+        Set<String> deA = melhor(a.obrigatorios());
+        Set<String> deB = melhor(b.obrigatorios());
+        if (deA != null && deB != null) {
+            Set<String> fator = uniao(deA, deB);
+            if (fator != null) fatores.add(fator);
+        }
+        return new Info(null, prefixos != null ? prefixos : conjunto(""), sufixos != null ? sufixos : conjunto(""), fatores);
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,98 @@
+package strategy;
+
+import java.util.Arrays;
+
+// Boyer-Moore-Horspool sobre char, montado uma vez por padrão e imutável depois disso.
+// A tabela de saltos é indexada pelo byte baixo do caractere: caracteres que colidem
+// ficam com o menor salto entre eles, o que nunca pula um acerto e aceita qualquer Unicode.
+// Fora do modo exato, texto e padrão passam pela tabela de dobramento do modo antes de comparar.
+public final class Horspool implements PadraoCompilado {
+
+    private static final int MASCARA = 0xFF;
+
+    private final String padrao;
+    private final ModoComparacao modo;
+    private final char[] tabela;
+    private final char[] p;
+    private final int[] salto = new int[MASCARA + 1];
+
+    private Horspool(String padrao, ModoComparacao modo) {
+        this.padrao = padrao;
+        this.modo = modo;
+        this.tabela = modo.tabela();
+        this.p = modo.dobrar(padrao).toCharArray();
+
+        int m = p.length;
+        Arrays.fill(salto, Math.max(1, m));
+        for (int i = 0; i < m - 1; i++) {
+            int balde = p[i] & MASCARA;
+            salto[balde] = Math.min(salto[balde], m - 1 - i);
+        }
+    }
+
+    public static Horspool compilar(String padrao, ModoComparacao modo) {
+        return new Horspool(padrao, modo);
+    }
+
+    public static Horspool compilar(String padrao, boolean diferenciarMaiusculas) {
+        return new Horspool(padrao, diferenciarMaiusculas ? ModoComparacao.EXATO : ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+
+    public String getPadrao() {
+        return padrao;
+    }
+
+    public ModoComparacao getModo() {
+        return modo;
+    }
+
+    @Override
+    public boolean contem(String texto) {
+        return indiceEm(texto, 0) >= 0;
+    }
+
+    // Posição do primeiro acerto a partir de 'inicio', ou -1
+    public int indiceEm(CharSequence texto, int inicio) {
+        int m = p.length;
+        int n = texto.length();
+        if (m == 0) return inicio <= n ? inicio : -1;
+
+        int ultimo = m - 1;
+        char cUltimo = p[ultimo];
+        int i = inicio;
+        while (i <= n - m) {
+            char c = ler(texto.charAt(i + ultimo));
+            if (c == cUltimo) {
+                int j = ultimo - 1;
+                while (j >= 0 && ler(texto.charAt(i + j)) == p[j]) j--;
+                if (j < 0) return i;
+            }
+            i += salto[c & MASCARA];
+        }
+        return -1;
+    }
+
+    // Mesma busca sobre texto[de, ate), para quem decodifica linhas num buffer reaproveitado
+    public int indiceEm(char[] texto, int de, int ate) {
+        int m = p.length;
+        if (m == 0) return de <= ate ? de : -1;
+
+        int ultimo = m - 1;
+        char cUltimo = p[ultimo];
+        int i = de;
+        while (i <= ate - m) {
+            char c = ler(texto[i + ultimo]);
+            if (c == cUltimo) {
+                int j = ultimo - 1;
+                while (j >= 0 && ler(texto[i + j]) == p[j]) j--;
+                if (j < 0) return i;
+            }
+            i += salto[c & MASCARA];
+        }
+        return -1;
+    }
+
+    private char ler(char c) {
+        return tabela == null ? c : tabela[c];
+    }
+}
@@ -0,0 +1,248 @@
+package strategy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+
+// Medições de uma busca: o que foi lido e onde o tempo foi gasto (listagem, abertura, leitura,
+// comparação, junção), espera na fila dos executores, ocupação de cada thread e bytes alocados.
+// Atualizadas pelas threads da busca; ao concluir, entram nas EstatisticasBuscas (JMX e JFR).
+// A divisão por fase só existe nos métodos que leem linha a linha com o BufferedReader (sequencial,
+// Boyer-Moore, paralelo otimizado, regex e as buscas em fluxo); os outros registram só os totais.
+public class MetricasBusca {
+
+    // A comparação é cronometrada em 1 de cada 16 linhas: duas chamadas a nanoTime() por linha
+    // custariam mais que a própria comparação dos termos curtos
+    private static final int AMOSTRAGEM = 16;
+    // Runtime sem o módulo jdk.jfr: as buscas seguem sem o evento
+    private static volatile boolean jfrDisponivel = true;
+
+    private final String metodo;
+    private final String termo;
+    private final ModoComparacao modo;
+    private final long inicioEpoca = System.currentTimeMillis();
+    private final long inicio = System.nanoTime();
+    private final long alocadoAntes = EstatisticasBuscas.totalAlocado();
+    private final EventoBusca evento = iniciarEvento();
+
+    private final LongAdder arquivos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder linhas = new LongAdder();
+    private final LongAdder nanosListagem = new LongAdder();
+    private final LongAdder nanosAbertura = new LongAdder();
+    private final LongAdder nanosLeitura = new LongAdder();
+    private final LongAdder nanosComparacao = new LongAdder();
+    private final LongAdder nanosJuncao = new LongAdder();
+    private final LongAdder nanosEsperaFila = new LongAdder();
+    private final Map<String, LongAdder> ocupacao = new ConcurrentHashMap<>();
+
+    private volatile boolean varreu;
+    private volatile boolean concluida;
+    private int resultados;
+    private long nanosTotal;
+    private long bytesAlocados = -1;
+
+    MetricasBusca(String metodo, String termo, ModoComparacao modo) {
+        this.metodo = metodo;
+        this.termo = termo;
+        this.modo = modo;
+    }
+
+    // Instanciar o primeiro evento com o JFR parado custa centenas de ms (a CLI sobe em menos que isso):
+    // só toca no evento depois que alguma gravação iniciou o Flight Recorder
+    private static EventoBusca iniciarEvento() {
+        if (!jfrDisponivel) return null;
+        try {
+            if (!FlightRecorder.isInitialized()) return null;
+            return EventoBusca.iniciar();
+        } catch (LinkageError e) {
+            jfrDisponivel = false;
+            return null;
+        }
+    }
+
+    // <editor-fold desc="Registro (threads da busca)">
+
+    // A busca de fato rodou (não veio do cache)
+    void varreu() {
+        varreu = true;
+    }
+
+    void somarListagem(long nanos) {
+        nanosListagem.add(nanos);
+    }
+
+    void somarJuncao(long nanos) {
+        nanosJuncao.add(nanos);
+    }
+
+    void somarEsperaFila(long nanos) {
+        nanosEsperaFila.add(nanos);
+    }
+
+    // Cronômetro de um arquivo, usado só pela thread que o lê
+    Arquivo arquivo() {
+        return new Arquivo();
+    }
+
+    final class Arquivo {
+        private final long inicioArquivo = System.nanoTime();
+        private long aberto = inicioArquivo;
+        private int linhasLidas;
+        private long amostrado;
+
+        void aberto() {
+            aberto = System.nanoTime();
+        }
+
+        boolean contem(PadraoCompilado padrao, String linha) {
+            if (++linhasLidas % AMOSTRAGEM != 0) return padrao.contem(linha);
+            long antes = System.nanoTime();
+            boolean contem = padrao.contem(linha);
+            amostrado += System.nanoTime() - antes;
+            return contem;
+        }
+
+        // O que não foi abertura nem comparação (estimada pela amostra) conta como leitura
+        void concluir(long tamanho) {
+            long fim = System.nanoTime();
+            long comparacao = amostrado * AMOSTRAGEM;
+            arquivos.increment();
+            bytes.add(tamanho);
+            linhas.add(linhasLidas);
+            nanosAbertura.add(aberto - inicioArquivo);
+            nanosComparacao.add(comparacao);
+            nanosLeitura.add(Math.max(0, fim - aberto - comparacao));
+            Thread thread = Thread.currentThread();
+            String nome = thread.isVirtual() || thread.getName().isEmpty() ? "virtual #" + thread.threadId() : thread.getName();
+            ocupacao.computeIfAbsent(nome, n -> new LongAdder()).add(fim - inicioArquivo);
+        }
+    }
+
+    void concluir(int resultados) {
+        if (concluida) return;
+        this.nanosTotal = System.nanoTime() - inicio;
+        this.resultados = resultados;
+        long alocadoDepois = EstatisticasBuscas.totalAlocado();
+        if (alocadoAntes >= 0 && alocadoDepois >= 0) bytesAlocados = alocadoDepois - alocadoAntes;
+        concluida = true;
+        if (evento != null) EventoBusca.concluir(evento, this);
+        EstatisticasBuscas.instancia().registrar(this);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Leitura">
+
+    public String getMetodo() {
+        return metodo;
+    }
+
+    public String getTermo() {
+        return termo;
+    }
+
+    public ModoComparacao getModo() {
+        return modo;
+    }
+
+    // Início da busca, em milissegundos desde a época (para séries temporais)
+    public long getInicio() {
+        return inicioEpoca;
+    }
+
+    public boolean isDoCache() {
+        return !varreu;
+    }
+
+    public int getResultados() {
+        return resultados;
+    }
+
+    public long getArquivos() {
+        return arquivos.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getLinhas() {
+        return linhas.sum();
+    }
+
+    public double getTempoTotalMs() {
+        return (concluida ? nanosTotal : System.nanoTime() - inicio) / 1e6;
+    }
+
+    // As fases somam o tempo de todas as threads: em paralelo passam do tempo total
+    public double getListagemMs() {
+        return nanosListagem.sum() / 1e6;
+    }
+
+    public double getAberturaMs() {
+        return nanosAbertura.sum() / 1e6;
+    }
+
+    public double getLeituraMs() {
+        return nanosLeitura.sum() / 1e6;
+    }
+
+    public double getComparacaoMs() {
+        return nanosComparacao.sum() / 1e6;
+    }
+
+    public double getJuncaoMs() {
+        return nanosJuncao.sum() / 1e6;
+    }
+
+    // Tempo que as tarefas esperaram por uma thread do pool, por uma vaga de arquivo aberto ou, nas
+    // threads que leem enquanto a árvore é listada, pelo próximo arquivo da listagem
+    public double getEsperaFilaMs() {
+        return nanosEsperaFila.sum() / 1e6;
+    }
+
+    // Alocações de toda a JVM durante a busca (inclui outras buscas simultâneas); -1 se indisponível
+    public long getBytesAlocados() {
+        return bytesAlocados;
+    }
+
+    public double getBytesPorSegundo() {
+        double segundos = getTempoTotalMs() / 1000;
+        return segundos > 0 ? getBytes() / segundos : 0;
+    }
+
+    // Fração do tempo da busca em que cada thread estava lendo um arquivo
+    public Map<String, Double> getOcupacaoPorThread() {
+        double total = Math.max(1, concluida ? nanosTotal : System.nanoTime() - inicio);
+        Map<String, Double> porThread = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> e : ocupacao.entrySet()) porThread.put(e.getKey(), e.getValue().sum() / total);
+        return porThread;
+    }
+
+    public int getThreads() {
+        return ocupacao.size();
+    }
+
+    public double getOcupacaoMedia() {
+        Map<String, Double> porThread = getOcupacaoPorThread();
+        double soma = 0;
+        for (double valor : porThread.values()) soma += valor;
+        return porThread.isEmpty() ? 0 : soma / porThread.size();
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        if (isDoCache()) return String.format("%s \"%s\": %.1f ms (do cache)", metodo, termo, getTempoTotalMs());
+        return String.format("%s \"%s\": %.1f ms · %d arquivos · %d linhas · %.1f MB/s%n"
+                        + "  listagem %.1f · abertura %.1f · leitura %.1f · comparação %.1f · junção %.1f · espera na fila %.1f (ms)%n"
+                        + "  %d threads, ocupação média %.0f%% · alocado %s",
+                metodo, termo, getTempoTotalMs(), getArquivos(), getLinhas(), getBytesPorSegundo() / (1024.0 * 1024.0),
+                getListagemMs(), getAberturaMs(), getLeituraMs(), getComparacaoMs(), getJuncaoMs(), getEsperaFilaMs(),
+                getThreads(), getOcupacaoMedia() * 100,
+                bytesAlocados < 0 ? "?" : String.format("%.1f MB", bytesAlocados / (1024.0 * 1024.0)));
+    }
+}
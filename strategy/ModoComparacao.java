@@ -0,0 +1,56 @@
+package strategy;
+
+// Como o termo é comparado com o texto; escolhido a cada consulta e respeitado por todos os métodos
+public enum ModoComparacao {
+    EXATO("Exato"),
+    IGNORAR_MAIUSCULAS("Ignorar maiúsculas"),
+    IGNORAR_MAIUSCULAS_E_ACENTOS("Ignorar maiúsculas e acentos");
+
+    private final String descricao;
+
+    ModoComparacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    // Tabela de dobramento indexada pelo char; null no modo exato
+    char[] tabela() {
+        return switch (this) {
+            case EXATO -> null;
+            case IGNORAR_MAIUSCULAS -> TabelasDobramento.maiusculas();
+            case IGNORAR_MAIUSCULAS_E_ACENTOS -> TabelasDobramento.acentos();
+        };
+    }
+
+    public char dobrar(char c) {
+        char[] tabela = tabela();
+        return tabela == null ? c : tabela[c];
+    }
+
+    // Para preparar termos e vocabulários (uma vez), não para comparar linha a linha
+    public String dobrar(String texto) {
+        char[] tabela = tabela();
+        if (tabela == null) return texto;
+        char[] dobrado = new char[texto.length()];
+        for (int i = 0; i < dobrado.length; i++) dobrado[i] = tabela[texto.charAt(i)];
+        return new String(dobrado);
+    }
+
+    // true quando comparar os bytes UTF-8 (só A-Z dobrado para a-z) dá o mesmo resultado que
+    // comparar os caracteres dobrados: o padrão é ASCII e nenhum caractere fora do ASCII dobra
+    // para uma letra dele (ex.: "é" -> "e" nos acentos, "K" (Kelvin) -> "k" nas maiúsculas)
+    public boolean comparavelEmBytes(String padrao) {
+        char[] tabela = tabela();
+        if (tabela == null) return true;
+        boolean[] alvos = TabelasDobramento.alvosAscii(tabela);
+        for (int i = 0; i < padrao.length(); i++) {
+            char c = padrao.charAt(i);
+            if (c >= 128 || alvos[tabela[c]]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return descricao;
+    }
+}
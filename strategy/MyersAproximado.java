@@ -0,0 +1,133 @@
+package strategy;
+
+import java.util.Arrays;
+
+// Busca aproximada de Myers (bit-paralela): acha o trecho da linha mais parecido com o padrão,
+// em distância de edição (inserções, remoções e trocas de um caractere), com uma coluna inteira
+// da tabela de programação dinâmica atualizada por poucas operações sobre um long.
+// Padrões de até 64 caracteres usam um long; os maiores caem na tabela coluna a coluna.
+public final class MyersAproximado implements PadraoCompilado {
+
+    private static final int ASCII = 128;
+
+    private final String padrao;
+    private final int maxDistancia;
+    private final char[] tabela;
+    private final char[] p;
+    // Peq: bit i ligado quando p[i] é o caractere; ASCII direto, o resto numa lista curta
+    private final long[] mascarasAscii = new long[ASCII];
+    private final char[] outrosCaracteres;
+    private final long[] outrasMascaras;
+
+    private MyersAproximado(String padrao, int maxDistancia, ModoComparacao modo) {
+        this.padrao = padrao;
+        this.maxDistancia = maxDistancia;
+        this.tabela = modo.tabela();
+        this.p = modo.dobrar(padrao).toCharArray();
+
+        char[] outros = new char[p.length];
+        long[] mascaras = new long[p.length];
+        int quantos = 0;
+        for (int i = 0; i < Math.min(p.length, Long.SIZE); i++) {
+            char c = p[i];
+            if (c < ASCII) {
+                mascarasAscii[c] |= 1L << i;
+                continue;
+            }
+            int k = 0;
+            while (k < quantos && outros[k] != c) k++;
+            if (k == quantos) outros[quantos++] = c;
+            mascaras[k] |= 1L << i;
+        }
+        this.outrosCaracteres = Arrays.copyOf(outros, quantos);
+        this.outrasMascaras = Arrays.copyOf(mascaras, quantos);
+    }
+
+    public static MyersAproximado compilar(String padrao, int maxDistancia, ModoComparacao modo) {
+        return new MyersAproximado(padrao, maxDistancia, modo);
+    }
+
+    // Distância aceita quando quem pede não informa: nenhuma em termos curtos, onde um erro já casa
+    // com quase tudo, e uma a cada 4 caracteres nos demais, até 3
+    public static int distanciaPadrao(String termo) {
+        if (termo.length() <= 3) return 0;
+        return Math.min(3, termo.length() / 4);
+    }
+
+    public String getPadrao() {
+        return padrao;
+    }
+
+    public int getMaxDistancia() {
+        return maxDistancia;
+    }
+
+    @Override
+    public boolean contem(String texto) {
+        return distancia(texto) >= 0;
+    }
+
+    // Menor distância entre o padrão e algum trecho do texto, ou -1 se passar de maxDistancia
+    public int distancia(CharSequence texto) {
+        int m = p.length;
+        if (m == 0) return 0;
+        if (m > Long.SIZE) return distanciaPorColunas(texto);
+
+        long alto = 1L << (m - 1);
+        long pv = m == Long.SIZE ? -1L : (1L << m) - 1;
+        long mv = 0;
+        int pontuacao = m;
+        int melhor = m;
+        for (int j = 0; j < texto.length(); j++) {
+            long eq = mascara(ler(texto.charAt(j)));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & alto) != 0) pontuacao++;
+            else if ((mh & alto) != 0) pontuacao--;
+            // A linha 0 da tabela é sempre 0: o trecho pode começar em qualquer posição do texto
+            ph <<= 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            if (pontuacao < melhor) {
+                melhor = pontuacao;
+                if (melhor == 0) break;
+            }
+        }
+        return melhor <= maxDistancia ? melhor : -1;
+    }
+
+    // Mesma recorrência sem o paralelismo de bits (Sellers), para padrões com mais de 64 caracteres
+    private int distanciaPorColunas(CharSequence texto) {
+        int m = p.length;
+        int[] coluna = new int[m + 1];
+        for (int i = 0; i <= m; i++) coluna[i] = i;
+        int melhor = m;
+        for (int j = 0; j < texto.length() && melhor > 0; j++) {
+            char c = ler(texto.charAt(j));
+            int diagonal = 0;
+            for (int i = 1; i <= m; i++) {
+                int acima = coluna[i];
+                int custo = p[i - 1] == c ? diagonal : diagonal + 1;
+                coluna[i] = Math.min(custo, Math.min(acima, coluna[i - 1]) + 1);
+                diagonal = acima;
+            }
+            melhor = Math.min(melhor, coluna[m]);
+        }
+        return melhor <= maxDistancia ? melhor : -1;
+    }
+
+    private long mascara(char c) {
+        if (c < ASCII) return mascarasAscii[c];
+        for (int k = 0; k < outrosCaracteres.length; k++) {
+            if (outrosCaracteres[k] == c) return outrasMascaras[k];
+        }
+        return 0;
+    }
+
+    private char ler(char c) {
+        return tabela == null ? c : tabela[c];
+    }
+}
@@ -0,0 +1,18 @@
+package strategy;
+
+// Padrão já preparado para a busca: tabelas e normalizações ficam prontas na compilação,
+// e o mesmo objeto pode ser usado por várias threads ao mesmo tempo.
+@FunctionalInterface
+public interface PadraoCompilado {
+    boolean contem(String texto);
+
+    // No modo exato usa o String.contains (intrínseco da JVM); nos outros, Horspool com a tabela de dobramento
+    static PadraoCompilado literal(String padrao, ModoComparacao modo) {
+        if (modo == ModoComparacao.EXATO) return texto -> texto.contains(padrao);
+        return Horspool.compilar(padrao, modo);
+    }
+
+    static PadraoCompilado literal(String padrao, boolean diferenciarMaiusculas) {
+        return literal(padrao, diferenciarMaiusculas ? ModoComparacao.EXATO : ModoComparacao.IGNORAR_MAIUSCULAS);
+    }
+}
@@ -0,0 +1,260 @@
+package strategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Expressão regular (java.util.regex) com pré-filtro literal: a linha só chega ao Matcher se
+// contiver um dos trechos que toda linha aceita precisa ter (ver FatoresLiterais), procurado
+// pelos mesmos buscadores de literais dos outros métodos. Um padrão inválido lança
+// PatternSyntaxException (um IllegalArgumentException) na compilação.
+public final class PadraoRegex implements PadraoCompilado {
+
+    private static final int MAX_EM_CACHE = 128;
+    // Padrões compilados reaproveitados entre consultas (LRU), por expressão e modo
+    private static final LinkedHashMap<String, PadraoRegex> COMPILADOS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PadraoRegex> maisAntigo) {
+            return size() > MAX_EM_CACHE;
+        }
+    };
+
+    private final String regex;
+    private final ModoComparacao modo;
+    private final Pattern pattern;
+    private final char[] tabela;
+    private final Set<String> fator;
+    private final PadraoCompilado preFiltro;
+    // Matcher.reset() reaproveita o Matcher na thread; fora do modo exato, a linha é vista já dobrada
+    private final ThreadLocal<Matcher> matchers;
+    private final ThreadLocal<LinhaDobrada> linhas;
+
+    private PadraoRegex(String regex, ModoComparacao modo) {
+        this.regex = regex;
+        this.modo = modo;
+        this.tabela = modo.tabela();
+
+        // Texto dobrado pela tabela do modo; no padrão só os caracteres fora do ASCII são dobrados
+        // (ex.: "José" -> "jose" sem acentos), o ASCII fica com o CASE_INSENSITIVE: "\D" continua "\D"
+        String fonte = regex;
+        int flags = 0;
+        if (tabela != null) {
+            fonte = dobrarPadrao(regex, tabela);
+            flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        this.pattern = Pattern.compile(fonte, flags);
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        this.linhas = ThreadLocal.withInitial(() -> new LinhaDobrada(tabela));
+
+        this.fator = FatoresLiterais.fatorMaisSeletivo(fonte);
+        if (fator == null) {
+            this.preFiltro = null;
+        } else if (fator.size() == 1) {
+            this.preFiltro = PadraoCompilado.literal(fator.iterator().next(), modo);
+        } else {
+            // Várias alternativas: uma passada do Aho-Corasick, com um Varredor por thread
+            AhoCorasick automato = new AhoCorasick(new ArrayList<>(fator), modo);
+            ThreadLocal<AhoCorasick.Varredor> varredores = ThreadLocal.withInitial(automato::novoVarredor);
+            this.preFiltro = texto -> varredores.get().encontrar(texto) > 0;
+        }
+    }
+
+    // Fora do modo exato a linha é dobrada antes do Matcher, então o padrão também é: os caracteres
+    // fora do ASCII, literais ou por escape (\N{...}, \x, \0 e o de quatro dígitos hexadecimais), viram
+    // o caractere dobrado. Flags embutidas que desligam o CASE_INSENSITIVE ou o UNICODE_CASE ("(?-i)",
+    // "(?-u:...)") lançam IllegalArgumentException: contra a linha dobrada, nada que dependa da caixa casaria.
+    public static PadraoRegex compilar(String regex, ModoComparacao modo) {
+        String chave = modo.name() + '\u0000' + regex;
+        synchronized (COMPILADOS) {
+            PadraoRegex padrao = COMPILADOS.get(chave);
+            if (padrao != null) return padrao;
+        }
+        // Compila fora do lock; duas threads com a mesma expressão podem compilar em paralelo, fica a última
+        PadraoRegex novo = new PadraoRegex(regex, modo);
+        synchronized (COMPILADOS) {
+            COMPILADOS.put(chave, novo);
+        }
+        return novo;
+    }
+
+    // Uma passada pelo padrão: copia a sintaxe, dobra os caracteres (literais ou por escape) e recusa
+    // flags embutidas que desligam a comparação sem caixa. Escapes malformados ficam como estão para
+    // o Pattern.compile acusar.
+    private static String dobrarPadrao(String regex, char[] tabela) {
+        StringBuilder fonte = new StringBuilder(regex.length());
+        int classes = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                int fim = fimDoEscape(regex, i);
+                int codigo = fim < 0 ? -1 : caractereDoEscape(regex, i, fim);
+                if (codigo >= 128) {
+                    dobrarCaractere(fonte, codigo, tabela);
+                    i = fim;
+                    continue;
+                }
+                if (regex.charAt(i + 1) == 'Q') {
+                    // Trecho literal: copiado até o \E, dobrando só os caracteres
+                    int e = regex.indexOf("\\E", i + 2);
+                    int ate = e < 0 ? regex.length() : e + 2;
+                    for (int j = i; j < ate; j++) {
+                        char q = regex.charAt(j);
+                        fonte.append(q >= 128 ? tabela[q] : q);
+                    }
+                    i = ate;
+                    continue;
+                }
+                int ate = fim < 0 ? i + 2 : fim;
+                fonte.append(regex, i, ate);
+                i = ate;
+                continue;
+            }
+            if (c == '[') classes++;
+            else if (c == ']' && classes > 0) classes--;
+            else if (c == '(' && classes == 0) conferirFlags(regex, i);
+            fonte.append(c >= 128 ? tabela[c] : c);
+            i++;
+        }
+        return fonte.toString();
+    }
+
+    // Fim (exclusivo) dos escapes que nomeiam um caractere; -1 para os outros
+    private static int fimDoEscape(String regex, int inicio) {
+        int i = inicio + 2;
+        switch (regex.charAt(inicio + 1)) {
+            case 'N': {
+                if (i >= regex.length() || regex.charAt(i) != '{') return -1;
+                int fecha = regex.indexOf('}', i);
+                return fecha < 0 ? -1 : fecha + 1;
+            }
+            case 'x': {
+                if (i < regex.length() && regex.charAt(i) == '{') {
+                    int fecha = regex.indexOf('}', i);
+                    return fecha < 0 ? -1 : fecha + 1;
+                }
+                return i + 2 <= regex.length() ? i + 2 : -1;
+            }
+            case 'u':
+                return i + 4 <= regex.length() ? i + 4 : -1;
+            case '0': {
+                // Até três dígitos octais, valor até 0377
+                int fim = i;
+                while (fim < regex.length() && fim - i < 3 && regex.charAt(fim) >= '0' && regex.charAt(fim) <= '7') fim++;
+                if (fim - i == 3 && regex.charAt(i) > '3') fim--;
+                return fim > i ? fim : -1;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    // Código do caractere do escape entre inicio e fim, ou -1 se ele não for válido
+    private static int caractereDoEscape(String regex, int inicio, int fim) {
+        try {
+            return switch (regex.charAt(inicio + 1)) {
+                case 'N' -> Character.codePointOf(regex.substring(inicio + 3, fim - 1));
+                case 'x' -> regex.charAt(inicio + 2) == '{'
+                        ? Integer.parseInt(regex.substring(inicio + 3, fim - 1), 16)
+                        : Integer.parseInt(regex.substring(inicio + 2, fim), 16);
+                case 'u' -> Integer.parseInt(regex.substring(inicio + 2, fim), 16);
+                default -> Integer.parseInt(regex.substring(inicio + 2, fim), 8);
+            };
+        } catch (IllegalArgumentException e) {
+            // Nome ou número inválido (NumberFormatException também é um IllegalArgumentException)
+            return -1;
+        }
+    }
+
+    // Letras e dígitos vão literais (ajudam o pré-filtro); o resto, como \x{...}
+    private static void dobrarCaractere(StringBuilder fonte, int codigo, char[] tabela) {
+        int dobrado = codigo < tabela.length ? tabela[codigo] : codigo;
+        if (dobrado < 128 && Character.isLetterOrDigit(dobrado)) fonte.append((char) dobrado);
+        else fonte.append("\\x{").append(Integer.toHexString(dobrado)).append('}');
+    }
+
+    // "(?flags)" ou "(?flags:...)" que desliga i ou u
+    private static void conferirFlags(String regex, int abre) {
+        if (abre + 1 >= regex.length() || regex.charAt(abre + 1) != '?') return;
+        boolean desligando = false;
+        for (int i = abre + 2; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == ')' || c == ':') return;
+            if (c == '-') {
+                desligando = true;
+            } else if (!Character.isLetter(c)) {
+                // Não é grupo de flags: (?<nome>, (?=, (?!, (?>...
+                return;
+            } else if (desligando && (c == 'i' || c == 'u')) {
+                throw new IllegalArgumentException("Flag embutida incompatível com a comparação sem maiúsculas: "
+                        + regex.substring(abre, i + 1) + "...");
+            }
+        }
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public ModoComparacao getModo() {
+        return modo;
+    }
+
+    // Trechos usados no pré-filtro (a linha precisa de um deles), ou null se a expressão não exige nenhum
+    public Set<String> getFator() {
+        return fator;
+    }
+
+    @Override
+    public boolean contem(String texto) {
+        if (preFiltro != null && !preFiltro.contem(texto)) return false;
+        Matcher matcher = matchers.get();
+        matcher.reset(tabela == null ? texto : linhas.get().de(texto));
+        return matcher.find();
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    // Visão da linha com cada caractere passado pela tabela do modo, sem copiar a String
+    private static final class LinhaDobrada implements CharSequence {
+        private final char[] tabela;
+        private String linha = "";
+
+        LinhaDobrada(char[] tabela) {
+            this.tabela = tabela;
+        }
+
+        LinhaDobrada de(String linha) {
+            this.linha = linha;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return linha.length();
+        }
+
+        @Override
+        public char charAt(int indice) {
+            return tabela[linha.charAt(indice)];
+        }
+
+        @Override
+        public CharSequence subSequence(int inicio, int fim) {
+            char[] trecho = new char[fim - inicio];
+            for (int i = 0; i < trecho.length; i++) trecho[i] = charAt(inicio + i);
+            return new String(trecho);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package strategy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contadores de andamento de uma busca; atualizados pelas threads da busca e lidos pela interface
+public class ProgressoBusca {
+    private final long inicio = System.nanoTime();
+    private final AtomicInteger totalArquivos = new AtomicInteger();
+    private final AtomicInteger arquivosConcluidos = new AtomicInteger();
+    private final AtomicLong bytesLidos = new AtomicLong();
+
+    void definirTotalArquivos(int total) {
+        totalArquivos.set(total);
+    }
+
+    void arquivoConcluido() {
+        arquivosConcluidos.incrementAndGet();
+    }
+
+    void somarBytes(long bytes) {
+        bytesLidos.addAndGet(bytes);
+    }
+
+    public int getTotalArquivos() {
+        return totalArquivos.get();
+    }
+
+    public int getArquivosConcluidos() {
+        return arquivosConcluidos.get();
+    }
+
+    public long getBytesLidos() {
+        return bytesLidos.get();
+    }
+
+    public double getSegundos() {
+        return (System.nanoTime() - inicio) / 1e9;
+    }
+
+    public double getArquivosPorSegundo() {
+        double segundos = getSegundos();
+        return segundos > 0 ? getArquivosConcluidos() / segundos : 0;
+    }
+
+    public double getBytesPorSegundo() {
+        double segundos = getSegundos();
+        return segundos > 0 ? getBytesLidos() / segundos : 0;
+    }
+}
@@ -0,0 +1,174 @@
+package strategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import model.ResultadoRanqueado;
+import service.IndiceInvertido;
+
+// Pontua uma linha que já casou com o termo: a linha inteira (sem os espaços das pontas) igual ao termo
+// vale 3, o termo começando num token vale 2, em qualquer outro ponto vale 1. A parte fracionária
+// desempata dentro do nível: com BM25, a relevância dos tokens do termo na linha; sem, o quanto a
+// linha tem além do termo (quanto menos, melhor).
+final class Relevancia {
+
+    static final int LINHA_INTEIRA = 3;
+    static final int INICIO_DE_TOKEN = 2;
+    static final int TRECHO = 1;
+
+    // Parâmetros usuais do BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Melhor primeiro; empates pelo caminho e pela linha, para o top-k não depender das threads
+    static final Comparator<ResultadoRanqueado> ORDEM = (a, b) -> {
+        int c = Double.compare(b.getPontuacao(), a.getPontuacao());
+        if (c != 0) return c;
+        c = a.getCaminhoArquivo().compareTo(b.getCaminhoArquivo());
+        return c != 0 ? c : Integer.compare(a.getLinha(), b.getLinha());
+    };
+
+    private final ModoComparacao modo;
+    private final String dobrado;
+    private final boolean termoAbreToken;
+    // null sem BM25
+    private final String[] tokens;
+    private final double[] idf;
+    private final double mediaTokens;
+
+    Relevancia(String termo, ModoComparacao modo, IndiceInvertido.EstatisticasTokens estatisticas) {
+        this.modo = modo;
+        this.dobrado = modo.dobrar(termo);
+        this.termoAbreToken = !termo.isEmpty() && IndiceInvertido.caractereDeToken(termo.charAt(0));
+        if (estatisticas == null) {
+            this.tokens = null;
+            this.idf = null;
+            this.mediaTokens = 0;
+            return;
+        }
+        this.tokens = tokens(termo).toArray(new String[0]);
+        this.idf = new double[tokens.length];
+        long linhas = estatisticas.getLinhas();
+        for (int i = 0; i < tokens.length; i++) {
+            long df = estatisticas.linhasCom(tokens[i]);
+            idf[i] = Math.log(1 + (linhas - df + 0.5) / (df + 0.5));
+        }
+        this.mediaTokens = Math.max(1, estatisticas.getMediaTokensPorLinha());
+    }
+
+    // Tokens do termo como o índice invertido os guarda (minúsculos), sem repetir
+    static List<String> tokens(String termo) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int n = termo.length();
+        int i = 0;
+        while (i < n) {
+            if (!IndiceInvertido.caractereDeToken(termo.charAt(i))) {
+                i++;
+                continue;
+            }
+            StringBuilder sb = new StringBuilder();
+            while (i < n && IndiceInvertido.caractereDeToken(termo.charAt(i))) {
+                sb.append(Character.toLowerCase(termo.charAt(i)));
+                i++;
+            }
+            tokens.add(sb.toString());
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    double pontuar(String linha) {
+        // O dobramento troca caractere por caractere: as posições continuam as da linha original
+        String alvo = modo.dobrar(linha);
+        int inicio = 0;
+        int fim = alvo.length();
+        while (inicio < fim && Character.isWhitespace(alvo.charAt(inicio))) inicio++;
+        while (fim > inicio && Character.isWhitespace(alvo.charAt(fim - 1))) fim--;
+
+        int nivel;
+        if (fim - inicio == dobrado.length() && alvo.startsWith(dobrado, inicio)) {
+            nivel = LINHA_INTEIRA;
+        } else {
+            nivel = TRECHO;
+            if (termoAbreToken) {
+                for (int p = alvo.indexOf(dobrado); p >= 0; p = alvo.indexOf(dobrado, p + 1)) {
+                    if (p == 0 || !IndiceInvertido.caractereDeToken(alvo.charAt(p - 1))) {
+                        nivel = INICIO_DE_TOKEN;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Os dois desempates ficam em [0, 1): nunca passam um acerto para o nível de cima
+        if (tokens == null) return nivel + 1.0 / (2 + Math.max(0, fim - inicio - dobrado.length()));
+        double s = bm25(linha);
+        return nivel + s / (s + 1);
+    }
+
+    // O tamanho da linha conta todos os tokens; a média do índice conta os distintos de cada linha,
+    // o que só difere nas linhas que repetem palavras
+    private double bm25(String linha) {
+        int[] tf = new int[tokens.length];
+        int tamanho = 0;
+        int n = linha.length();
+        int i = 0;
+        while (i < n) {
+            if (!IndiceInvertido.caractereDeToken(linha.charAt(i))) {
+                i++;
+                continue;
+            }
+            int inicio = i;
+            while (i < n && IndiceInvertido.caractereDeToken(linha.charAt(i))) i++;
+            tamanho++;
+            for (int t = 0; t < tokens.length; t++) {
+                if (tokens[t].length() == i - inicio && linha.regionMatches(true, inicio, tokens[t], 0, i - inicio)) tf[t]++;
+            }
+        }
+        double norma = K1 * (1 - B + B * tamanho / mediaTokens);
+        double s = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (tf[t] > 0) s += idf[t] * tf[t] * (K1 + 1) / (tf[t] + norma);
+        }
+        return s;
+    }
+
+    // Min-heap limitado aos k melhores: a raiz é o pior deles, o primeiro a sair. Memória e junção
+    // O(k), não importa quantas linhas casem.
+    static final class MelhoresK {
+        private final int k;
+        private final PriorityQueue<ResultadoRanqueado> heap;
+
+        MelhoresK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(Math.min(k, 64), ORDEM.reversed());
+        }
+
+        // Confere antes de criar o resultado: a maioria dos acertos nem chega a entrar
+        boolean cabe(double pontuacao) {
+            return heap.size() < k || pontuacao >= heap.peek().getPontuacao();
+        }
+
+        void oferecer(ResultadoRanqueado resultado) {
+            if (heap.size() < k) {
+                heap.add(resultado);
+            } else if (ORDEM.compare(resultado, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(resultado);
+            }
+        }
+
+        void juntar(MelhoresK outro) {
+            for (ResultadoRanqueado r : outro.heap) oferecer(r);
+        }
+
+        List<ResultadoRanqueado> ordenados() {
+            List<ResultadoRanqueado> ordenados = new ArrayList<>(heap);
+            ordenados.sort(ORDEM);
+            return ordenados;
+        }
+    }
+}
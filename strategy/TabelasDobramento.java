@@ -0,0 +1,95 @@
+package strategy;
+
+import java.text.Normalizer;
+
+// Tabelas char -> char montadas uma vez (na primeira busca que precisar delas): a comparação
+// dobra cada caractere com um acesso a array, sem criar Strings nem chamar o Normalizer por linha.
+final class TabelasDobramento {
+
+    private static final int TAMANHO = Character.MAX_VALUE + 1;
+
+    private TabelasDobramento() {
+    }
+
+    // Mesma regra do String.equalsIgnoreCase
+    private static final class Maiusculas {
+        static final char[] TABELA = new char[TAMANHO];
+        static final boolean[] ALVOS_ASCII = new boolean[128];
+
+        static {
+            for (int c = 0; c < TAMANHO; c++) {
+                TABELA[c] = dobrarMaiuscula((char) c);
+            }
+            marcarAlvos(TABELA, ALVOS_ASCII);
+        }
+    }
+
+    // Maiúsculas e também acentos: "José", "JOSE" e "jose" ficam iguais
+    private static final class Acentos {
+        static final char[] TABELA = new char[TAMANHO];
+        static final boolean[] ALVOS_ASCII = new boolean[128];
+
+        static {
+            for (int c = 0; c < TAMANHO; c++) {
+                char atual = (char) c;
+                // Repete até estabilizar (ex.: a letra base de um caractere decomposto pode ser maiúscula)
+                for (int i = 0; i < 3; i++) {
+                    char proximo = dobrarMaiuscula(semAcento(dobrarMaiuscula(atual)));
+                    if (proximo == atual) break;
+                    atual = proximo;
+                }
+                TABELA[c] = atual;
+            }
+            marcarAlvos(TABELA, ALVOS_ASCII);
+        }
+    }
+
+    static char[] maiusculas() {
+        return Maiusculas.TABELA;
+    }
+
+    static char[] acentos() {
+        return Acentos.TABELA;
+    }
+
+    // alvos[c]: algum caractere fora do ASCII dobra para o caractere ASCII c
+    static boolean[] alvosAscii(char[] tabela) {
+        return tabela == Acentos.TABELA ? Acentos.ALVOS_ASCII : Maiusculas.ALVOS_ASCII;
+    }
+
+    private static char dobrarMaiuscula(char c) {
+        if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // Letra base quando o caractere se decompõe em base + marcas (é -> e); letras sem decomposição
+    // que o português costuma tratar como acentuadas também entram
+    private static char semAcento(char c) {
+        switch (c) {
+            case 'ø': return 'o';
+            case 'Ø': return 'O';
+            case 'đ': return 'd';
+            case 'Đ': return 'D';
+            case 'ł': return 'l';
+            case 'Ł': return 'L';
+            case 'ı': return 'i';
+            default: break;
+        }
+        if (c < 0xC0 || !Character.isLetter(c)) return c;
+        String decomposto = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char base = 0;
+        for (int i = 0; i < decomposto.length(); i++) {
+            char d = decomposto.charAt(i);
+            if (Character.getType(d) == Character.NON_SPACING_MARK) continue;
+            if (base != 0) return c;  // mais de uma letra (ex.: ligaduras): deixa como está
+            base = d;
+        }
+        return base != 0 ? base : c;
+    }
+
+    private static void marcarAlvos(char[] tabela, boolean[] alvos) {
+        for (int c = 128; c < TAMANHO; c++) {
+            if (tabela[c] < 128) alvos[tabela[c]] = true;
+        }
+    }
+}
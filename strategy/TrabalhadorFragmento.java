@@ -0,0 +1,183 @@
+package strategy;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.ResultadoAproximado;
+import model.ResultadoBusca;
+import model.ResultadoRanqueado;
+
+// Lado do processo trabalhador na busca fragmentada (ver CoordenadorFragmentos): atende consultas
+// por um socket no loopback com o BuscasService do seu fragmento (o filtro já restrito a ele).
+// Cada conexão é atendida numa thread virtual e pode mandar várias consultas, uma depois da outra.
+//
+// Protocolo (DataOutputStream, textos em UTF-8 com o tamanho na frente):
+//   consulta: método, modo (ordinal, 1 byte), termo
+//   resposta: um registro por resultado, na ordem do buscar(), e FIM; ou ERRO_CONSULTA/ERRO e a mensagem.
+//             Cada registro leva a chave do arquivo no percurso (ver ChavesPercurso; vazia nos ranqueados).
+public final class TrabalhadorFragmento implements Closeable {
+
+    static final byte FIM = 0;
+    static final byte RESULTADO = 1;
+    static final byte APROXIMADO = 2;
+    static final byte RANQUEADO = 3;
+    // Consulta inválida (IllegalArgumentException): vale para todos os fragmentos, não adianta repetir
+    static final byte ERRO_CONSULTA = 4;
+    // Falha do trabalhador: o coordenador busca o fragmento por conta própria
+    static final byte ERRO = 5;
+
+    private static final long[] CHAVE_VAZIA = new long[0];
+
+    private final BuscasService service;
+    private final File diretorio;
+    private final ServerSocket servidor;
+    private final ChavesPercurso chaves;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Porta livre no loopback (ver getPorta())
+    public TrabalhadorFragmento(BuscasService service, File diretorio) throws IOException {
+        if (!diretorio.isDirectory()) throw new IllegalArgumentException("Diretório inválido: " + diretorio);
+        this.service = service;
+        this.diretorio = diretorio;
+        this.servidor = new ServerSocket(0, 64, InetAddress.getLoopbackAddress());
+        this.chaves = new ChavesPercurso(diretorio, service.getFiltro());
+    }
+
+    public int getPorta() {
+        return servidor.getLocalPort();
+    }
+
+    // Bloqueia aceitando conexões até o close()
+    public void servir() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket conexao = servidor.accept();
+                threads.submit(() -> atender(conexao));
+            } catch (IOException e) {
+                if (!servidor.isClosed()) System.err.println("Erro ao aceitar conexão: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+        threads.shutdownNow();
+    }
+
+    private void atender(Socket conexao) {
+        try (conexao;
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(conexao.getInputStream()));
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(conexao.getOutputStream(), 1 << 16))) {
+            conexao.setTcpNoDelay(true);
+            while (true) {
+                String metodo;
+                try {
+                    metodo = lerTexto(entrada);
+                } catch (EOFException e) {
+                    return;
+                }
+                ModoComparacao modo = ModoComparacao.values()[entrada.readByte()];
+                String termo = lerTexto(entrada);
+                try {
+                    List<ResultadoBusca> resultados = service.buscar(diretorio, termo, metodo, modo);
+                    Map<String, long[]> porNome = ChavesPercurso.ordenaPorArquivo(metodo) ? chaves.chaves() : null;
+                    for (ResultadoBusca r : resultados) {
+                        escreverResultado(saida, r);
+                        escreverChave(saida, porNome == null ? CHAVE_VAZIA : chaves.chave(porNome, r.getCaminhoArquivo()));
+                    }
+                    saida.writeByte(FIM);
+                } catch (IllegalArgumentException e) {
+                    saida.writeByte(ERRO_CONSULTA);
+                    escreverTexto(saida, String.valueOf(e.getMessage()));
+                } catch (RuntimeException e) {
+                    // Ex.: arquivo alterado no meio da leitura dos resultados compactos
+                    saida.writeByte(ERRO);
+                    escreverTexto(saida, String.valueOf(e));
+                }
+                saida.flush();
+            }
+        } catch (IOException e) {
+            // O coordenador desistiu (trabalhador lento) ou saiu: não há a quem responder
+        }
+    }
+
+    // <editor-fold desc="Protocolo">
+
+    static void escreverConsulta(DataOutputStream saida, String metodo, ModoComparacao modo, String termo) throws IOException {
+        escreverTexto(saida, metodo);
+        saida.writeByte(modo.ordinal());
+        escreverTexto(saida, termo);
+    }
+
+    static void escreverResultado(DataOutputStream saida, ResultadoBusca r) throws IOException {
+        if (r instanceof ResultadoAproximado aproximado) {
+            saida.writeByte(APROXIMADO);
+            saida.writeInt(aproximado.getDistancia());
+        } else if (r instanceof ResultadoRanqueado ranqueado) {
+            saida.writeByte(RANQUEADO);
+            saida.writeDouble(ranqueado.getPontuacao());
+        } else {
+            saida.writeByte(RESULTADO);
+        }
+        escreverTexto(saida, r.getCaminhoArquivo());
+        saida.writeInt(r.getLinha());
+        escreverTexto(saida, r.getConteudo());
+    }
+
+    // null no fim da resposta
+    static ResultadoBusca lerResultado(DataInputStream entrada) throws IOException {
+        byte tipo = entrada.readByte();
+        switch (tipo) {
+            case FIM -> {
+                return null;
+            }
+            case ERRO_CONSULTA -> throw new IllegalArgumentException(lerTexto(entrada));
+            case ERRO -> throw new IOException("Falha no trabalhador: " + lerTexto(entrada));
+            case RESULTADO -> {
+                return new ResultadoBusca(lerTexto(entrada), entrada.readInt(), lerTexto(entrada));
+            }
+            case APROXIMADO -> {
+                int distancia = entrada.readInt();
+                return new ResultadoAproximado(lerTexto(entrada), entrada.readInt(), lerTexto(entrada), distancia);
+            }
+            case RANQUEADO -> {
+                double pontuacao = entrada.readDouble();
+                return new ResultadoRanqueado(lerTexto(entrada), entrada.readInt(), lerTexto(entrada), pontuacao);
+            }
+            default -> throw new IOException("Mensagem desconhecida: " + tipo);
+        }
+    }
+
+    static void escreverChave(DataOutputStream saida, long[] chave) throws IOException {
+        saida.writeShort(chave.length);
+        for (long posicao : chave) saida.writeLong(posicao);
+    }
+
+    static long[] lerChave(DataInputStream entrada) throws IOException {
+        long[] chave = new long[entrada.readUnsignedShort()];
+        for (int i = 0; i < chave.length; i++) chave[i] = entrada.readLong();
+        return chave;
+    }
+
+    // writeUTF limita a 64 KB: linhas podem ser maiores
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    // </editor-fold>
+}
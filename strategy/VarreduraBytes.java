@@ -0,0 +1,11 @@
+package strategy;
+
+// Laços internos da BuscaVetorial, com uma versão vetorial e uma escalar
+interface VarreduraBytes {
+
+    // Posição do primeiro acerto em [de, ate), já conferido byte a byte, ou -1
+    int proximo(byte[] texto, int de, int ate, BuscaVetorial.PadraoBytes padrao);
+
+    // Fins de linha em [de, ate): "\n", "\r\n" e "\r" sozinho. 'limite' é até onde se pode olhar o byte seguinte a um '\r'.
+    int contarLinhas(byte[] texto, int de, int ate, int limite);
+}
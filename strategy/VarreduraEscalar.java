@@ -0,0 +1,27 @@
+package strategy;
+
+final class VarreduraEscalar implements VarreduraBytes {
+
+    @Override
+    public int proximo(byte[] texto, int de, int ate, BuscaVetorial.PadraoBytes padrao) {
+        int ultimo = padrao.p.length - 1;
+        for (int i = de; i + ultimo < ate; i++) {
+            byte a = texto[i];
+            if (a != padrao.primeiro && a != padrao.primeiroAlt) continue;
+            byte z = texto[i + ultimo];
+            if (z != padrao.ultimo && z != padrao.ultimoAlt) continue;
+            if (padrao.confere(texto, i)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int contarLinhas(byte[] texto, int de, int ate, int limite) {
+        int linhas = 0;
+        for (int k = de; k < ate; k++) {
+            byte b = texto[k];
+            if (b == '\n' || (b == '\r' && (k + 1 >= limite || texto[k + 1] != '\n'))) linhas++;
+        }
+        return linhas;
+    }
+}
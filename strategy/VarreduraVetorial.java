@@ -0,0 +1,61 @@
+package strategy;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+// Só é carregada pela BuscaVetorial quando o módulo jdk.incubator.vector está presente
+final class VarreduraVetorial implements VarreduraBytes {
+
+    // No máximo 512 bits (64 bytes): VectorMask.toLong() não aceita mais de 64 posições, e o SVE pode
+    // preferir vetores de até 2048 bits
+    private static final VectorSpecies<Byte> ESPECIE = ByteVector.SPECIES_PREFERRED.vectorBitSize() > 512
+            ? ByteVector.SPECIES_512 : ByteVector.SPECIES_PREFERRED;
+    private static final VarreduraEscalar ESCALAR = new VarreduraEscalar();
+
+    @Override
+    public int proximo(byte[] texto, int de, int ate, BuscaVetorial.PadraoBytes padrao) {
+        int ultimo = padrao.p.length - 1;
+        int passo = ESPECIE.length();
+        boolean duasGrafias = padrao.primeiro != padrao.primeiroAlt || padrao.ultimo != padrao.ultimoAlt;
+
+        int i = de;
+        // O bloco do último byte (i + ultimo) também precisa caber em [de, ate)
+        for (; i + ultimo + passo <= ate; i += passo) {
+            ByteVector primeiros = ByteVector.fromArray(ESPECIE, texto, i);
+            ByteVector ultimos = ByteVector.fromArray(ESPECIE, texto, i + ultimo);
+            VectorMask<Byte> candidatos;
+            if (duasGrafias) {
+                candidatos = primeiros.eq(padrao.primeiro).or(primeiros.eq(padrao.primeiroAlt))
+                        .and(ultimos.eq(padrao.ultimo).or(ultimos.eq(padrao.ultimoAlt)));
+            } else {
+                candidatos = primeiros.eq(padrao.primeiro).and(ultimos.eq(padrao.ultimo));
+            }
+            long bits = candidatos.toLong();
+            while (bits != 0) {
+                int pos = i + Long.numberOfTrailingZeros(bits);
+                if (padrao.confere(texto, pos)) return pos;
+                bits &= bits - 1;
+            }
+        }
+        return ESCALAR.proximo(texto, i, ate, padrao);
+    }
+
+    @Override
+    public int contarLinhas(byte[] texto, int de, int ate, int limite) {
+        int passo = ESPECIE.length();
+        int linhas = 0;
+        int i = de;
+        // +1 para poder carregar o bloco deslocado que diz se cada '\r' é seguido de '\n'
+        for (; i + passo < Math.min(ate + 1, limite); i += passo) {
+            ByteVector v = ByteVector.fromArray(ESPECIE, texto, i);
+            linhas += v.eq((byte) '\n').trueCount();
+            VectorMask<Byte> retornos = v.eq((byte) '\r');
+            if (retornos.anyTrue()) {
+                ByteVector seguintes = ByteVector.fromArray(ESPECIE, texto, i + 1);
+                linhas += retornos.andNot(seguintes.eq((byte) '\n')).trueCount();
+            }
+        }
+        return linhas + ESCALAR.contarLinhas(texto, i, ate, limite);
+    }
+}